@@ -0,0 +1,134 @@
+package ch.epfl.javions.demodulation;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Computes power samples a whole vector of lanes at a time, with the incubating Vector API. This class is kept out of
+ * the main source root, and is only compiled when {@code --add-modules jdk.incubator.vector} is given to the compiler.
+ * It is loaded by reflection, and created by {@link PowerKernel#create()} only when the module was added to the
+ * virtual machine too.
+ * <p>
+ * The raw bytes are reinterpreted as little-endian ints, each one holding the two samples of a power sample, the even
+ * one in its 16 least significant bits and the odd one in its 16 most significant bits. The power sample of a lane
+ * thus only depends on that lane in four vectors loaded at consecutive pairs, and the bias of the samples cancels out
+ * in the alternating sums, so that it is never subtracted.
+ * <p>
+ * As mapped buffers cannot be read by vectors without the preview foreign memory API, each batch is first copied
+ * after the last three pairs of the previous one, in an array owned by the kernel.
+ *
+ * @author : Alexei Thornber (363088)
+ * @author : Zachary Doll (356458)
+ */
+final class VectorPowerKernel extends PowerKernel {
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Byte> BYTES = VectorSpecies.of(byte.class, INTS.vectorShape());
+    //Number of bytes of the two samples of a power sample
+    private static final int PAIR_BYTES = 2 * Short.BYTES;
+    //Number of bytes of the three pairs preceding a batch, needed by its first power samples
+    private static final int HISTORY_BYTES = 3 * PAIR_BYTES;
+    private static final int SAMPLE_MASK = (1 << 12) - 1;
+    private static final int BIAS = 2048;
+
+    //the last pairs of the previous batch, followed by the current batch
+    private byte[] pairs = new byte[HISTORY_BYTES];
+
+    /**
+     * Constructs a vectorized kernel, whose previous samples are all zero. Called by reflection from
+     * {@link PowerKernel#create(boolean)}.
+     */
+    VectorPowerKernel() {
+        for (int i = 0; i < HISTORY_BYTES; i += Short.BYTES) pairs[i + 1] = (byte) (BIAS >>> Byte.SIZE);
+    }
+
+    /**
+     * Returns the number of power samples computed at once.
+     *
+     * @return the number of lanes of the vectors
+     */
+    @Override
+    int lanes() {
+        return INTS.length();
+    }
+
+    @Override
+    int compute(ByteBuffer raw, int[] target, int offset) {
+        int count = raw.remaining() / PAIR_BYTES;
+        int length = count * PAIR_BYTES;
+        if (pairs.length < HISTORY_BYTES + length) {
+            byte[] newPairs = new byte[HISTORY_BYTES + length];
+            System.arraycopy(pairs, 0, newPairs, 0, HISTORY_BYTES);
+            pairs = newPairs;
+        }
+        raw.get(raw.position(), pairs, HISTORY_BYTES, length);
+
+        //the pair of the power sample i is at index i + 3 of the array, the vector p0 holding the oldest pairs
+        int i = 0;
+        for (; i <= count - INTS.length(); i += INTS.length()) {
+            IntVector p0 = pairsAt(i * PAIR_BYTES);
+            IntVector p1 = pairsAt((i + 1) * PAIR_BYTES);
+            IntVector p2 = pairsAt((i + 2) * PAIR_BYTES);
+            IntVector p3 = pairsAt((i + 3) * PAIR_BYTES);
+
+            IntVector sum1 = even(p3).sub(even(p2)).add(even(p1)).sub(even(p0));
+            IntVector sum2 = odd(p3).sub(odd(p2)).add(odd(p1)).sub(odd(p0));
+            sum1.mul(sum1).add(sum2.mul(sum2)).intoArray(target, offset + i);
+        }
+        for (; i < count; i++) {
+            int index = i * PAIR_BYTES;
+            int sum1 = sampleAt(index + 3 * PAIR_BYTES) - sampleAt(index + 2 * PAIR_BYTES)
+                    + sampleAt(index + PAIR_BYTES) - sampleAt(index);
+            int sum2 = sampleAt(index + 3 * PAIR_BYTES + Short.BYTES) - sampleAt(index + 2 * PAIR_BYTES + Short.BYTES)
+                    + sampleAt(index + PAIR_BYTES + Short.BYTES) - sampleAt(index + Short.BYTES);
+            target[offset + i] = sum1 * sum1 + sum2 * sum2;
+        }
+
+        //keeping the last pairs for the next batch
+        System.arraycopy(pairs, length, pairs, 0, HISTORY_BYTES);
+        return count;
+    }
+
+    /**
+     * Loads a vector of pairs of samples, each lane holding a little-endian int.
+     *
+     * @param index the index in the array of the first byte of the first pair
+     * @return the vector of pairs
+     */
+    private IntVector pairsAt(int index) {
+        return ByteVector.fromArray(BYTES, pairs, index).reinterpretAsInts();
+    }
+
+    /**
+     * Returns the biased sample stored in the two little-endian bytes at the given index of the array.
+     *
+     * @param index the index of the first byte of the sample
+     * @return the sample, not recentered around zero
+     */
+    private int sampleAt(int index) {
+        return ((pairs[index] & 0xFF) | (pairs[index + 1] & 0xFF) << Byte.SIZE) & SAMPLE_MASK;
+    }
+
+    /**
+     * Extracts the biased even samples of a vector of pairs.
+     *
+     * @param pairs the vector of pairs
+     * @return the even samples, not recentered around zero
+     */
+    private static IntVector even(IntVector pairs) {
+        return pairs.and(SAMPLE_MASK);
+    }
+
+    /**
+     * Extracts the biased odd samples of a vector of pairs.
+     *
+     * @param pairs the vector of pairs
+     * @return the odd samples, not recentered around zero
+     */
+    private static IntVector odd(IntVector pairs) {
+        return pairs.lanewise(VectorOperators.LSHR, Short.SIZE).and(SAMPLE_MASK);
+    }
+}
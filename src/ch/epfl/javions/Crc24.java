@@ -1,8 +1,16 @@
 package ch.epfl.javions;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Objects;
+
 /**
  * Represents 24 bit CRC calculator of a message, allowing to check whether a message has been corrupted.
  * A message is considered to be corrupted if its CRC is not equal to 0.
+ * <p>
+ * The CRC is computed eight bytes at a time ("slicing-by-8"), using eight tables giving the CRC of a byte followed
+ * by 0 to 7 zero bytes, whose entries for the eight bytes of a block are combined with a xor.
  *
  * @author : Alexei Thornber (363088)
  * @author : Zachary Doll (356458)
@@ -15,7 +23,18 @@ public final class Crc24 {
     public final static int GENERATOR = 0xFFF409;
     private static final int FILE_ENTRIES = 256;
     private static final int CRC_SIZE = 24;
+    private static final int CRC_MASK = (1 << CRC_SIZE) - 1;
+    //Number of bytes processed at once, and thus of tables
+    private static final int SLICES = Long.BYTES;
+    private static final int BYTE_MASK = 0xFF;
+    //Length of an ADS-B message in bytes, and number of its bytes following the first eight ones
+    private static final int MESSAGE_LENGTH = 14;
+    private static final int MESSAGE_LOW_BYTES = MESSAGE_LENGTH - Long.BYTES;
+    private static final long MESSAGE_LOW_MASK = (1L << (MESSAGE_LOW_BYTES * Byte.SIZE)) - 1;
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
     private final int[] generatorTable;
+    //The table of the CRCs of a byte followed by k zero bytes is stored at index k * FILE_ENTRIES
+    private final int[] slicingTables;
 
     /**
      * Instantiates a 24 bit CRC calculator given a generator, and stores its corresponding table in an attribute.
@@ -24,6 +43,7 @@ public final class Crc24 {
      */
     public Crc24(int generator) {
         generatorTable = buildTable(generator);
+        slicingTables = buildSlicingTables(generatorTable);
     }
 
     /**
@@ -64,20 +84,82 @@ public final class Crc24 {
     }
 
     /**
-     * Calculates the 24 bit CRC of a message, byte by byte.
+     * Builds the tables used to compute the CRC eight bytes at a time, each one being obtained by appending a zero
+     * byte to the messages of the previous one.
+     *
+     * @param generatorTable the table of the CRCs of single bytes
+     * @return the eight tables, one after the other
+     */
+    private static int[] buildSlicingTables(int[] generatorTable) {
+        var output = new int[SLICES * FILE_ENTRIES];
+        System.arraycopy(generatorTable, 0, output, 0, FILE_ENTRIES);
+
+        for (int i = FILE_ENTRIES; i < output.length; i++) {
+            int previous = output[i - FILE_ENTRIES];
+            output[i] = ((previous << Byte.SIZE) & CRC_MASK) ^ generatorTable[previous >>> (CRC_SIZE - Byte.SIZE)];
+        }
+        return output;
+    }
+
+    /**
+     * Calculates the 24 bit CRC of a message, eight bytes at a time.
      *
      * @param bytes the message to calculate the CRC of
      * @return the 24 bit CRC of the inputted message
      */
     public int crc(byte[] bytes) {
         int crc = 0;
-        for (byte curr : bytes) {
-            int tabIdx = generatorTable[Bits.extractUInt(crc, (CRC_SIZE - Byte.SIZE), Byte.SIZE)];
-            crc = ((crc << Byte.SIZE) | Byte.toUnsignedInt(curr)) ^ tabIdx;
+        int i = 0;
+        for (; i + SLICES <= bytes.length; i += SLICES) {
+            crc = sliced(crc, (long) LONG_VIEW.get(bytes, i), SLICES);
+        }
+        for (; i < bytes.length; i++) {
+            crc = ((crc << Byte.SIZE) & CRC_MASK)
+                    ^ generatorTable[(crc >>> (CRC_SIZE - Byte.SIZE)) ^ Byte.toUnsignedInt(bytes[i])];
         }
-        for (int j = 0; j < 3; j++) {
-            crc = ((crc << Byte.SIZE) ^ generatorTable[Bits.extractUInt(crc, (CRC_SIZE - Byte.SIZE), Byte.SIZE)]);
+        return crc;
+    }
+
+    /**
+     * Calculates the 24 bit CRC of an ADS-B message of 14 bytes, packed in two longs in big-endian order.
+     *
+     * @param high the first 8 bytes of the message
+     * @param low  the last 6 bytes of the message, in its 48 least significant bits
+     * @return the 24 bit CRC of the message
+     */
+    public int messageCrc(long high, long low) {
+        return sliced(sliced(0, high, SLICES), low & MESSAGE_LOW_MASK, MESSAGE_LOW_BYTES);
+    }
+
+    /**
+     * Calculates the 24 bit CRC of the ADS-B message of 14 bytes starting at the given offset of an array.
+     *
+     * @param bytes  the array containing the message
+     * @param offset the index of the first byte of the message
+     * @return the 24 bit CRC of the message
+     * @throws IndexOutOfBoundsException if the array does not contain 14 bytes starting at the given offset
+     */
+    public int messageCrc(byte[] bytes, int offset) {
+        Objects.checkFromIndexSize(offset, MESSAGE_LENGTH, bytes.length);
+        //the last 8 bytes of the message overlap its first 8 ones, the overlapping bytes being masked out
+        return messageCrc((long) LONG_VIEW.get(bytes, offset), (long) LONG_VIEW.get(bytes, offset + MESSAGE_LOW_BYTES));
+    }
+
+    /**
+     * Appends a block of at most eight bytes to a message of the given CRC.
+     *
+     * @param crc   the CRC of the message
+     * @param block the bytes to append, in big-endian order in the least significant bits of the long
+     * @param size  the number of bytes in the block (between 3 and 8)
+     * @return the CRC of the message followed by the block
+     */
+    private int sliced(int crc, long block, int size) {
+        //the CRC is xored with the first three bytes of the block
+        long value = block ^ ((long) crc << ((size - 3) * Byte.SIZE));
+        int result = 0;
+        for (int k = 0; k < size; k++) {
+            result ^= slicingTables[(k << Byte.SIZE) | (int) ((value >>> (k * Byte.SIZE)) & BYTE_MASK)];
         }
-        return Bits.extractUInt(crc, 0, CRC_SIZE);
+        return result;
     }
 }
@@ -33,6 +33,10 @@ public record AirbornePositionMessage(long timeStampNs,
     private static final int Q_IDX = 4;
     private static final int STRONG_SIZE = (ALTITUDE_SIZE - Q_IDX) + 1;
     private static final int WEAK_SIZE = ALTITUDE_SIZE - STRONG_SIZE;
+    //order in which the bits of the altitude attribute are rearranged when Q is 0
+    private static final int[] REORDERED_INDICES = {7, 9, 11, 1, 3, 5, 6, 8, 10, 0, 2, 4};
+    //altitudes in meters indexed by the 12 bit altitude attribute, NaN for the invalid ones
+    private static final double[] ALTITUDES = buildAltitudes();
 
     /**
      * Instantiates a new message sent by an aircraft to report its position.
@@ -61,72 +65,86 @@ public record AirbornePositionMessage(long timeStampNs,
      * @param rawMessage the Raw ADS-B message of the aircraft
      * @return the AircraftPositionMessage of the raw message if the altitude contained in the raw message is valid,
      * null otherwise
-     * (see {@link AirbornePositionMessage#decodeAltitudeQ0(int, int, double, double, RawMessage)} for
-     * information on the validity of the altitude)
+     * (see {@link AirbornePositionMessage#decodeAltitudeQ0(int)} for information on the validity of the altitude)
      */
     public static AirbornePositionMessage of(RawMessage rawMessage) {
+        var recorder = new MessageRecorder();
+        return parse(rawMessage, recorder) ? (AirbornePositionMessage) recorder.message() : null;
+    }
+
+    /**
+     * Decodes the given raw message as a position message, and hands its content to the given handler if its
+     * altitude is valid.
+     *
+     * @param rawMessage the Raw ADS-B message of the aircraft
+     * @param handler    the handler receiving the content of the message
+     * @return true if the message was handed to the handler, false if its altitude is invalid
+     */
+    static boolean parse(RawMessage rawMessage, MessageHandler handler) {
+        long payload = rawMessage.payload();
+
+        double altitude = ALTITUDES[Bits.extractUInt(payload, ALTITUDE_START, ALTITUDE_SIZE)];
+        if (Double.isNaN(altitude)) return false;
 
-        int alt = Bits.extractUInt(rawMessage.payload(), ALTITUDE_START, ALTITUDE_SIZE);
-        int parity = Bits.testBit(rawMessage.payload(), PARITY_IDX) ? 1 : 0;
+        int parity = Bits.testBit(payload, PARITY_IDX) ? 1 : 0;
         //the longitude and latitude need to be normalized.
-        double lat_cpr = Math.scalb(Bits.extractUInt(rawMessage.payload(), LAT_START, COORD_LENGTH), -17);
-        double lon_cpr = Math.scalb(Bits.extractUInt(rawMessage.payload(), LON_START, COORD_LENGTH), -17);
+        double lat_cpr = Math.scalb(Bits.extractUInt(payload, LAT_START, COORD_LENGTH), -17);
+        double lon_cpr = Math.scalb(Bits.extractUInt(payload, LON_START, COORD_LENGTH), -17);
 
-        if (Bits.testBit(alt, Q_IDX))
-            return decodeAltitudeQ1(alt, parity, lat_cpr, lon_cpr, rawMessage);
-        else
-            return decodeAltitudeQ0(alt, parity, lat_cpr, lon_cpr, rawMessage);
+        handler.position(rawMessage.timeStampNs(), rawMessage.icaoAddress(), altitude, parity, lon_cpr, lat_cpr);
+        return true;
+    }
 
+    /**
+     * Builds the table of the altitudes corresponding to every value of the 12 bit altitude attribute, so that
+     * decoding an altitude is a single array load.
+     *
+     * @return the altitudes in meters, NaN for the invalid values of the attribute
+     */
+    private static double[] buildAltitudes() {
+        var altitudes = new double[1 << ALTITUDE_SIZE];
+        for (int alt = 0; alt < altitudes.length; alt++) {
+            altitudes[alt] = decodeAltitude(alt);
+        }
+        return altitudes;
     }
 
     /**
-     * Returns the AirbornePositionMessage for the specific case where the bit at index {@link #Q_IDX} of the altitude
-     * attribute is equal to 1.
+     * Decodes the 12 bit altitude attribute of a message, without the table. This is the reference decoder from
+     * which the table is built, against which the decoded messages are checked.
      *
-     * @param alt        the altitude of the aircraft attribute of the message
-     * @param parity     the parity of the raw message
-     * @param lat        the normalized local latitude of the aircraft at the time the message was sent
-     * @param lon        the normalized local longitude of the aircraft at time the message was sent
-     * @param rawMessage the raw message
-     * @return the AirbornePositionMessage corresponding to the given raw message
+     * @param alt the altitude attribute of the message
+     * @return the altitude of the aircraft in meters, NaN if the attribute is invalid
      */
-    private static AirbornePositionMessage decodeAltitudeQ1(int alt,
-                                                            int parity,
-                                                            double lat,
-                                                            double lon,
-                                                            RawMessage rawMessage) {
+    static double decodeAltitude(int alt) {
+        return Bits.testBit(alt, Q_IDX) ? decodeAltitudeQ1(alt) : decodeAltitudeQ0(alt);
+    }
+
+    /**
+     * Returns the altitude for the specific case where the bit at index {@link #Q_IDX} of the altitude attribute is
+     * equal to 1.
+     *
+     * @param alt the altitude of the aircraft attribute of the message
+     * @return the altitude of the aircraft in meters
+     */
+    private static double decodeAltitudeQ1(int alt) {
 
         int left = Bits.extractUInt(alt, 5, ALTITUDE_SIZE - Q_IDX);
         int right = Bits.extractUInt(alt, 0, Q_IDX);
         alt = (left << 4) | right;
         //formula from the handout
-        double altitude = Units.convertFrom((-1000 + (alt * 25)), Units.Length.FOOT);
-
-        return new AirbornePositionMessage(rawMessage.timeStampNs(),
-                rawMessage.icaoAddress(),
-                altitude,
-                parity,
-                lon,
-                lat);
+        return Units.convertFrom((-1000 + (alt * 25)), Units.Length.FOOT);
     }
 
     /**
-     * Returns the AirbornePositionMessage for the specific case where the bit at index {@link #Q_IDX} of the altitude
-     * attribute is equal to 0.
+     * Returns the altitude for the specific case where the bit at index {@link #Q_IDX} of the altitude attribute is
+     * equal to 0.
      *
-     * @param alt        the altitude of the aircraft attribute of the message
-     * @param parity     the parity of the raw message
-     * @param lat        the normalized local latitude of the aircraft at the time the message was sent
-     * @param lon        the normalized local longitude of the aircraft at time the message was sent
-     * @param rawMessage the raw message
-     * @return the AirbornePositionMessage if the altitude is valid (if the gray code value of the 3 least significant
-     * bits of the alt attribute is not 0, 5 or 6), null otherwise
+     * @param alt the altitude of the aircraft attribute of the message
+     * @return the altitude of the aircraft in meters if it is valid (if the gray code value of the 3 least significant
+     * bits of the alt attribute is not 0, 5 or 6), NaN otherwise
      */
-    private static AirbornePositionMessage decodeAltitudeQ0(int alt,
-                                                            int parity,
-                                                            double lat,
-                                                            double lon,
-                                                            RawMessage rawMessage) {
+    private static double decodeAltitudeQ0(int alt) {
 
         alt = reorder(alt);
         //taking the 9 most significant bits of alt attribute
@@ -136,7 +154,7 @@ public record AirbornePositionMessage(long timeStampNs,
 
         //if the weak bits are 0, 5 or 6, the altitude is defined as invalid
         if (weakBits == 0 || weakBits == 5 || weakBits == 6)
-            return null;
+            return Double.NaN;
         else if (weakBits == 7)
             weakBits = 5;
 
@@ -144,14 +162,7 @@ public record AirbornePositionMessage(long timeStampNs,
         if (strongBits % 2 != 0)
             weakBits = 6 - weakBits;
         //formula from the handout
-        double altitude = Units.convertFrom(-1300 + (weakBits * 100) + (strongBits * 500), Units.Length.FOOT);
-
-        return new AirbornePositionMessage(rawMessage.timeStampNs(),
-                rawMessage.icaoAddress(),
-                altitude,
-                parity,
-                lon,
-                lat);
+        return Units.convertFrom(-1300 + (weakBits * 100) + (strongBits * 500), Units.Length.FOOT);
     }
 
     /**
@@ -174,11 +185,10 @@ public record AirbornePositionMessage(long timeStampNs,
         return Integer.parseInt(new String(reorderedBits), 2);
     }*/
     private static int reorder(int n) {
-        int[] indices = {7, 9, 11, 1, 3, 5, 6, 8, 10, 0, 2, 4};
         int reordered = 0;
 
-        for (int i = 0; i < indices.length; i++) {
-            int bit = (n >> indices[i]) & 1;
+        for (int i = 0; i < REORDERED_INDICES.length; i++) {
+            int bit = (n >> REORDERED_INDICES[i]) & 1;
             reordered |= bit << i;
         }
 
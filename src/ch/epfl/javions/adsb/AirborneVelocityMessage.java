@@ -69,31 +69,45 @@ public record AirborneVelocityMessage(long timeStampNs,
      * subtype is invalid, or if the speed cannot be determined based on the provided information.
      */
     public static AirborneVelocityMessage of(RawMessage rawMessage) {
+        var recorder = new MessageRecorder();
+        return parse(rawMessage, recorder) ? (AirborneVelocityMessage) recorder.message() : null;
+    }
 
-        int subType = Bits.extractUInt(rawMessage.payload(), SUB_TYPE_START, SUB_TYPE_SIZE);
-        int speedInfo = Bits.extractUInt(rawMessage.payload(), SPEED_INFO_START, SPEED_INFO_SIZE);
+    /**
+     * Decodes the given raw message as a velocity message, and hands its content to the given handler if its subtype
+     * is valid and its speed can be determined.
+     *
+     * @param rawMessage the Raw ADS-B message sent by the aircraft
+     * @param handler    the handler receiving the content of the message
+     * @return true if the message was handed to the handler, false otherwise
+     */
+    static boolean parse(RawMessage rawMessage, MessageHandler handler) {
+        long payload = rawMessage.payload();
+        int subType = Bits.extractUInt(payload, SUB_TYPE_START, SUB_TYPE_SIZE);
+        int speedInfo = Bits.extractUInt(payload, SPEED_INFO_START, SPEED_INFO_SIZE);
 
-        if (subType == 1 || subType == 2) return groundSpeed(speedInfo, subType, rawMessage);
-        if (subType == 3 || subType == 4) return airSpeed(speedInfo, subType, rawMessage);
+        if (subType == 1 || subType == 2) return groundSpeed(speedInfo, subType, rawMessage, handler);
+        if (subType == 3 || subType == 4) return airSpeed(speedInfo, subType, rawMessage, handler);
 
-        else return null;
+        else return false;
     }
 
     /**
-     * Returns the velocity message of an aircraft reporting its ground speed.
+     * Hands the content of a velocity message reporting the ground speed of an aircraft to the given handler.
      *
      * @param speedInfo  the speed information of the aircraft
      * @param subType    the subtype of the message (1 or 2 for ground speed)
      * @param rawMessage the Raw ADS-B message of the aircraft
-     * @return the ground speed Aircraft Velocity Message of the aircraft, or null if the speed cannot be determined
-     * based on the provided information
+     * @param handler    the handler receiving the content of the message
+     * @return true if the message was handed to the handler, false if the speed cannot be determined based on the
+     * provided information
      */
-    private static AirborneVelocityMessage groundSpeed(int speedInfo, int subType, RawMessage rawMessage) {
+    private static boolean groundSpeed(int speedInfo, int subType, RawMessage rawMessage, MessageHandler handler) {
 
         int vew = Bits.extractUInt(speedInfo, VEW_START, SPEED_NORM_SIZE) - 1;
         int vns = Bits.extractUInt(speedInfo, VNS_START, SPEED_NORM_SIZE) - 1;
 
-        if (vns + 1 == 0 || vew + 1 == 0) return null;
+        if (vns + 1 == 0 || vew + 1 == 0) return false;
 
         vew *= Bits.testBit(speedInfo, DEW_IDX) ? -1 : 1; // if dew == 1, vew = -vew
         vns *= Bits.testBit(speedInfo, DNS_IDX) ? -1 : 1; // if dns == 1, vew = -vew
@@ -104,36 +118,39 @@ public record AirborneVelocityMessage(long timeStampNs,
         if (angle < 0) angle += Units.Angle.TURN; // add 2 * PI if angle is negative.
         groundSpeed *= subType * subType; // multiply by 1 if subType is 1 or 4 if subType is 2 (supersonic).
 
-        return new AirborneVelocityMessage(rawMessage.timeStampNs(),
+        handler.velocity(rawMessage.timeStampNs(),
                 rawMessage.icaoAddress(),
                 Units.convertFrom(groundSpeed, Units.Speed.KNOT),
                 angle);
+        return true;
     }
 
     /**
-     * Returns the velocity message of an aircraft reporting its air speed.
+     * Hands the content of a velocity message reporting the air speed of an aircraft to the given handler.
      *
      * @param speedInfo  the speed information of the aircraft
      * @param subType    the subtype of the message (3 or 4 for air speed)
      * @param rawMessage the Raw ADS-B message of the aircraft
-     * @return the air speed Aircraft Velocity Message of the aircraft, or null if the speed cannot be determined
-     * based on the provided information
+     * @param handler    the handler receiving the content of the message
+     * @return true if the message was handed to the handler, false if the speed cannot be determined based on the
+     * provided information
      */
-    private static AirborneVelocityMessage airSpeed(int speedInfo, int subType, RawMessage rawMessage) {
+    private static boolean airSpeed(int speedInfo, int subType, RawMessage rawMessage, MessageHandler handler) {
 
         double heading = Bits.extractUInt(speedInfo, HEADING_START, SPEED_NORM_SIZE);
         double airSpeed = Bits.extractUInt(speedInfo, AS_START, SPEED_NORM_SIZE) - 1;
 
-        if (airSpeed + 1 == 0) return null;
+        if (airSpeed + 1 == 0) return false;
 
         if (Bits.testBit(speedInfo, SH_IDX)) heading = Math.scalb(heading, -10);
-        else return null; // speed cannot be determined.
+        else return false; // speed cannot be determined.
 
         airSpeed *= subType == 3 ? 1 : 4; //multiply by 1 if subType is 3 or 4 if subType is 4 (supersonic).
 
-        return new AirborneVelocityMessage(rawMessage.timeStampNs(),
+        handler.velocity(rawMessage.timeStampNs(),
                 rawMessage.icaoAddress(),
                 Units.convertFrom(airSpeed, Units.Speed.KNOT),
                 Units.convertFrom(heading, Units.Angle.TURN));
+        return true;
     }
 }
\ No newline at end of file
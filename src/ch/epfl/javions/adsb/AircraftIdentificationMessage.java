@@ -25,15 +25,19 @@ public record AircraftIdentificationMessage(long timeStampNs,
 
     //--------------------------------------------------------------------------------
     /**
-     * The ASCII codes for the characters used in the call sign.
+     * The characters of the call sign, indexed by their 6 bit code, an invalid code being mapped to {@link #INVALID}.
      */
-    private static final int A = 1;
-    private static final int Z = 26;
-    private static final int SPACE = 32;
-    private static final int ZERO = 48;
-    private static final int NINE = 57;
-    private static final int UPPER_CASES = 64;
+    private static final char INVALID = 0;
+    private static final char[] CHARACTERS = buildCharacters();
+    private static final long CALL_SIGN_MASK = (1L << NB_BITS) - 1;
 
+    //--------------------------------------------------------------------------------
+    /**
+     * The call signs decoded so far, interned in a direct-mapped table indexed by a hash of their 48 bit code.
+     */
+    private static final int CACHE_BITS = 10;
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+    private static final CachedCallSign[] CACHE = new CachedCallSign[1 << CACHE_BITS];
 
     /**
      * Instantiates a new message sent by an aircraft to identify itself.
@@ -60,49 +64,90 @@ public record AircraftIdentificationMessage(long timeStampNs,
      * @see CallSign for valid call sign characters
      */
     public static AircraftIdentificationMessage of(RawMessage rawMessage) {
+        var recorder = new MessageRecorder();
+        return parse(rawMessage, recorder) ? (AircraftIdentificationMessage) recorder.message() : null;
+    }
+
+    /**
+     * Decodes the given raw message as an identification message, and hands its content to the given handler if
+     * all the characters of its call sign are valid.
+     *
+     * @param rawMessage the Raw ADS-B message of the Aircraft
+     * @param handler    the handler receiving the content of the message
+     * @return true if the message was handed to the handler, false otherwise
+     * @see CallSign for valid call sign characters
+     */
+    static boolean parse(RawMessage rawMessage, MessageHandler handler) {
 
-        int CA = Bits.extractUInt(rawMessage.payload(), NB_BITS, CA_SIZE);
-        int category = ((RawMessage.LENGTH - rawMessage.typeCode()) << 4) | CA;
+        long payload = rawMessage.payload();
+        int CA = Bits.extractUInt(payload, NB_BITS, CA_SIZE);
+        int category = ((RawMessage.LENGTH - RawMessage.typeCode(payload)) << 4) | CA;
 
-        CallSign callSign = getCallSign(rawMessage);
-        if (callSign == null) return null;
+        CallSign callSign = getCallSign(payload);
+        if (callSign == null) return false;
 
-        return new AircraftIdentificationMessage(rawMessage.timeStampNs(),
-                rawMessage.icaoAddress(),
-                category,
-                callSign);
+        handler.identification(rawMessage.timeStampNs(), rawMessage.icaoAddress(), category, callSign);
+        return true;
     }
 
     /**
-     * Returns the CallSign of the Aircraft corresponding to the given RawMessage.
+     * Builds the table of the characters of the call sign, indexed by their 6 bit code.
      *
-     * @param rawMessage the Raw ADS-B message of the Aircraft
+     * @return the characters of the call sign, {@link #INVALID} for the invalid codes
+     */
+    private static char[] buildCharacters() {
+        char[] characters = new char[1 << BITS_PER_CHAR];
+        for (char c = 'A'; c <= 'Z'; c++) characters[c - 'A' + 1] = c; // A-Z
+        characters[' '] = ' '; // Space
+        for (char c = '0'; c <= '9'; c++) characters[c] = c; // 0-9
+        return characters;
+    }
+
+    /**
+     * Returns the CallSign of the Aircraft contained in the given payload. Call signs are interned, so that decoding
+     * a call sign already seen only requires checking its characters.
+     *
+     * @param payload the payload of the Raw ADS-B message of the Aircraft
      * @return the CallSign of the Aircraft, a series of 8 characters, or null if at least one of the characters
      * of the call sign is invalid
      * @see CallSign for valid call sign characters
      */
-    private static CallSign getCallSign(RawMessage rawMessage) {
-        int idx = NB_BITS;
-        var callSignBuilder = new StringBuilder(NB_CHARACTERS);
+    private static CallSign getCallSign(long payload) {
+        long code = payload & CALL_SIGN_MASK;
+        for (int idx = NB_BITS - BITS_PER_CHAR; idx >= 0; idx -= BITS_PER_CHAR) {
+            if (CHARACTERS[Bits.extractUInt(code, idx, BITS_PER_CHAR)] == INVALID) return null;
+        }
 
-        for (int i = 0; i < NB_CHARACTERS; i++) {
-            int character = Bits.extractUInt(rawMessage.payload(), idx - BITS_PER_CHAR, BITS_PER_CHAR);
-
-            if (character >= A && character <= Z) { // A-Z
-                callSignBuilder.append((char) (character + UPPER_CASES));
-            } else if (character == SPACE) { // Space
-                callSignBuilder.append(" ");
-            } else if (character >= ZERO && character <= NINE) { // 0-9
-                callSignBuilder.append((char) character);
-            } else {
-                return null;
-            }
-            idx -= BITS_PER_CHAR;
+        int index = (int) ((code * HASH_MULTIPLIER) >>> (Long.SIZE - CACHE_BITS));
+        CachedCallSign cached = CACHE[index];
+        if (cached == null || cached.code() != code) {
+            //call signs are immutable, so a racing thread at worst replaces an entry with an equal one
+            cached = new CachedCallSign(code, decodeCallSign(code));
+            CACHE[index] = cached;
         }
-        return new CallSign(callSignBuilder.toString().trim()); // Trim to remove trailing spaces
+        return cached.callSign();
     }
-}
-
-
 
+    /**
+     * Decodes a call sign made of valid characters.
+     *
+     * @param code the 48 bit code of the call sign
+     * @return the call sign, without its leading and trailing spaces
+     */
+    private static CallSign decodeCallSign(long code) {
+        char[] characters = new char[NB_CHARACTERS];
+        for (int i = 0; i < NB_CHARACTERS; i++) {
+            characters[i] = CHARACTERS[Bits.extractUInt(code, NB_BITS - (i + 1) * BITS_PER_CHAR, BITS_PER_CHAR)];
+        }
+        return new CallSign(new String(characters).trim()); // Trim to remove trailing spaces
+    }
 
+    /**
+     * A call sign interned along with its code.
+     *
+     * @param code     the 48 bit code of the call sign
+     * @param callSign the call sign
+     */
+    private record CachedCallSign(long code, CallSign callSign) {
+    }
+}
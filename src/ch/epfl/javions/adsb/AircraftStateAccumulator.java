@@ -1,20 +1,55 @@
 package ch.epfl.javions.adsb;
 
 import ch.epfl.javions.GeoPos;
+import ch.epfl.javions.Units;
+import ch.epfl.javions.aircraft.IcaoAddress;
 
 import java.util.Objects;
 
 /**
- * Accumulates the status of a single aircraft over time.
+ * Accumulates the status of a single aircraft over time. The accumulator can be updated either with messages, or
+ * directly as a {@link MessageHandler} by {@link MessageParser#parse(RawMessage, MessageHandler)}, in which case no
+ * message is allocated.
+ * <p>
+ * Positions are decoded globally from the last two position messages of both parities. When no such pair is
+ * available, a single message is decoded locally, relative to the last position of the aircraft if it is recent
+ * enough, or else to the position of the receiver, if known.
+ * <p>
+ * Only the positions decoded globally, and the ones decoded locally relative to them, are used as references. The
+ * positions decoded relative to the receiver are displayed, but are not trusted before a global decoding confirms
+ * them: every global decoding also decodes its message relative to the receiver, and the receiver stops being used
+ * as a reference for the aircraft if both positions differ, as the aircraft is then too far from it. A position
+ * decoded relative to the last position of the aircraft is rejected if the aircraft could not have flown that far
+ * since then, as it then comes from a corrupted message.
  *
  * @author : Alexei Thornber (363088)
  * @author : Zachary Doll (356458)
  */
-public class AircraftStateAccumulator<T extends AircraftStateSetter> {
+public class AircraftStateAccumulator<T extends AircraftStateSetter> implements MessageHandler {
     private final static double TEN_SECONDS_IN_NS = 10e+9;
-    // The last two messages received by the aircraft, stored at the index corresponding to their parity.
-    private final AirbornePositionMessage[] lastMessages = new AirbornePositionMessage[2];
+    //An aircraft cannot move by half a CPR zone within that delay, so its last position remains a valid reference
+    private final static double REFERENCE_MAX_AGE_NS = 60e+9;
+    //Timestamp of a parity for which no position message was received yet
+    private final static long NO_MESSAGE = -1;
+    //Largest difference between the global and local decodings of a message for them to agree, about 40 m
+    private final static int MAX_FIX_DIFFERENCE_T32 = 1 << 12;
+    //Speed faster than any aircraft sending ADS-B messages, in meters per second, and mean radius of the Earth
+    private final static double MAX_SPEED = 500;
+    private final static double EARTH_RADIUS = 6_371_000;
+    //Distance in meters allowed on top of the one flown, covering the resolution of the positions
+    private final static double POSITION_TOLERANCE = 100;
+    // The content of the last two position messages received by the aircraft, stored at the index corresponding to
+    // their parity.
+    private final long[] lastTimeStampsNs = {NO_MESSAGE, NO_MESSAGE};
+    private final double[] lastX = new double[2];
+    private final double[] lastY = new double[2];
     private final T stateSetter;
+    private final GeoPos receiverPosition;
+    //The last position trusted as a reference, decoded globally or relative to a trusted reference
+    private GeoPos lastPosition;
+    private long lastPositionTimeStampNs = NO_MESSAGE;
+    //Whether the last global decoding disagreed with the local decoding relative to the receiver
+    private boolean receiverRejected;
 
     /**
      * Instantiates a new Aircraft state accumulator, used to determine the state of an aircraft over time.
@@ -23,26 +58,96 @@ public class AircraftStateAccumulator<T extends AircraftStateSetter> {
      * @throws NullPointerException if the state setter is null
      */
     public AircraftStateAccumulator(T stateSetter) {
+        this(stateSetter, null);
+    }
+
+    /**
+     * Instantiates a new Aircraft state accumulator, which decodes the first positions of the aircraft relative to
+     * the position of the receiver, without waiting for a message of each parity.
+     *
+     * @param stateSetter      the object used to set the state of the aircraft (cannot be null)
+     * @param receiverPosition the position of the receiver, or null if unknown. Since local decoding is only valid
+     *                         within half a CPR zone, the aircraft must be less than roughly 300 km away from it
+     * @throws NullPointerException if the state setter is null
+     */
+    public AircraftStateAccumulator(T stateSetter, GeoPos receiverPosition) {
         Objects.requireNonNull(stateSetter, "state accumulator cannot be null");
         this.stateSetter = stateSetter;
+        this.receiverPosition = receiverPosition;
     }
 
     /**
-     * Checks if two messages sent by an aircraft can be used to decode its position.
+     * Checks if the last two position messages sent by an aircraft can be used to decode its position.
      *
-     * @param current  the current message
-     * @param previous the previous message
-     * @return false if either message is null or if the time difference between the two messages is
+     * @return false if a message of either parity is missing or if the time difference between the two messages is
      * greater than 10 seconds, true otherwise
      */
-    private static boolean canBeDecoded(AirbornePositionMessage current, AirbornePositionMessage previous) {
-        if (current == null || previous == null) {
+    private boolean canBeDecoded() {
+        if (lastTimeStampsNs[0] == NO_MESSAGE || lastTimeStampsNs[1] == NO_MESSAGE) {
             return false;
         } else {
-            return (Math.abs(current.timeStampNs() - previous.timeStampNs())) <= TEN_SECONDS_IN_NS;
+            return (Math.abs(lastTimeStampsNs[0] - lastTimeStampsNs[1])) <= TEN_SECONDS_IN_NS;
         }
     }
 
+    /**
+     * Returns the trusted reference position used to decode a single position message, the last position of the
+     * aircraft if it was decoded recently enough.
+     *
+     * @param timeStampNs the timestamp of the message to decode
+     * @return the reference position, or null if there is none
+     */
+    private GeoPos trustedReference(long timeStampNs) {
+        if (lastPositionTimeStampNs != NO_MESSAGE
+                && Math.abs(timeStampNs - lastPositionTimeStampNs) <= REFERENCE_MAX_AGE_NS) {
+            return lastPosition;
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether a message decoded globally at the given position gives the same position when it is decoded
+     * relative to the receiver.
+     *
+     * @param position the position decoded globally
+     * @param x        the normalized local longitude of the message
+     * @param y        the normalized local latitude of the message
+     * @param parity   the parity of the message
+     * @return true if both positions agree, false otherwise
+     */
+    private boolean receiverAgrees(GeoPos position, double x, double y, int parity) {
+        long local = CprDecoder.decodeLocalPackedPosition(x, y, parity,
+                receiverPosition.longitudeT32(), receiverPosition.latitudeT32());
+        if (local == CprDecoder.NO_POSITION) return false;
+
+        //the int differences wrap around the antimeridian, and are widened so that their absolute value cannot
+        // overflow
+        long latitudeDifference = CprDecoder.latitudeT32(local) - position.latitudeT32();
+        long longitudeDifference = CprDecoder.longitudeT32(local) - position.longitudeT32();
+        return Math.abs(latitudeDifference) <= MAX_FIX_DIFFERENCE_T32
+                && Math.abs(longitudeDifference) <= MAX_FIX_DIFFERENCE_T32;
+    }
+
+    /**
+     * Checks whether the aircraft can have flown from the given reference to the given position in the given time.
+     *
+     * @param position  the position decoded relative to the reference
+     * @param reference the reference position
+     * @param elapsedNs the time elapsed since the aircraft was at the reference, in nanoseconds
+     * @return true if the distance between both positions can be covered at {@link #MAX_SPEED}, up to
+     * {@link #POSITION_TOLERANCE}, false otherwise
+     */
+    private static boolean isReachable(GeoPos position, GeoPos reference, long elapsedNs) {
+        //the int differences wrap around the antimeridian, and the longitudes are scaled to the circle of latitude
+        double latitudeDifference = Units.convertFrom(position.latitudeT32() - reference.latitudeT32(),
+                Units.Angle.T32);
+        double longitudeDifference = Units.convertFrom(position.longitudeT32() - reference.longitudeT32(),
+                Units.Angle.T32) * Math.cos(reference.latitude());
+        double distance = EARTH_RADIUS * Math.hypot(latitudeDifference, longitudeDifference);
+        return distance <= MAX_SPEED * Units.convertFrom(Math.abs(elapsedNs), Units.Time.NANO_SECOND)
+                + POSITION_TOLERANCE;
+    }
+
     /**
      * Gets the object used to set the state of the aircraft.
      *
@@ -60,37 +165,100 @@ public class AircraftStateAccumulator<T extends AircraftStateSetter> {
      * @see RawMessage#typeCode() for the type codes supported by this method
      */
     public void update(Message message) {
+        switch (message) {
+            case AircraftIdentificationMessage aim -> identification(aim.timeStampNs(),
+                    aim.icaoAddress(),
+                    aim.category(),
+                    aim.callSign());
+            case AirbornePositionMessage apm -> position(apm.timeStampNs(),
+                    apm.icaoAddress(),
+                    apm.altitude(),
+                    apm.parity(),
+                    apm.x(),
+                    apm.y());
+            case AirborneVelocityMessage avm -> velocity(avm.timeStampNs(),
+                    avm.icaoAddress(),
+                    avm.speed(),
+                    avm.trackOrHeading());
+            default -> {
+                throw new IllegalStateException("Unexpected value: " + message); // Should never happen
+            }
+        }
+    }
 
-        //time stamp can be set regardless of the message type.
-        stateSetter.setLastMessageTimeStampNs(message.timeStampNs());
+    /**
+     * Updates the state of the aircraft with the content of an identification message.
+     *
+     * @param timeStampNs the timestamp of the message in nanoseconds
+     * @param icaoAddress the ICAO address of the aircraft
+     * @param category    the category of the aircraft
+     * @param callSign    the call sign of the aircraft
+     */
+    @Override
+    public void identification(long timeStampNs, IcaoAddress icaoAddress, int category, CallSign callSign) {
+        stateSetter.setLastMessageTimeStampNs(timeStampNs);
+        stateSetter.setCallSign(callSign);
+        stateSetter.setCategory(category);
+    }
 
-        switch (message) {
+    /**
+     * Updates the state of the aircraft with the content of a position message, decoding its position along with the
+     * last message of the other parity if it is recent enough, or else relative to a reference position.
+     *
+     * @param timeStampNs the timestamp of the message in nanoseconds
+     * @param icaoAddress the ICAO address of the aircraft
+     * @param altitude    the altitude of the aircraft in meters
+     * @param parity      the parity of the message (0 or 1)
+     * @param x           the normalized local longitude of the aircraft
+     * @param y           the normalized local latitude of the aircraft
+     */
+    @Override
+    public void position(long timeStampNs, IcaoAddress icaoAddress, double altitude, int parity, double x, double y) {
+        stateSetter.setLastMessageTimeStampNs(timeStampNs);
+        stateSetter.setAltitude(altitude);
 
-            case AircraftIdentificationMessage aim -> {
-                stateSetter.setCallSign(aim.callSign());
-                stateSetter.setCategory(aim.category());
-            }
+        //Store current message at the index of its parity
+        lastTimeStampsNs[parity] = timeStampNs;
+        lastX[parity] = x;
+        lastY[parity] = y;
 
-            case AirbornePositionMessage apm -> {
-                stateSetter.setAltitude(apm.altitude());
-                lastMessages[apm.parity()] = apm; //Store current message in the array at the index of its parity
-
-                if (canBeDecoded(lastMessages[0], lastMessages[1])) {
-                    GeoPos pos = CprDecoder.decodePosition(lastMessages[0].x(),
-                            lastMessages[0].y(),
-                            lastMessages[1].x(),
-                            lastMessages[1].y(),
-                            apm.parity());
-                    if (pos != null) stateSetter.setPosition(pos);
-                }
-            }
-            case AirborneVelocityMessage avm -> {
-                stateSetter.setVelocity(avm.speed());
-                stateSetter.setTrackOrHeading(avm.trackOrHeading());
-            }
-            default -> {
-                throw new IllegalStateException("Unexpected value: " + message); // Should never happen
+        GeoPos pos = canBeDecoded()
+                ? CprDecoder.decodePosition(lastX[0], lastY[0], lastX[1], lastY[1], parity)
+                : null;
+        boolean trusted = pos != null;
+        if (pos != null) {
+            if (receiverPosition != null) receiverRejected = !receiverAgrees(pos, x, y, parity);
+        } else {
+            GeoPos reference = trustedReference(timeStampNs);
+            trusted = reference != null;
+            if (!trusted && !receiverRejected) reference = receiverPosition;
+            if (reference != null) pos = CprDecoder.decodeLocalPosition(x, y, parity, reference);
+            if (pos != null && trusted && !isReachable(pos, reference, timeStampNs - lastPositionTimeStampNs))
+                pos = null;
+        }
+
+        if (pos != null) {
+            stateSetter.setPosition(pos);
+            //the positions decoded relative to the receiver are not used as references
+            if (trusted) {
+                lastPosition = pos;
+                lastPositionTimeStampNs = timeStampNs;
             }
         }
     }
+
+    /**
+     * Updates the state of the aircraft with the content of a velocity message.
+     *
+     * @param timeStampNs    the timestamp of the message in nanoseconds
+     * @param icaoAddress    the ICAO address of the aircraft
+     * @param speed          the speed of the aircraft in meters per second
+     * @param trackOrHeading the direction of the aircraft in radians
+     */
+    @Override
+    public void velocity(long timeStampNs, IcaoAddress icaoAddress, double speed, double trackOrHeading) {
+        stateSetter.setLastMessageTimeStampNs(timeStampNs);
+        stateSetter.setVelocity(speed);
+        stateSetter.setTrackOrHeading(trackOrHeading);
+    }
 }
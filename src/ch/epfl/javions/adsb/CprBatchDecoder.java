@@ -0,0 +1,165 @@
+package ch.epfl.javions.adsb;
+
+import ch.epfl.javions.Preconditions;
+
+import java.io.Serial;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Decodes large batches of CPR encoded position pairs, such as whole recorded trajectories, stored in columns: the
+ * i-th pair is made of the i-th element of each input array, and its position is written at index i of the output
+ * array, packed as by {@link CprDecoder#decodePackedPosition(double, double, double, double, int)}.
+ * <p>
+ * No object is allocated per pair, and the positions are exactly the ones the scalar decoder gives. Batches can be
+ * split into chunks decoded on a fork-join pool, since every pair is decoded independently.
+ *
+ * @author : Alexei Thornber (363088)
+ * @author : Zachary Doll (356458)
+ */
+public final class CprBatchDecoder {
+    /**
+     * The default number of pairs decoded by a single task.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 14;
+
+    private CprBatchDecoder() {
+    } // Prevents instantiation
+
+    /**
+     * Decodes the given pairs in the calling thread.
+     *
+     * @param x0         the normalized local longitudes of the even messages
+     * @param y0         the normalized local latitudes of the even messages
+     * @param x1         the normalized local longitudes of the odd messages
+     * @param y1         the normalized local latitudes of the odd messages
+     * @param mostRecent the parities of the most recent messages (must all be 0 or 1)
+     * @param positions  the array in which the packed positions are written, {@link CprDecoder#NO_POSITION} being
+     *                   written for the pairs whose position cannot be determined
+     * @throws IllegalArgumentException if the arrays are not all of the same length, or if a parity is not 0 or 1,
+     *                                  in which case the positions of the pairs preceding it may have been written
+     */
+    public static void decode(double[] x0, double[] y0, double[] x1, double[] y1, int[] mostRecent,
+                              long[] positions) {
+        checkLengths(x0, y0, x1, y1, mostRecent, positions);
+        decodeRange(x0, y0, x1, y1, mostRecent, positions, 0, positions.length);
+    }
+
+    /**
+     * Decodes the given pairs on the common fork-join pool.
+     *
+     * @param x0         the normalized local longitudes of the even messages
+     * @param y0         the normalized local latitudes of the even messages
+     * @param x1         the normalized local longitudes of the odd messages
+     * @param y1         the normalized local latitudes of the odd messages
+     * @param mostRecent the parities of the most recent messages (must all be 0 or 1)
+     * @param positions  the array in which the packed positions are written
+     * @throws IllegalArgumentException if the arrays are not all of the same length, or if a parity is not 0 or 1
+     * @see #decodeInParallel(double[], double[], double[], double[], int[], long[], ForkJoinPool, int)
+     */
+    public static void decodeInParallel(double[] x0, double[] y0, double[] x1, double[] y1, int[] mostRecent,
+                                        long[] positions) {
+        decodeInParallel(x0, y0, x1, y1, mostRecent, positions, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Decodes the given pairs on the given pool, splitting them into chunks decoded by separate tasks. The positions
+     * are the same as the ones written by {@link #decode(double[], double[], double[], double[], int[], long[])}.
+     *
+     * @param x0         the normalized local longitudes of the even messages
+     * @param y0         the normalized local latitudes of the even messages
+     * @param x1         the normalized local longitudes of the odd messages
+     * @param y1         the normalized local latitudes of the odd messages
+     * @param mostRecent the parities of the most recent messages (must all be 0 or 1)
+     * @param positions  the array in which the packed positions are written
+     * @param pool       the pool on which the chunks are decoded
+     * @param chunkSize  the number of pairs decoded by a single task (must be strictly positive)
+     * @throws IllegalArgumentException if the arrays are not all of the same length, if a parity is not 0 or 1, or
+     *                                  if the chunk size is not strictly positive
+     */
+    public static void decodeInParallel(double[] x0, double[] y0, double[] x1, double[] y1, int[] mostRecent,
+                                        long[] positions, ForkJoinPool pool, int chunkSize) {
+        Preconditions.checkArgument(chunkSize > 0);
+        checkLengths(x0, y0, x1, y1, mostRecent, positions);
+        pool.invoke(new DecodeTask(x0, y0, x1, y1, mostRecent, positions, 0, positions.length, chunkSize));
+    }
+
+    /**
+     * Checks that the given arrays all hold the same number of pairs.
+     *
+     * @param x0         the normalized local longitudes of the even messages
+     * @param y0         the normalized local latitudes of the even messages
+     * @param x1         the normalized local longitudes of the odd messages
+     * @param y1         the normalized local latitudes of the odd messages
+     * @param mostRecent the parities of the most recent messages
+     * @param positions  the array in which the packed positions are written
+     * @throws IllegalArgumentException if the arrays are not all of the same length
+     */
+    private static void checkLengths(double[] x0, double[] y0, double[] x1, double[] y1, int[] mostRecent,
+                                     long[] positions) {
+        int length = positions.length;
+        Preconditions.checkArgument(x0.length == length && y0.length == length && x1.length == length
+                && y1.length == length && mostRecent.length == length);
+    }
+
+    /**
+     * Decodes the pairs of the given range of indices.
+     *
+     * @param x0         the normalized local longitudes of the even messages
+     * @param y0         the normalized local latitudes of the even messages
+     * @param x1         the normalized local longitudes of the odd messages
+     * @param y1         the normalized local latitudes of the odd messages
+     * @param mostRecent the parities of the most recent messages (must all be 0 or 1)
+     * @param positions  the array in which the packed positions are written
+     * @param from       the index of the first pair to decode
+     * @param to         the index following the last pair to decode
+     * @throws IllegalArgumentException if a parity is not 0 or 1
+     */
+    private static void decodeRange(double[] x0, double[] y0, double[] x1, double[] y1, int[] mostRecent,
+                                    long[] positions, int from, int to) {
+        for (int i = from; i < to; i++) {
+            positions[i] = CprDecoder.decodePackedPosition(x0[i], y0[i], x1[i], y1[i], mostRecent[i]);
+        }
+    }
+
+    /**
+     * Decodes a range of pairs, splitting it in halves decoded in parallel until it is no larger than a chunk.
+     */
+    private static final class DecodeTask extends RecursiveAction {
+        @Serial
+        private static final long serialVersionUID = 1L;
+        private final double[] x0;
+        private final double[] y0;
+        private final double[] x1;
+        private final double[] y1;
+        private final int[] mostRecent;
+        private final long[] positions;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+
+        private DecodeTask(double[] x0, double[] y0, double[] x1, double[] y1, int[] mostRecent, long[] positions,
+                           int from, int to, int chunkSize) {
+            this.x0 = x0;
+            this.y0 = y0;
+            this.x1 = x1;
+            this.y1 = y1;
+            this.mostRecent = mostRecent;
+            this.positions = positions;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunkSize) {
+                decodeRange(x0, y0, x1, y1, mostRecent, positions, from, to);
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new DecodeTask(x0, y0, x1, y1, mostRecent, positions, from, mid, chunkSize),
+                        new DecodeTask(x0, y0, x1, y1, mostRecent, positions, mid, to, chunkSize));
+            }
+        }
+    }
+}
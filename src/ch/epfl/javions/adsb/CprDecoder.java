@@ -4,20 +4,44 @@ import ch.epfl.javions.GeoPos;
 import ch.epfl.javions.Preconditions;
 import ch.epfl.javions.Units;
 
+import java.util.Objects;
+
 /**
  * Decodes the CPR encoded position of an aircraft given its last two messages, and the coordinates they were
- * sent from.
+ * sent from, or given a single message and a nearby reference position.
+ * <p>
+ * Positions can also be decoded as a packed long, holding the latitude in T32 in its 32 most significant bits and
+ * the longitude in T32 in its 32 least significant bits, so that no object is allocated by the decoding.
  *
  * @author : Alexei Thornber (363088)
  * @author : Zachary Doll (356458)
  */
 public final class CprDecoder {
+    /**
+     * The packed position returned when no position can be decoded. Its latitude is out of bounds, so that it never
+     * represents a valid position.
+     */
+    public final static long NO_POSITION = Long.MIN_VALUE;
     private final static double NB_EVEN_LAT_ZONES = 60.0;
     private final static double NB_ODD_LAT_ZONES = 59.0;
     private final static double DELTA_0 = 1.0 / NB_EVEN_LAT_ZONES;
     private final static double DELTA_1 = 1.0 / NB_ODD_LAT_ZONES;
     private final static int EVEN_PARITY = 0;
     private final static int ODD_PARITY = 1;
+    private final static long T32_MASK = (1L << Integer.SIZE) - 1;
+
+    //The number of even longitude zones at the equator, which decreases by one at each latitude of LATITUDE_BOUNDS.
+    private final static double MAX_LONG_ZONES = computeLongitudeZones(0);
+    //LATITUDE_BOUNDS[i] is the smallest absolute latitude in turns with less than MAX_LONG_ZONES - i even longitude
+    //zones, found by bisection over the computed number of zones, so that looking it up gives the exact same number.
+    //The last bound is the latitude from which the number of zones is not defined anymore, close to the poles.
+    private final static double[] LATITUDE_BOUNDS = new double[(int) MAX_LONG_ZONES - 1];
+
+    static {
+        for (int i = 0; i < LATITUDE_BOUNDS.length; i++) {
+            LATITUDE_BOUNDS[i] = smallestLatitudeWithLessZones(MAX_LONG_ZONES - i);
+        }
+    }
 
     private CprDecoder() {
     } // Prevent instantiation
@@ -35,84 +59,239 @@ public final class CprDecoder {
      * @throws IllegalArgumentException if the given parity of the most recent message is not 0 or 1.
      */
     public static GeoPos decodePosition(double x0, double y0, double x1, double y1, int mostRecent) {
+        return unpack(decodePackedPosition(x0, y0, x1, y1, mostRecent));
+    }
+
+    /**
+     * Gives the packed position of an aircraft given its last two messages, see
+     * {@link #decodePosition(double, double, double, double, int)}.
+     *
+     * @param x0         the normalized local longitude of an even message. (between 0 and 1)
+     * @param y0         the normalized local latitude of an even message. (between 0 and 1)
+     * @param x1         the normalized local longitude of an odd message. (between 0 and 1)
+     * @param y1         the normalized local latitude of an odd message. (between 0 and 1)
+     * @param mostRecent the parity of the most recent message (must be 0 or 1)
+     * @return the packed position of the aircraft, or {@link #NO_POSITION} if the given latitudes are invalid or if
+     * the position cannot be determined because the aircraft is switching latitudes.
+     * @throws IllegalArgumentException if the given parity of the most recent message is not 0 or 1.
+     */
+    public static long decodePackedPosition(double x0, double y0, double x1, double y1, int mostRecent) {
 
         Preconditions.checkArgument(mostRecent == EVEN_PARITY || mostRecent == ODD_PARITY);
 
-        double[] latitudes = getAnglesInTurns(y0, y1, NB_ODD_LAT_ZONES, NB_EVEN_LAT_ZONES, DELTA_0, DELTA_1);
-        if (checkValidLatitudes(latitudes[EVEN_PARITY], latitudes[ODD_PARITY])) return null;
+        double latZones = getZones(y0, y1, NB_ODD_LAT_ZONES, NB_EVEN_LAT_ZONES);
+        double lat0 = getAngleInTurns(y0, latZones, NB_EVEN_LAT_ZONES, DELTA_0);
+        double lat1 = getAngleInTurns(y1, latZones, NB_ODD_LAT_ZONES, DELTA_1);
+        if (!isValidLatitude(lat0) || !isValidLatitude(lat1)) return NO_POSITION;
+
+        double nbOfEvenLongZones = getLongitudeZones(lat0);
+        //the position cannot be determined if we are switching latitude bands, the polar one having a NaN number.
+        if (Double.compare(nbOfEvenLongZones, getLongitudeZones(lat1)) != 0) return NO_POSITION;
 
-        double[] longitudes = getLongitudes(latitudes[EVEN_PARITY], latitudes[ODD_PARITY], x0, x1);
-        //longitudes cannot not be determined because the aircraft is switching latitudes.
-        if (longitudes == null) return null;
+        //near the poles, both splittings have a single longitude zone, so that the longitudes are the local ones.
+        if (Double.isNaN(nbOfEvenLongZones)) {
+            return mostRecent == EVEN_PARITY
+                    ? pack(getAngleInTurns(x0, 0, 1, 1), lat0)
+                    : pack(getAngleInTurns(x1, 0, 1, 1), lat1);
+        }
+        double nbOfOddLongZones = nbOfEvenLongZones - 1;
 
         //returns the position using even angles if most recent parity is even, or odd angles if the parity is odd.
-        return new GeoPos((int) Math.rint(convertTurnToT32(longitudes[mostRecent])),
-                (int) Math.rint(convertTurnToT32(latitudes[mostRecent])));
+        double longZones = getZones(x0, x1, nbOfOddLongZones, nbOfEvenLongZones);
+        return mostRecent == EVEN_PARITY
+                ? pack(getAngleInTurns(x0, longZones, nbOfEvenLongZones, 1.0 / nbOfEvenLongZones), lat0)
+                : pack(getAngleInTurns(x1, longZones, nbOfOddLongZones, 1.0 / nbOfOddLongZones), lat1);
+    }
+
+    /**
+     * Gives the position of an aircraft given a single message and a reference position, which must lie within half a
+     * zone of the actual position of the aircraft (roughly 300 km), such as its last known position or the position of
+     * the receiver.
+     *
+     * @param x         the normalized local longitude of the message. (between 0 and 1)
+     * @param y         the normalized local latitude of the message. (between 0 and 1)
+     * @param parity    the parity of the message (must be 0 or 1)
+     * @param reference the reference position (cannot be null)
+     * @return the position of the aircraft closest to the reference, or null if its latitude is invalid.
+     * @throws IllegalArgumentException if the given parity is not 0 or 1.
+     * @throws NullPointerException     if the reference position is null.
+     */
+    public static GeoPos decodeLocalPosition(double x, double y, int parity, GeoPos reference) {
+        Objects.requireNonNull(reference, "reference position cannot be null");
+        return unpack(decodeLocalPackedPosition(x, y, parity, reference.longitudeT32(), reference.latitudeT32()));
+    }
+
+    /**
+     * Gives the packed position of an aircraft given a single message and a reference position, see
+     * {@link #decodeLocalPosition(double, double, int, GeoPos)}.
+     *
+     * @param x                     the normalized local longitude of the message. (between 0 and 1)
+     * @param y                     the normalized local latitude of the message. (between 0 and 1)
+     * @param parity                the parity of the message (must be 0 or 1)
+     * @param referenceLongitudeT32 the longitude of the reference position in T32
+     * @param referenceLatitudeT32  the latitude of the reference position in T32
+     * @return the packed position of the aircraft closest to the reference, or {@link #NO_POSITION} if its latitude
+     * is invalid.
+     * @throws IllegalArgumentException if the given parity is not 0 or 1.
+     */
+    public static long decodeLocalPackedPosition(double x, double y, int parity, int referenceLongitudeT32,
+                                                 int referenceLatitudeT32) {
+
+        Preconditions.checkArgument(parity == EVEN_PARITY || parity == ODD_PARITY);
+
+        double latZoneWidth = parity == EVEN_PARITY ? DELTA_0 : DELTA_1;
+        double latitude = getLocalAngleInTurns(y, convertT32ToTurn(referenceLatitudeT32), latZoneWidth);
+        if (!isValidLatitude(latitude)) return NO_POSITION;
+
+        //the odd splitting has one zone less than the even one, and both have a single zone near the poles.
+        double nbOfLongZones = getLongitudeZones(latitude);
+        nbOfLongZones = Double.isNaN(nbOfLongZones) ? 1 : Math.max(nbOfLongZones - parity, 1);
+        double longitude = getLocalAngleInTurns(x, convertT32ToTurn(referenceLongitudeT32), 1.0 / nbOfLongZones);
+
+        return pack(longitude, latitude);
+    }
+
+    /**
+     * Gives the longitude in T32 of a packed position.
+     *
+     * @param packedPosition the packed position (cannot be {@link #NO_POSITION})
+     * @return the longitude of the position in T32
+     */
+    public static int longitudeT32(long packedPosition) {
+        return (int) packedPosition;
+    }
+
+    /**
+     * Gives the latitude in T32 of a packed position.
+     *
+     * @param packedPosition the packed position (cannot be {@link #NO_POSITION})
+     * @return the latitude of the position in T32
+     */
+    public static int latitudeT32(long packedPosition) {
+        return (int) (packedPosition >>> Integer.SIZE);
     }
 
     /**
-     * Gives the angles (latitudes or longitudes) in turns of both parities at time of sending.
+     * Packs a position given in turns, rounding its angles to the nearest T32 value.
+     *
+     * @param longitudeTURN the longitude in turns
+     * @param latitudeTURN  the latitude in turns
+     * @return the packed position
+     */
+    private static long pack(double longitudeTURN, double latitudeTURN) {
+        long longitudeT32 = (int) Math.rint(convertTurnToT32(longitudeTURN));
+        long latitudeT32 = (int) Math.rint(convertTurnToT32(latitudeTURN));
+        return (latitudeT32 << Integer.SIZE) | (longitudeT32 & T32_MASK);
+    }
+
+    /**
+     * Unpacks a position.
+     *
+     * @param packedPosition the packed position
+     * @return the position, or null if it is {@link #NO_POSITION}
+     * @throws IllegalArgumentException if the latitude of the position is invalid
+     */
+    private static GeoPos unpack(long packedPosition) {
+        if (packedPosition == NO_POSITION) return null;
+        return new GeoPos(longitudeT32(packedPosition), latitudeT32(packedPosition));
+    }
+
+    /**
+     * Gives the number of zones separating the angles (latitudes or longitudes) of both parities.
      *
      * @param coord0 the normalized local coordinates of an even message. (y0 for latitude, x0 for longitude)
      * @param coord1 the normalized local coordinates of an odd message. (y1 for latitude, x1 for longitude)
      * @param z1     the number of (latitude or longitude) zones in the odd splitting.
      * @param z0     the number of (latitude or longitude) zones in the even splitting.
-     * @param width0 the width of a zone in the even splitting in turns.
-     * @param width1 the width of a zone in the odd splitting in turns.
-     * @return a double array of size two, containing the angles in turns stored at their respective parities.
-     */
-    private static double[] getAnglesInTurns(double coord0,
-                                             double coord1,
-                                             double z1,
-                                             double z0,
-                                             double width0,
-                                             double width1) {
-
-        double zones = Math.rint((coord0 * z1) - (coord1 * z0));
-        var nbOfEvenZones = zones;
-        var nbOfOddZones = zones;
-
-        if (zones < 0) {
-            nbOfEvenZones = zones + z0;
-            nbOfOddZones = zones + z1;
-        }
-        var angle0TURN = width0 * (nbOfEvenZones + coord0);
-        var angle1TURN = width1 * (nbOfOddZones + coord1);
+     * @return the number of zones, which may be negative.
+     */
+    private static double getZones(double coord0, double coord1, double z1, double z0) {
+        return Math.rint((coord0 * z1) - (coord1 * z0));
+    }
+
+    /**
+     * Gives the angle (latitude or longitude) in turns of a parity at time of sending.
+     *
+     * @param coord     the normalized local coordinates of the message. (y for latitude, x for longitude)
+     * @param zones     the number of zones separating the angles of both parities, see {@link #getZones}.
+     * @param nbOfZones the number of (latitude or longitude) zones in the splitting of the parity.
+     * @param width     the width of a zone in the splitting of the parity in turns.
+     * @return the angle in turns.
+     */
+    private static double getAngleInTurns(double coord, double zones, double nbOfZones, double width) {
+        double angleTURN = width * ((zones < 0 ? zones + nbOfZones : zones) + coord);
 
         //Recentering the angle that are greater than 0.5 by subtracting 1.
-        return new double[]{angle0TURN >= 0.5 ? angle0TURN - 1 : angle0TURN,
-                angle1TURN >= 0.5 ? angle1TURN - 1 : angle1TURN};
+        return angleTURN >= 0.5 ? angleTURN - 1 : angleTURN;
     }
 
     /**
-     * Gives the longitudes in turns of both parities at time of sending.
+     * Gives the angle (latitude or longitude) in turns of a single message, choosing the zone that brings it closest
+     * to the given reference angle.
      *
-     * @param lat0 the latitude of the even parity message in turns.
-     * @param lat1 the latitude of the odd parity message in turns.
-     * @param x0   The normalized local longitude of an even message. (between 0 and 1)
-     * @param x1   The normalized local longitude of an odd message. (between 0 and 1)
-     * @return a double array of size two containing the two longitudes in turns, stored at their respective parities.
+     * @param coord     the normalized local coordinate of the message. (y for latitude, x for longitude)
+     * @param reference the reference angle in turns.
+     * @param width     the width of a zone in turns.
+     * @return the angle in turns, recentered between -0.5 and 0.5.
      */
-    private static double[] getLongitudes(double lat0, double lat1, double x0, double x1) {
-        double A = calculateA(lat0);
-        double B = calculateA(lat1);
+    private static double getLocalAngleInTurns(double coord, double reference, double width) {
+        double referenceZone = Math.floor(reference / width);
+        double offsetInZone = reference / width - referenceZone;
+        double angleTURN = width * (referenceZone + Math.floor(0.5 + offsetInZone - coord) + coord);
 
-        var nbOfEvenLongZones = getLongitudeZones(A);
-        var nbOfLongCheck = getLongitudeZones(B); //using B to check that we are not switching latitude bands.
-        var nbOfOddLongZones = nbOfEvenLongZones - 1;
+        //Recentering the angle around 0, as the reference may lie on the other side of the antimeridian.
+        if (angleTURN >= 0.5) return angleTURN - 1;
+        return angleTURN < -0.5 ? angleTURN + 1 : angleTURN;
+    }
+
+    /**
+     * Gives the number of even longitude zones at the given latitude, by a binary search in {@link #LATITUDE_BOUNDS}.
+     *
+     * @param latitude the latitude in turns.
+     * @return the number of even longitude zones, or NaN if the latitude is too close to the poles, exactly as
+     * {@link #computeLongitudeZones(double)} for any latitude between -90 and 90 degrees.
+     */
+    static double getLongitudeZones(double latitude) {
+        double absLatitude = Math.abs(latitude);
+        int low = 0;
+        int high = LATITUDE_BOUNDS.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            //a NaN latitude is beyond all bounds, so that its number of zones is NaN as well.
+            if (!(absLatitude < LATITUDE_BOUNDS[mid])) low = mid + 1;
+            else high = mid;
+        }
+        return low == LATITUDE_BOUNDS.length ? Double.NaN : MAX_LONG_ZONES - low;
+    }
 
-        //we define the number of zones of both longitude zones to be 1 when the aircraft nears poles.
-        //TODO : change nbOfOddLongZones to 1 or B (was 1)
-        if (Double.isNaN(A)) {
-            nbOfEvenLongZones = 1;
-            nbOfOddLongZones = B;
+    /**
+     * Finds by bisection the smallest positive latitude with less than the given number of even longitude zones,
+     * relying on the number of zones decreasing with the latitude.
+     *
+     * @param nbOfZones the number of even longitude zones.
+     * @return the smallest latitude in turns with less zones, or with an undefined number of zones.
+     */
+    private static double smallestLatitudeWithLessZones(double nbOfZones) {
+        //the bits of positive doubles are ordered as the doubles they represent
+        long low = Double.doubleToRawLongBits(0);
+        long high = Double.doubleToRawLongBits(0.25);
+        while (high - low > 1) {
+            long mid = (low + high) >>> 1;
+            if (computeLongitudeZones(Double.longBitsToDouble(mid)) >= nbOfZones) low = mid;
+            else high = mid;
         }
-        //return null if we are switching latitude bands.
-        else if (nbOfEvenLongZones != nbOfLongCheck) return null;
+        return Double.longBitsToDouble(high);
+    }
 
-        var evenLongZoneWidth = 1.0 / nbOfEvenLongZones;
-        var oddLongZoneWidth = 1.0 / nbOfOddLongZones;
-        return getAnglesInTurns(x0, x1, nbOfOddLongZones, nbOfEvenLongZones, evenLongZoneWidth, oddLongZoneWidth);
+    /**
+     * Computes the number of even longitude zones at the given latitude. Only used to build {@link #LATITUDE_BOUNDS},
+     * and as the reference of the lookup in tests.
+     *
+     * @param latitude the latitude in turns.
+     * @return the number of even longitude zones, or NaN if the latitude is too close to the poles.
+     */
+    static double computeLongitudeZones(double latitude) {
+        return Math.floor((Units.Angle.TURN / calculateA(latitude)));
     }
 
     private static double calculateA(double latitude) {
@@ -124,25 +303,13 @@ public final class CprDecoder {
     }
 
     /**
-     * Calculates the quotient of 2PI divided by the given double, and rounds down to the nearest integer.
-     *
-     * @param A the double to divide 2PI by.
-     * @return the input divided by 2PI, rounded down to the nearest integer.
-     */
-    private static double getLongitudeZones(double A) {
-        return Math.floor((Units.Angle.TURN / A));
-    }
-
-    /**
-     * Checks the validity of the given latitudes.
+     * Checks the validity of the given latitude.
      *
-     * @param lat0Turn the latitude of the even parity message in turns.
-     * @param lat1Turn the latitude of the odd parity message in turns.
-     * @return true if the latitudes are not between -90 and 90 degrees, false otherwise.
+     * @param latTurn the latitude in turns.
+     * @return true if the latitude is between -90 and 90 degrees, false otherwise.
      */
-    private static boolean checkValidLatitudes(double lat0Turn, double lat1Turn) {
-        return !(GeoPos.isValidLatitudeT32((int) convertTurnToT32(lat0Turn))
-                && GeoPos.isValidLatitudeT32((int) convertTurnToT32(lat1Turn)));
+    private static boolean isValidLatitude(double latTurn) {
+        return GeoPos.isValidLatitudeT32((int) convertTurnToT32(latTurn));
     }
 
     /**
@@ -155,8 +322,13 @@ public final class CprDecoder {
         return Units.convert(angleTURN, Units.Angle.TURN, Units.Angle.T32);
     }
 
-
+    /**
+     * Converts an angle from T32 to turn.
+     *
+     * @param angleT32 angle in T32 that we wish to convert to turn.
+     * @return the angle converted from T32 to turn.
+     */
+    private static double convertT32ToTurn(int angleT32) {
+        return Units.convert(angleT32, Units.Angle.T32, Units.Angle.TURN);
+    }
 }
-
-
-
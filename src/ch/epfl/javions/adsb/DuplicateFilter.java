@@ -0,0 +1,143 @@
+package ch.epfl.javions.adsb;
+
+import ch.epfl.javions.Preconditions;
+
+import java.util.Arrays;
+
+/**
+ * Detects the raw messages whose 112 bits are identical to the ones of a message seen shortly before, such as the
+ * repeated squitters of an aircraft, or a frame found twice by overlapping demodulation windows, so that they can be
+ * dropped before being parsed.
+ * <p>
+ * The messages seen during the last time window are kept in a compact open-addressing hash table, made of parallel
+ * arrays holding the content and timestamp of each entry. A message is looked up among a few consecutive slots
+ * starting at its hash, and entries older than the time window are simply overwritten, so that nothing is ever
+ * removed explicitly. When all the slots of a message hold recent messages, the oldest of them is replaced, so that a
+ * table that is too small only lets a few duplicates through. A message is a duplicate of an earlier one only if it
+ * was received less than a window after it, even if identical messages were received in between, so that a message
+ * sent over and over still gets through once per window.
+ * <p>
+ * Filters are not thread-safe, and are meant to be used by the thread receiving the messages.
+ *
+ * @author : Alexei Thornber (363088)
+ * @author : Zachary Doll (356458)
+ */
+public final class DuplicateFilter {
+    /**
+     * The default time window of a filter, in nanoseconds.
+     */
+    public static final long DEFAULT_WINDOW_NS = 1_000_000_000L;
+    /**
+     * The default number of slots of a filter.
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 12;
+    //Number of consecutive slots in which a message is looked up
+    private static final int PROBES = 8;
+    //Timestamp of a slot that never held a message
+    private static final long EMPTY = -1;
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private final long windowNs;
+    private final int mask;
+    private final int hashShift;
+    private final long[] highs;
+    private final long[] lows;
+    private final long[] timeStampsNs;
+    private long suppressedMessages;
+
+    /**
+     * Instantiates a new filter with the default time window and capacity.
+     *
+     * @see #DuplicateFilter(long, int)
+     */
+    public DuplicateFilter() {
+        this(DEFAULT_WINDOW_NS, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Instantiates a new filter.
+     *
+     * @param windowNs the time window in nanoseconds during which identical messages are duplicates (must be
+     *                 positive)
+     * @param capacity the number of slots of the table (must be a power of two, at least {@value #PROBES}), which
+     *                 should be well above the number of distinct messages received during a window
+     * @throws IllegalArgumentException if the time window is negative, or if the capacity is invalid
+     */
+    public DuplicateFilter(long windowNs, int capacity) {
+        Preconditions.checkArgument(windowNs >= 0);
+        Preconditions.checkArgument(capacity >= PROBES && Integer.bitCount(capacity) == 1);
+
+        this.windowNs = windowNs;
+        this.mask = capacity - 1;
+        this.hashShift = Long.SIZE - Integer.numberOfTrailingZeros(capacity);
+        this.highs = new long[capacity];
+        this.lows = new long[capacity];
+        this.timeStampsNs = new long[capacity];
+        Arrays.fill(timeStampsNs, EMPTY);
+    }
+
+    /**
+     * Checks whether the given message is a duplicate of a message seen less than a time window before it, and
+     * remembers it otherwise. Messages must be given in increasing order of timestamp.
+     *
+     * @param message the message
+     * @return true if the message is a duplicate, and should be dropped, false otherwise
+     * @see #isDuplicate(long, long, long)
+     */
+    public boolean isDuplicate(RawMessage message) {
+        return isDuplicate(message.timeStampNs(), message.high(), message.low());
+    }
+
+    /**
+     * Checks whether the given message is a duplicate of a message seen less than a time window before it, and
+     * remembers it otherwise. Messages must be given in increasing order of timestamp.
+     *
+     * @param timeStampNs the timestamp of the message in nanoseconds
+     * @param high        the first 8 bytes of the message, packed as by {@link RawMessage#high()}
+     * @param low         the last 6 bytes of the message, packed as by {@link RawMessage#low()}
+     * @return true if the message is a duplicate, and should be dropped, false otherwise
+     */
+    public boolean isDuplicate(long timeStampNs, long high, long low) {
+        int home = (int) (((high ^ Long.rotateLeft(low, Integer.SIZE)) * HASH_MULTIPLIER) >>> hashShift);
+        int replaced = home;
+
+        for (int i = 0; i < PROBES; i++) {
+            int slot = (home + i) & mask;
+            long slotTimeStampNs = timeStampsNs[slot];
+            if (!isRecent(slotTimeStampNs, timeStampNs)) {
+                //the first stale slot is reused, but the following ones may still hold the message
+                if (isRecent(timeStampsNs[replaced], timeStampNs)) replaced = slot;
+            } else if (highs[slot] == high && lows[slot] == low) {
+                suppressedMessages++;
+                return true;
+            } else if (isRecent(timeStampsNs[replaced], timeStampNs) && slotTimeStampNs < timeStampsNs[replaced]) {
+                replaced = slot;
+            }
+        }
+
+        highs[replaced] = high;
+        lows[replaced] = low;
+        timeStampsNs[replaced] = timeStampNs;
+        return false;
+    }
+
+    /**
+     * Checks whether a slot holds a message received less than a time window before the given time.
+     *
+     * @param slotTimeStampNs the timestamp of the message held by the slot, or {@link #EMPTY}
+     * @param timeStampNs     the current time in nanoseconds
+     * @return true if the slot holds a recent message, false if it is empty or stale
+     */
+    private boolean isRecent(long slotTimeStampNs, long timeStampNs) {
+        return slotTimeStampNs != EMPTY && timeStampNs - slotTimeStampNs < windowNs;
+    }
+
+    /**
+     * Returns the number of messages found to be duplicates so far.
+     *
+     * @return the number of suppressed messages
+     */
+    public long suppressedMessages() {
+        return suppressedMessages;
+    }
+}
@@ -0,0 +1,125 @@
+package ch.epfl.javions.adsb;
+
+import ch.epfl.javions.Crc24;
+import ch.epfl.javions.Preconditions;
+
+import java.util.Arrays;
+
+/**
+ * Repairs the ADS-B messages whose CRC is not 0 because of one or two flipped bits.
+ * <p>
+ * Since the CRC is linear, the CRC of a corrupted message, called its syndrome, is the CRC of the error pattern that
+ * was xored with the valid message. The syndromes of all the patterns of one or two bits are computed once, and
+ * sorted along with the patterns, so that a corrupted message is repaired by a binary search. The bits of the DF
+ * attribute are never corrected, as flipping them would turn the message into another kind of message. Syndromes
+ * shared by several patterns are left out, since the pattern that corrupted the message cannot be known.
+ *
+ * @author : Alexei Thornber (363088)
+ * @author : Zachary Doll (356458)
+ */
+public final class ErrorCorrector {
+    /**
+     * The largest number of bits that can be corrected in a message.
+     */
+    public static final int MAX_CORRECTED_BITS = 2;
+    private static final int MESSAGE_BITS = RawMessage.LENGTH * Byte.SIZE;
+    //The bits of the DF attribute, which are never corrected
+    private static final int DF_BITS = 5;
+    //An error pattern is packed as: number of bits << 16 | second bit << 8 | first bit
+    private static final int BIT_MASK = 0xFF;
+    private static final int SECOND_BIT_START = 8;
+    private static final int BIT_COUNT_START = 16;
+    private static final int[] SYNDROMES;
+    private static final int[] PATTERNS;
+
+    static {
+        var crc = new Crc24(Crc24.GENERATOR);
+        int[] bitSyndromes = new int[MESSAGE_BITS];
+        for (int i = DF_BITS; i < MESSAGE_BITS; i++) {
+            bitSyndromes[i] = i < Long.SIZE
+                    ? crc.messageCrc(1L << (Long.SIZE - 1 - i), 0)
+                    : crc.messageCrc(0, 1L << (MESSAGE_BITS - 1 - i));
+        }
+
+        //each entry packs a syndrome in its 32 msb and its error pattern in its 32 lsb, to be sorted by syndrome
+        int correctableBits = MESSAGE_BITS - DF_BITS;
+        long[] entries = new long[correctableBits + correctableBits * (correctableBits - 1) / 2];
+        int count = 0;
+        for (int i = DF_BITS; i < MESSAGE_BITS; i++) {
+            entries[count++] = entry(bitSyndromes[i], 1, i, 0);
+            for (int j = i + 1; j < MESSAGE_BITS; j++) {
+                entries[count++] = entry(bitSyndromes[i] ^ bitSyndromes[j], 2, i, j);
+            }
+        }
+        Arrays.sort(entries);
+
+        int[] syndromes = new int[count];
+        int[] patterns = new int[count];
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            int syndrome = (int) (entries[i] >>> Integer.SIZE);
+            boolean shared = (i > 0 && (int) (entries[i - 1] >>> Integer.SIZE) == syndrome)
+                    || (i + 1 < count && (int) (entries[i + 1] >>> Integer.SIZE) == syndrome);
+            if (!shared) {
+                syndromes[unique] = syndrome;
+                patterns[unique++] = (int) entries[i];
+            }
+        }
+        SYNDROMES = Arrays.copyOf(syndromes, unique);
+        PATTERNS = Arrays.copyOf(patterns, unique);
+    }
+
+    private ErrorCorrector() {
+    } // Prevents instantiation
+
+    /**
+     * Packs a syndrome and its error pattern in a long.
+     *
+     * @param syndrome the syndrome of the error pattern
+     * @param bitCount the number of flipped bits
+     * @param first    the index of the first flipped bit
+     * @param second   the index of the second flipped bit, or 0 if only one bit is flipped
+     * @return the packed syndrome and error pattern
+     */
+    private static long entry(int syndrome, int bitCount, int first, int second) {
+        int pattern = (bitCount << BIT_COUNT_START) | (second << SECOND_BIT_START) | first;
+        return ((long) syndrome << Integer.SIZE) | pattern;
+    }
+
+    /**
+     * Repairs in place the given ADS-B message, given its syndrome.
+     *
+     * @param message          the 14 bytes of the message, modified only if it can be repaired
+     * @param syndrome         the CRC of the message
+     * @param maxCorrectedBits the largest number of bits that can be corrected (between 0 and
+     *                         {@link #MAX_CORRECTED_BITS})
+     * @return the number of corrected bits, or -1 if the message cannot be repaired
+     * @throws IllegalArgumentException if the largest number of bits to correct is invalid
+     */
+    public static int correct(byte[] message, int syndrome, int maxCorrectedBits) {
+        Preconditions.checkArgument(0 <= maxCorrectedBits && maxCorrectedBits <= MAX_CORRECTED_BITS);
+        if (syndrome == 0) return 0;
+        if (maxCorrectedBits == 0) return -1;
+
+        int index = Arrays.binarySearch(SYNDROMES, syndrome);
+        if (index < 0) return -1;
+
+        int pattern = PATTERNS[index];
+        int bitCount = pattern >>> BIT_COUNT_START;
+        if (bitCount > maxCorrectedBits) return -1;
+
+        flip(message, pattern & BIT_MASK);
+        if (bitCount == 2) flip(message, (pattern >>> SECOND_BIT_START) & BIT_MASK);
+        return bitCount;
+    }
+
+    /**
+     * Flips the given bit of a message.
+     *
+     * @param message the bytes of the message
+     * @param bit     the index of the bit to flip, 0 being the most significant bit of the first byte
+     */
+    private static void flip(byte[] message, int bit) {
+        message[bit / Byte.SIZE] ^= (byte) (1 << (Byte.SIZE - 1 - bit % Byte.SIZE));
+    }
+}
@@ -0,0 +1,48 @@
+package ch.epfl.javions.adsb;
+
+import ch.epfl.javions.aircraft.IcaoAddress;
+
+/**
+ * Receives the content of the messages decoded by {@link MessageParser#parse(RawMessage, MessageHandler)}, as
+ * primitive values, so that messages can be consumed without allocating a {@link Message} for each of them.
+ *
+ * @author : Alexei Thornber (363088)
+ * @author : Zachary Doll (356458)
+ */
+public interface MessageHandler {
+
+    /**
+     * Receives the content of an identification message.
+     *
+     * @param timeStampNs the timestamp of the message in nanoseconds
+     * @param icaoAddress the ICAO address of the aircraft
+     * @param category    the category of the aircraft
+     * @param callSign    the call sign of the aircraft
+     * @see AircraftIdentificationMessage
+     */
+    void identification(long timeStampNs, IcaoAddress icaoAddress, int category, CallSign callSign);
+
+    /**
+     * Receives the content of a position message.
+     *
+     * @param timeStampNs the timestamp of the message in nanoseconds
+     * @param icaoAddress the ICAO address of the aircraft
+     * @param altitude    the altitude of the aircraft in meters
+     * @param parity      the parity of the message (0 or 1)
+     * @param x           the normalized local longitude of the aircraft, between 0 and 1 (excluded)
+     * @param y           the normalized local latitude of the aircraft, between 0 and 1 (excluded)
+     * @see AirbornePositionMessage
+     */
+    void position(long timeStampNs, IcaoAddress icaoAddress, double altitude, int parity, double x, double y);
+
+    /**
+     * Receives the content of a velocity message.
+     *
+     * @param timeStampNs    the timestamp of the message in nanoseconds
+     * @param icaoAddress    the ICAO address of the aircraft
+     * @param speed          the speed of the aircraft in meters per second
+     * @param trackOrHeading the direction of the aircraft in radians
+     * @see AirborneVelocityMessage
+     */
+    void velocity(long timeStampNs, IcaoAddress icaoAddress, double speed, double trackOrHeading);
+}
@@ -40,4 +40,28 @@ public class MessageParser {
             return null;
         }
     }
+
+    /**
+     * Parses a raw message, and hands its content to the given handler without building a {@link Message}.
+     *
+     * @param rawMessage the raw message to parse
+     * @param handler    the handler receiving the content of the message, through the method corresponding to its
+     *                   type code
+     * @return true if the message was handed to the handler, false if it is not supported or not valid, in which case
+     * {@link #parse(RawMessage)} would return null
+     * @see RawMessage#typeCode() for the type codes supported by this method and the messages they correspond to.
+     */
+    public static boolean parse(RawMessage rawMessage, MessageHandler handler) {
+        int typeCode = rawMessage.typeCode();
+
+        if ((typeCode >= APM_START1 && typeCode <= APM_END1) || (typeCode >= APM_START2 && typeCode <= APM_END2)) {
+            return AirbornePositionMessage.parse(rawMessage, handler);
+        } else if (typeCode >= AIM_START && typeCode <= AIM_END) {
+            return AircraftIdentificationMessage.parse(rawMessage, handler);
+        } else if (typeCode == AVM_TC) {
+            return AirborneVelocityMessage.parse(rawMessage, handler);
+        } else {
+            return false;
+        }
+    }
 }
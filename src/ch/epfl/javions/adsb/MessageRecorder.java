@@ -0,0 +1,38 @@
+package ch.epfl.javions.adsb;
+
+import ch.epfl.javions.aircraft.IcaoAddress;
+
+/**
+ * A message handler keeping the last message it received as a {@link Message}, used to build the messages of the
+ * record API from the decoders of the handler API.
+ *
+ * @author : Alexei Thornber (363088)
+ * @author : Zachary Doll (356458)
+ */
+final class MessageRecorder implements MessageHandler {
+    private Message message;
+
+    /**
+     * Returns the last message received.
+     *
+     * @return the last message received, or null if none was received
+     */
+    Message message() {
+        return message;
+    }
+
+    @Override
+    public void identification(long timeStampNs, IcaoAddress icaoAddress, int category, CallSign callSign) {
+        message = new AircraftIdentificationMessage(timeStampNs, icaoAddress, category, callSign);
+    }
+
+    @Override
+    public void position(long timeStampNs, IcaoAddress icaoAddress, double altitude, int parity, double x, double y) {
+        message = new AirbornePositionMessage(timeStampNs, icaoAddress, altitude, parity, x, y);
+    }
+
+    @Override
+    public void velocity(long timeStampNs, IcaoAddress icaoAddress, double speed, double trackOrHeading) {
+        message = new AirborneVelocityMessage(timeStampNs, icaoAddress, speed, trackOrHeading);
+    }
+}
@@ -9,24 +9,34 @@ import ch.epfl.javions.aircraft.IcaoAddress;
 /**
  * Represents a raw ADS-B message transmitted by an aircraft, containing information about the position, velocity
  * or identification of the aircraft, depending on its type code.
+ * <p>
+ * The 14 bytes of the message are packed in two longs, in big-endian order: the first 8 bytes form {@code high},
+ * and the last 6 bytes form the 48 least significant bits of {@code low}, so that its attributes are extracted with
+ * a few shifts.
+ * <p>
+ * As for any record, two raw messages are equal if all their components are, the number of corrected bits included:
+ * a message received intact is thus not equal to the same message repaired by the {@link ErrorCorrector}, even if
+ * their timestamps and bytes are equal.
  *
  * @author : Alexei Thornber (363088)
  * @author : Zachary Doll (356458)
  */
-public record RawMessage(long timeStampNs, ByteString bytes) {
+public record RawMessage(long timeStampNs, long high, long low, int correctedBits) {
     public final static int LENGTH = 14;
     private final static int TYPE_CODE_SIZE = 5;
     private final static int TYPE_CODE_START = 51;
-    private final static int TYPE_CODE_BYTE_START = 3;
-    private final static int TYPE_CODE_BYTE_IDX = 4;
 
-    private static final int PAYLOAD_END_IDX = 11;
-    private static final int ICAO_END = 8;
-    private static final int ICAO_CHAR_LENGTH = 6;
+    //Number of bytes packed in the high long, and number of bits of the low long holding the last bytes
+    private static final int HIGH_BYTES = Long.BYTES;
+    private static final int LOW_BITS = (LENGTH - HIGH_BYTES) * Byte.SIZE;
+    //The payload is made of the 4 last bytes of the high long, followed by the 3 first bytes of the low long
+    private static final long PAYLOAD_HIGH_MASK = (1L << Integer.SIZE) - 1;
+    private static final int PAYLOAD_LOW_BITS = 3 * Byte.SIZE;
+    private static final int ICAO_START = Integer.SIZE;
+    private static final int ICAO_SIZE = 24;
 
     private final static int DF_SIZE = 5;
     private final static int DF_START = 3;
-    private final static int DF_BYTE_IDX = 0;
     private final static int ADSB_DF = 17;
 
     private static final Crc24 CRC = new Crc24(Crc24.GENERATOR);
@@ -34,13 +44,45 @@ public record RawMessage(long timeStampNs, ByteString bytes) {
     /**
      * Instantiates a new Raw message containing the information transmitted by an aircraft.
      *
+     * @param timeStampNs   the timestamp of the raw message in nanoseconds (must be positive)
+     * @param high          the first 8 bytes of the message
+     * @param low           the last 6 bytes of the message, in its 48 least significant bits (its 16 most
+     *                      significant bits must be 0)
+     * @param correctedBits the number of bits of the message that were corrected (between 0 and
+     *                      {@link ErrorCorrector#MAX_CORRECTED_BITS})
+     * @throws IllegalArgumentException if the timestamps is negative, if the low long has bits outside of the
+     *                                  message, or if the number of corrected bits is invalid
+     */
+    public RawMessage {
+        Preconditions.checkArgument(timeStampNs >= 0 && (low >>> LOW_BITS) == 0);
+        Preconditions.checkArgument(0 <= correctedBits && correctedBits <= ErrorCorrector.MAX_CORRECTED_BITS);
+    }
+
+    /**
+     * Instantiates a new Raw message containing the information transmitted by an aircraft.
+     *
+     * @param timeStampNs   the timestamp of the raw message in nanoseconds (must be positive)
+     * @param bytes         the ADS-B message in an Array of bytes (must be of length 14)
+     * @param correctedBits the number of bits of the message that were corrected (between 0 and
+     *                      {@link ErrorCorrector#MAX_CORRECTED_BITS})
+     * @throws IllegalArgumentException if the timestamps is negative, if the length of the Array of bytes
+     *                                  is not equal to the length of an ADS-B message, or if the number of corrected
+     *                                  bits is invalid
+     */
+    public RawMessage(long timeStampNs, ByteString bytes, int correctedBits) {
+        this(timeStampNs, packedHigh(bytes), packedLow(bytes), correctedBits);
+    }
+
+    /**
+     * Instantiates a new Raw message received without errors.
+     *
      * @param timeStampNs the timestamp of the raw message in nanoseconds (must be positive)
      * @param bytes       the ADS-B message in an Array of bytes (must be of length 14)
      * @throws IllegalArgumentException if the timestamps is negative, or if the length of the Array of bytes
      *                                  is not equal to the length of an ADS-B message
      */
-    public RawMessage {
-        Preconditions.checkArgument(timeStampNs >= 0 && bytes.size() == LENGTH);
+    public RawMessage(long timeStampNs, ByteString bytes) {
+        this(timeStampNs, bytes, 0);
     }
 
     /**
@@ -50,7 +92,89 @@ public record RawMessage(long timeStampNs, ByteString bytes) {
      * corrupted, returns null otherwise
      */
     public static RawMessage of(long timeStampNs, byte[] bytes) {
-        return CRC.crc(bytes) == 0 ? new RawMessage(timeStampNs, new ByteString(bytes)) : null;
+        return of(timeStampNs, bytes, 0);
+    }
+
+    /**
+     * Returns the raw message from provided data, repairing it if its CRC shows that at most the given number of its
+     * bits were flipped (see {@link ErrorCorrector}). The given array is never modified.
+     *
+     * @param timeStampNs      the timestamp of the message in nanoseconds
+     * @param bytes            the (possible valid) ADS-B message in an array of bytes
+     * @param maxCorrectedBits the largest number of bits to correct (between 0 and
+     *                         {@link ErrorCorrector#MAX_CORRECTED_BITS})
+     * @return the raw message, flagged with the number of corrected bits, or null if it is corrupted beyond repair
+     * @throws IllegalArgumentException if the largest number of bits to correct is invalid
+     */
+    public static RawMessage of(long timeStampNs, byte[] bytes, int maxCorrectedBits) {
+        Preconditions.checkArgument(0 <= maxCorrectedBits && maxCorrectedBits <= ErrorCorrector.MAX_CORRECTED_BITS);
+
+        //arrays of the wrong length are rejected by the constructor if their CRC is 0
+        int crc = bytes.length == LENGTH ? CRC.messageCrc(bytes, 0) : CRC.crc(bytes);
+        if (crc == 0) return ofBytes(timeStampNs, bytes, 0);
+        if (maxCorrectedBits == 0 || bytes.length != LENGTH) return null;
+
+        byte[] repaired = bytes.clone();
+        int correctedBits = ErrorCorrector.correct(repaired, crc, maxCorrectedBits);
+        return correctedBits < 0 ? null : ofBytes(timeStampNs, repaired, correctedBits);
+    }
+
+    /**
+     * Packs the given array of bytes in a new raw message, without copying it.
+     *
+     * @param timeStampNs   the timestamp of the message in nanoseconds (must be positive)
+     * @param bytes         the bytes of the message (must be of length 14)
+     * @param correctedBits the number of corrected bits of the message
+     * @return the raw message
+     * @throws IllegalArgumentException if the timestamp is negative or the message is not of length 14
+     */
+    private static RawMessage ofBytes(long timeStampNs, byte[] bytes, int correctedBits) {
+        Preconditions.checkArgument(bytes.length == LENGTH);
+        long high = 0;
+        long low = 0;
+        for (int i = 0; i < HIGH_BYTES; i++) high = (high << Byte.SIZE) | Byte.toUnsignedLong(bytes[i]);
+        for (int i = HIGH_BYTES; i < LENGTH; i++) low = (low << Byte.SIZE) | Byte.toUnsignedLong(bytes[i]);
+        return new RawMessage(timeStampNs, high, low, correctedBits);
+    }
+
+    /**
+     * Packs the first 8 bytes of a message in a long.
+     *
+     * @param bytes the bytes of the message (must be of length 14)
+     * @return the first 8 bytes, in big-endian order
+     * @throws IllegalArgumentException if the message is not of length 14
+     */
+    private static long packedHigh(ByteString bytes) {
+        Preconditions.checkArgument(bytes.size() == LENGTH);
+        return packed(bytes, 0, HIGH_BYTES);
+    }
+
+    /**
+     * Packs the last 6 bytes of a message in a long.
+     *
+     * @param bytes the bytes of the message (must be of length 14)
+     * @return the last 6 bytes, in big-endian order in the 48 least significant bits
+     * @throws IllegalArgumentException if the message is not of length 14
+     */
+    private static long packedLow(ByteString bytes) {
+        Preconditions.checkArgument(bytes.size() == LENGTH);
+        return packed(bytes, HIGH_BYTES, LENGTH);
+    }
+
+    /**
+     * Packs the given range of bytes in a long, in big-endian order.
+     *
+     * @param bytes the bytes to pack
+     * @param from  the index of the first byte to pack
+     * @param to    the index following the last byte to pack
+     * @return the packed bytes, in the least significant bits of the long
+     */
+    private static long packed(ByteString bytes, int from, int to) {
+        long packed = 0;
+        for (int i = from; i < to; i++) {
+            packed = (packed << Byte.SIZE) | bytes.byteAt(i);
+        }
+        return packed;
     }
 
     /**
@@ -82,7 +206,7 @@ public record RawMessage(long timeStampNs, ByteString bytes) {
      * @return the format of the ADS-B message.
      */
     public int downLinkFormat() {
-        return Bits.extractUInt(bytes.byteAt(DF_BYTE_IDX), DF_START, DF_SIZE);
+        return (int) (high >>> (Long.SIZE - DF_SIZE));
     }
 
     /**
@@ -98,7 +222,7 @@ public record RawMessage(long timeStampNs, ByteString bytes) {
      * @return the Type Code of the ADS-B Message.
      */
     public int typeCode() {
-        return Bits.extractUInt(bytes.byteAt(TYPE_CODE_BYTE_IDX), TYPE_CODE_BYTE_START, TYPE_CODE_SIZE);
+        return typeCode(payload());
     }
 
     /**
@@ -109,7 +233,7 @@ public record RawMessage(long timeStampNs, ByteString bytes) {
      * The PayLoad (ME attribute) is the 7 bytes containing the exploitable information of the ADS-B message.
      */
     public long payload() {
-        return bytes.bytesInRange(TYPE_CODE_BYTE_IDX, PAYLOAD_END_IDX);
+        return ((high & PAYLOAD_HIGH_MASK) << PAYLOAD_LOW_BITS) | (low >>> (LOW_BITS - PAYLOAD_LOW_BITS));
     }
 
     /**
@@ -118,7 +242,22 @@ public record RawMessage(long timeStampNs, ByteString bytes) {
      * @return the ICAO address of the given Aircraft.
      */
     public IcaoAddress icaoAddress() {
-        String hexString = bytes.toString().substring(ICAO_END - ICAO_CHAR_LENGTH, ICAO_END);
-        return new IcaoAddress(hexString);
+        return IcaoAddress.of(Bits.extractUInt(high, ICAO_START, ICAO_SIZE));
+    }
+
+    /**
+     * Returns the 14 bytes of the message. Since the message is stored packed, a new byte string is built by each
+     * call.
+     *
+     * @return the bytes of the message
+     */
+    public ByteString bytes() {
+        byte[] bytes = new byte[LENGTH];
+        for (int i = 0; i < LENGTH; i++) {
+            long packed = i < HIGH_BYTES ? high : low;
+            int end = i < HIGH_BYTES ? HIGH_BYTES : LENGTH;
+            bytes[i] = (byte) (packed >>> ((end - 1 - i) * Byte.SIZE));
+        }
+        return new ByteString(bytes);
     }
 }
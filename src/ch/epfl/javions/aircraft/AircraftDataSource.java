@@ -0,0 +1,21 @@
+package ch.epfl.javions.aircraft;
+
+import java.io.IOException;
+
+/**
+ * Represents a source of the data of aircrafts, looked up by ICAO address.
+ *
+ * @author : Alexei Thornber (363088)
+ * @author : Zachary Doll (356458)
+ */
+public interface AircraftDataSource {
+
+    /**
+     * Provides the data of an aircraft given its ICAO address.
+     *
+     * @param address the ICAO address of the aircraft
+     * @return the data of the aircraft, or null if the source does not know it
+     * @throws IOException if the source cannot be read
+     */
+    AircraftData get(IcaoAddress address) throws IOException;
+}
@@ -11,13 +11,18 @@ import java.util.zip.ZipFile;
 /**
  * Represents a database of aircrafts, consisting of their ICAO address, registration, type designator, model,
  * description and wake turbulence category.
+ * <p>
+ * By default, the database file is read each time an aircraft is looked up. An indexed database, obtained with
+ * {@link #indexed(String)}, loads the whole file once, so that its lookups do not perform any I/O.
  *
  * @author : Alexei Thornber (363088)
  * @author : Zachary Doll (356458)
  */
-public final class AircraftDatabase {
+public final class AircraftDatabase implements AircraftDataSource {
 
     private final String fileName;
+    //the index of the file, or null if the file is read at each lookup
+    private final AircraftIndex index;
     private final int ICAO_FILE_NB_START = 4;
     private final int ICAO_FILE_NB_END = 6;
     private final int ICAO_POS = 0;
@@ -35,8 +40,28 @@ public final class AircraftDatabase {
      * @throws NullPointerException if the file name is null
      */
     public AircraftDatabase(String fileName) {
+        this(fileName, null);
+    }
+
+    private AircraftDatabase(String fileName, AircraftIndex index) {
         Objects.requireNonNull(fileName, "File name cannot be null");
         this.fileName = fileName;
+        this.index = index;
+    }
+
+    /**
+     * Creates a new AircraftDatabase which loads the given file in memory once and for all, indexed by ICAO
+     * address. Looking up an aircraft in it, whether it is found or not, then takes constant time and never reads
+     * the file again.
+     *
+     * @param fileName the name of the wanted file (cannot be null)
+     * @return the indexed database
+     * @throws NullPointerException if the file name is null
+     * @throws IOException          if the file cannot be read
+     */
+    public static AircraftDatabase indexed(String fileName) throws IOException {
+        Objects.requireNonNull(fileName, "File name cannot be null");
+        return new AircraftDatabase(fileName, AircraftIndex.load(fileName));
     }
 
     /**
@@ -48,7 +73,12 @@ public final class AircraftDatabase {
      * @throws IOException if the corresponding entry cannot be found (see {@link ZipFile#getInputStream})
      * @see AircraftData for the format of the returned data.
      */
+    @Override
     public AircraftData get(IcaoAddress address) throws IOException {
+        if (index != null) {
+            String line = index.line(address);
+            return line == null ? null : aircraftData(line);
+        }
 
         AircraftData output = null;
         //getting the last two digits of the ICAO address and adding ".csv" to access corresponding file entry.
@@ -65,20 +95,40 @@ public final class AircraftDatabase {
 
             while (!found && (l = buffer.readLine()) != null) {
                 if (l.startsWith(address.string())) {
-                    //splitting the line into columns at every comma, and storing the result in an array.
-                    String[] data = l.split(",", -1);
-
-                    //format : ICAO, Registration, Designator, Model, Description, WTC
-                    output = new AircraftData(new AircraftRegistration(data[REGISTRATION_POS]),
-                            new AircraftTypeDesignator(data[TYPE_DESIGNATOR_POS]),
-                            data[MODEL_POS],
-                            new AircraftDescription(data[DESC_POS]),
-                            WakeTurbulenceCategory.of(data[WTC_POS]));
-
+                    output = aircraftData(l);
                     found = true;
                 }
             }
         }
         return output;
     }
+
+    /**
+     * Gives the values of the addresses of all the aircrafts of an indexed database.
+     *
+     * @return the values of the addresses, in increasing order
+     * @throws IllegalStateException if the database is not indexed
+     */
+    int[] addresses() {
+        if (index == null) throw new IllegalStateException("database is not indexed");
+        return index.addresses();
+    }
+
+    /**
+     * Provides the data of an aircraft contained in a line of the database file.
+     *
+     * @param line the line of the aircraft
+     * @return the data of the aircraft
+     */
+    private AircraftData aircraftData(String line) {
+        //splitting the line into columns at every comma, and storing the result in an array.
+        String[] data = line.split(",", -1);
+
+        //format : ICAO, Registration, Designator, Model, Description, WTC
+        return new AircraftData(new AircraftRegistration(data[REGISTRATION_POS]),
+                new AircraftTypeDesignator(data[TYPE_DESIGNATOR_POS]),
+                data[MODEL_POS],
+                new AircraftDescription(data[DESC_POS]),
+                WakeTurbulenceCategory.of(data[WTC_POS]));
+    }
 }
@@ -0,0 +1,124 @@
+package ch.epfl.javions.aircraft;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static ch.epfl.javions.aircraft.MappedAircraftDatabase.*;
+
+/**
+ * Converts an aircraft database file, a ZIP archive of CSV files, into the binary file read by
+ * {@link MappedAircraftDatabase}. It is meant to be run once, when building the application:
+ * <pre>
+ *     java ch.epfl.javions.aircraft.AircraftDatabaseConverter aircraft.zip aircraft.bin
+ * </pre>
+ *
+ * @author : Alexei Thornber (363088)
+ * @author : Zachary Doll (356458)
+ */
+public final class AircraftDatabaseConverter {
+
+    private AircraftDatabaseConverter() {
+    } // Prevents instantiation
+
+    /**
+     * Converts the database file given as first argument into the binary file given as second argument.
+     *
+     * @param args the name of the database file, and the path of the binary file
+     * @throws IOException if the database file cannot be read, or the binary file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: AircraftDatabaseConverter <aircraft.zip> <aircraft.bin>");
+            System.exit(1);
+        }
+        int count = convert(args[0], Path.of(args[1]));
+        System.out.println(count + " aircrafts written to " + args[1]);
+    }
+
+    /**
+     * Converts a database file into a binary file. The binary file gives exactly the data of the aircrafts that
+     * {@link AircraftDatabase#get(IcaoAddress)} gives, and is replaced only once it is entirely written.
+     *
+     * @param fileName   the name of the database file (cannot be null)
+     * @param binaryFile the path of the binary file (cannot be null)
+     * @return the number of aircrafts written
+     * @throws NullPointerException     if the file name or the path is null
+     * @throws IllegalArgumentException if a line of the database file does not hold valid aircraft data
+     * @throws IOException              if the database file cannot be read, or the binary file cannot be written
+     */
+    public static int convert(String fileName, Path binaryFile) throws IOException {
+        Objects.requireNonNull(binaryFile, "Binary file cannot be null");
+        AircraftDatabase database = AircraftDatabase.indexed(fileName);
+        int[] addresses = database.addresses();
+
+        Map<String, Integer> stringIndices = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        int[] records = new int[addresses.length * 4];
+        byte[] categories = new byte[addresses.length];
+
+        for (int i = 0; i < addresses.length; i++) {
+            AircraftData data = database.get(IcaoAddress.of(addresses[i]));
+            records[4 * i] = stringIndex(data.registration().string(), stringIndices, strings);
+            records[4 * i + 1] = stringIndex(data.typeDesignator().string(), stringIndices, strings);
+            records[4 * i + 2] = stringIndex(data.model(), stringIndices, strings);
+            records[4 * i + 3] = stringIndex(data.description().string(), stringIndices, strings);
+            categories[i] = (byte) data.wakeTurbulenceCategory().ordinal();
+        }
+
+        Path parent = binaryFile.toAbsolutePath().getParent();
+        Path temporaryFile = Files.createTempFile(parent, binaryFile.getFileName().toString(), ".tmp");
+        try {
+            try (var stream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+                stream.writeInt(MAGIC);
+                stream.writeInt(VERSION);
+                stream.writeInt(addresses.length);
+                stream.writeInt(strings.size());
+
+                for (int address : addresses) {
+                    for (int shift = 8 * (KEY_SIZE - 1); shift >= 0; shift -= 8) stream.writeByte(address >>> shift);
+                }
+                for (int i = 0; i < addresses.length; i++) {
+                    for (int j = 0; j < 4; j++) stream.writeInt(records[4 * i + j]);
+                    stream.writeByte(categories[i]);
+                }
+
+                int offset = 0;
+                for (byte[] string : strings) {
+                    stream.writeInt(offset);
+                    offset += string.length;
+                }
+                stream.writeInt(offset);
+                for (byte[] string : strings) stream.write(string);
+            }
+            Files.move(temporaryFile, binaryFile, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+        return addresses.length;
+    }
+
+    /**
+     * Gives the index of a string in the pool, adding it to the pool if it is not in it yet.
+     *
+     * @param string        the string
+     * @param stringIndices the indices of the strings of the pool
+     * @param strings       the UTF-8 bytes of the strings of the pool
+     * @return the index of the string
+     */
+    private static int stringIndex(String string, Map<String, Integer> stringIndices, List<byte[]> strings) {
+        return stringIndices.computeIfAbsent(string, s -> {
+            strings.add(s.getBytes(StandardCharsets.UTF_8));
+            return strings.size() - 1;
+        });
+    }
+}
@@ -0,0 +1,184 @@
+package ch.epfl.javions.aircraft;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HexFormat;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Represents the content of an aircraft database file loaded in memory, indexed by ICAO address.
+ * <p>
+ * The lines of all the CSV entries are stored one after the other, as UTF-8 bytes, in a single array. The offsets of
+ * the lines are kept in an open-addressing hash table keyed by the value of the address of their aircraft, so that
+ * finding the line of an aircraft, or the absence of one, takes a few array accesses and no I/O. Lines are only split
+ * into columns when their aircraft is looked up.
+ *
+ * @author : Alexei Thornber (363088)
+ * @author : Zachary Doll (356458)
+ */
+final class AircraftIndex {
+    private static final int ICAO_CHAR_LENGTH = 6;
+    private static final int ICAO_FILE_NB_START = 4;
+    private static final String ENTRY_SUFFIX = ".csv";
+    //Marks an empty slot of the table, since keys are stored incremented by one
+    private static final int EMPTY = 0;
+    private static final int HASH_MULTIPLIER = 0x9E3779B9;
+
+    private final byte[] lines;
+    private final int[] keys;
+    private final int[] offsets;
+    private final int hashShift;
+
+    private AircraftIndex(byte[] lines, int[] keys, int[] offsets) {
+        this.lines = lines;
+        this.keys = keys;
+        this.offsets = offsets;
+        this.hashShift = Integer.SIZE - Integer.numberOfTrailingZeros(keys.length);
+    }
+
+    /**
+     * Loads and indexes all the CSV entries of the given database file. Only the lines stored in the entry of the two
+     * last digits of their address are indexed, and only the first line of each address, so that the index gives
+     * the same lines as a scan of the entries.
+     *
+     * @param fileName the name of the database file
+     * @return the index of the file
+     * @throws IOException if the file cannot be read
+     */
+    static AircraftIndex load(String fileName) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        int[] lineKeys = new int[1 << 10];
+        int[] lineOffsets = new int[1 << 10];
+        int count = 0;
+
+        try (var zip = new ZipFile(fileName)) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                String name = entry.getName();
+                if (!name.endsWith(ENTRY_SUFFIX)) continue;
+                byte[] suffix = name.substring(0, name.length() - ENTRY_SUFFIX.length())
+                        .getBytes(StandardCharsets.UTF_8);
+
+                byte[] content;
+                try (InputStream stream = zip.getInputStream(entry)) {
+                    content = stream.readAllBytes();
+                }
+
+                int base = bytes.size();
+                for (int start = 0; start < content.length; start = lineEnd(content, start) + 1) {
+                    int key = key(content, start, suffix);
+                    if (key < 0) continue;
+                    if (count == lineKeys.length) {
+                        lineKeys = Arrays.copyOf(lineKeys, 2 * count);
+                        lineOffsets = Arrays.copyOf(lineOffsets, 2 * count);
+                    }
+                    lineKeys[count] = key;
+                    lineOffsets[count++] = base + start;
+                }
+                bytes.write(content);
+                //entries are separated by a line feed, so that their last line ends before the next entry
+                if (content.length > 0 && content[content.length - 1] != '\n') bytes.write('\n');
+            }
+        }
+
+        //the table is kept at most half full, and has at least two slots so that the hash can be shifted
+        int capacity = Integer.highestOneBit(Math.max(2 * count, 2) * 2 - 1);
+        var index = new AircraftIndex(bytes.toByteArray(), new int[capacity], new int[capacity]);
+        for (int i = 0; i < count; i++) index.put(lineKeys[i], lineOffsets[i]);
+        return index;
+    }
+
+    /**
+     * Gives the value of the address a line starts with.
+     *
+     * @param content the content of the entry holding the line
+     * @param start   the index of the first byte of the line
+     * @param suffix  the name of the entry without its extension, which the address must end with
+     * @return the value of the address, or -1 if the line does not start with an address ending with the suffix
+     */
+    private static int key(byte[] content, int start, byte[] suffix) {
+        if (start + ICAO_CHAR_LENGTH > content.length) return -1;
+        if (suffix.length != ICAO_CHAR_LENGTH - ICAO_FILE_NB_START) return -1;
+
+        int value = 0;
+        for (int i = 0; i < ICAO_CHAR_LENGTH; i++) {
+            byte b = content[start + i];
+            //addresses are written in upper case, as the strings of IcaoAddress
+            if (!(('0' <= b && b <= '9') || ('A' <= b && b <= 'F'))) return -1;
+            if (i >= ICAO_FILE_NB_START && b != suffix[i - ICAO_FILE_NB_START]) return -1;
+            value = (value << 4) | HexFormat.fromHexDigit(b);
+        }
+        return value;
+    }
+
+    /**
+     * Gives the index of the end of a line.
+     *
+     * @param content the bytes containing the line
+     * @param start   the index of the first byte of the line
+     * @return the index of the line feed ending the line, or the length of the content if it is the last line
+     */
+    private static int lineEnd(byte[] content, int start) {
+        int end = start;
+        while (end < content.length && content[end] != '\n') end++;
+        return end;
+    }
+
+    /**
+     * Gives the slot at which a key is stored, or at which it would be stored.
+     *
+     * @param key the key, incremented by one
+     * @return the index of the slot holding the key, or of the empty slot ending its probe sequence
+     */
+    private int slot(int key) {
+        int mask = keys.length - 1;
+        int slot = (key * HASH_MULTIPLIER) >>> hashShift;
+        while (keys[slot] != EMPTY && keys[slot] != key) slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    /**
+     * Adds the line of an address to the table, unless a line was already added for it.
+     *
+     * @param value  the value of the address
+     * @param offset the offset of the line
+     */
+    private void put(int value, int offset) {
+        int slot = slot(value + 1);
+        if (keys[slot] == EMPTY) {
+            keys[slot] = value + 1;
+            offsets[slot] = offset;
+        }
+    }
+
+    /**
+     * Gives the values of all the indexed addresses.
+     *
+     * @return the values of the addresses, in increasing order
+     */
+    int[] addresses() {
+        return Arrays.stream(keys).filter(key -> key != EMPTY).map(key -> key - 1).sorted().toArray();
+    }
+
+    /**
+     * Gives the line of the given address, without its line terminator.
+     *
+     * @param address the ICAO address
+     * @return the line of the address, or null if there is none
+     */
+    String line(IcaoAddress address) {
+        int slot = slot(address.value() + 1);
+        if (keys[slot] == EMPTY) return null;
+
+        int start = offsets[slot];
+        int end = lineEnd(lines, start);
+        if (end > start && lines[end - 1] == '\r') end--;
+        return new String(lines, start, end - start, StandardCharsets.UTF_8);
+    }
+}
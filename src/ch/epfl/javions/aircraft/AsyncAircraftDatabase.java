@@ -0,0 +1,84 @@
+package ch.epfl.javions.aircraft;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Looks up the data of aircrafts in a source without blocking the calling thread, each lookup being made by a
+ * virtual thread. Concurrent lookups of the same address are coalesced: while a lookup of an address is in flight,
+ * looking the address up again waits for its result rather than reading the source once more.
+ *
+ * @author : Alexei Thornber (363088)
+ * @author : Zachary Doll (356458)
+ */
+public final class AsyncAircraftDatabase implements AircraftDataSource, AutoCloseable {
+    private final AircraftDataSource source;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ConcurrentMap<IcaoAddress, CompletableFuture<AircraftData>> lookups = new ConcurrentHashMap<>();
+
+    /**
+     * Instantiates a new asynchronous database, looking aircrafts up in the given source.
+     *
+     * @param source the source of the aircraft data (cannot be null)
+     * @throws NullPointerException if the source is null
+     */
+    public AsyncAircraftDatabase(AircraftDataSource source) {
+        this.source = Objects.requireNonNull(source, "Source cannot be null");
+    }
+
+    /**
+     * Provides the data of an aircraft, blocking the calling thread until it is read from the source.
+     *
+     * @param address the ICAO address of the aircraft
+     * @return the data of the aircraft, or null if the source does not know it
+     * @throws IOException if the source cannot be read
+     */
+    @Override
+    public AircraftData get(IcaoAddress address) throws IOException {
+        return source.get(address);
+    }
+
+    /**
+     * Starts looking up the data of an aircraft, or joins the lookup of its address already in flight.
+     *
+     * @param address the ICAO address of the aircraft
+     * @return a future completed with the data of the aircraft, or with null if the source does not know it, or
+     * completed exceptionally if the source cannot be read or the database is closed. Completing or cancelling it
+     * does not affect the other lookups of the same address.
+     */
+    public CompletableFuture<AircraftData> getAsync(IcaoAddress address) {
+        var lookup = new CompletableFuture<AircraftData>();
+        var inFlight = lookups.putIfAbsent(address, lookup);
+        if (inFlight != null) return inFlight.copy();
+
+        try {
+            executor.execute(() -> {
+                try {
+                    lookup.complete(source.get(address));
+                } catch (IOException | RuntimeException e) {
+                    lookup.completeExceptionally(e);
+                } finally {
+                    lookups.remove(address, lookup);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            lookups.remove(address, lookup);
+            lookup.completeExceptionally(e);
+        }
+        return lookup.copy();
+    }
+
+    /**
+     * Stops accepting lookups, and waits for the ones in flight to finish.
+     */
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
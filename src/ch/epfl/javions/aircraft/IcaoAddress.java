@@ -2,27 +2,107 @@ package ch.epfl.javions.aircraft;
 
 import ch.epfl.javions.Preconditions;
 
+import java.util.HexFormat;
 import java.util.Objects;
 import java.util.regex.Pattern;
 
 /**
- * Represents the ICAO address of an aircraft, a 6 character hexadecimal string.
+ * Represents the ICAO address of an aircraft, a 6 character hexadecimal string, along with the 24 bit integer it
+ * represents. Addresses are compared and hashed by their integer value, so that lookups by address never parse nor
+ * compare strings.
  *
+ * @param string the ICAO address of an Aircraft (must match expected ICAO address format, cannot be null)
+ * @param value  the 24 bit integer represented by the address (must be the one of the string)
  * @author : Alexei Thornber (363088)
  * @author : Zachary Doll (356458)
  */
-public record IcaoAddress(String string) {
+public record IcaoAddress(String string, int value) {
     private final static Pattern ICAO_FORMAT = Pattern.compile("[0-9A-F]{6}");
+    private final static HexFormat HEX_FORMAT = HexFormat.of().withUpperCase();
+    private final static int ICAO_CHAR_LENGTH = 6;
+    private final static int ICAO_SIZE = 24;
+    //Addresses built from their value are interned in a two-way set-associative table, whose sets are indexed by the
+    // least significant bits of the value, so that two addresses received over and over do not evict each other
+    private final static int CACHE_SETS = 1 << 12;
+    private final static IcaoAddress[] CACHE = new IcaoAddress[2 * CACHE_SETS];
 
     /**
-     * Instantiates a new Icao address from a string.
+     * Instantiates a new Icao address from a string and its value.
      *
      * @param string the ICAO address of an Aircraft (must match expected ICAO address format, cannot be null)
-     * @throws IllegalArgumentException if the inserted ICAO address is invalid or null
+     * @param value  the 24 bit integer represented by the address (must be the one of the string)
+     * @throws IllegalArgumentException if the inserted ICAO address is invalid, or if the value is not its own
      * @throws NullPointerException     if the inserted ICAO address is null
      */
     public IcaoAddress {
         Objects.requireNonNull(string, "Icao address cannot be null");
-        Preconditions.checkArgument(ICAO_FORMAT.matcher(string).matches() && !(string.equals("")));
+        Preconditions.checkArgument(ICAO_FORMAT.matcher(string).matches() && HexFormat.fromHexDigits(string) == value);
+    }
+
+    /**
+     * Instantiates a new Icao address from a string.
+     *
+     * @param string the ICAO address of an Aircraft (must match expected ICAO address format, cannot be null)
+     * @throws IllegalArgumentException if the inserted ICAO address is invalid
+     * @throws NullPointerException     if the inserted ICAO address is null
+     */
+    public IcaoAddress(String string) {
+        this(string, HexFormat.fromHexDigits(Objects.requireNonNull(string, "Icao address cannot be null")));
+    }
+
+    /**
+     * Returns the ICAO address of the given value. Addresses are interned, so that the same few addresses received
+     * over and over are neither allocated nor formatted again.
+     *
+     * @param value the 24 bit value of the address
+     * @return the ICAO address of the given value
+     * @throws IllegalArgumentException if the value does not fit in 24 bits
+     */
+    public static IcaoAddress of(int value) {
+        Preconditions.checkArgument(value >>> ICAO_SIZE == 0);
+
+        int index = 2 * (value & (CACHE_SETS - 1));
+        IcaoAddress cached = CACHE[index];
+        if (cached != null && cached.value == value) return cached;
+        cached = CACHE[index + 1];
+        if (cached != null && cached.value == value) return cached;
+
+        //the most recent address of the set is kept first, the previous one being moved to the second way.
+        // Addresses are immutable, so a racing thread at worst loses an entry or stores an equal one twice
+        cached = new IcaoAddress(HEX_FORMAT.toHexDigits(value, ICAO_CHAR_LENGTH), value);
+        CACHE[index + 1] = CACHE[index];
+        CACHE[index] = cached;
+        return cached;
+    }
+
+    /**
+     * Checks whether the given object is an ICAO address of the same value.
+     *
+     * @param o the object
+     * @return true if the object is an ICAO address of the same value
+     */
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof IcaoAddress that && value == that.value;
+    }
+
+    /**
+     * Returns the hash code of the address, the one of its value.
+     *
+     * @return the hash code of the address
+     */
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(value);
+    }
+
+    /**
+     * Returns the textual representation of the address, the one it had when the string was its only component.
+     *
+     * @return the textual representation of the address
+     */
+    @Override
+    public String toString() {
+        return "IcaoAddress[string=" + string + "]";
     }
 }
@@ -0,0 +1,155 @@
+package ch.epfl.javions.aircraft;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * Represents a database of aircrafts stored in a binary file built by {@link AircraftDatabaseConverter}, which is
+ * mapped in memory rather than loaded, so that opening it is almost instantaneous and its content does not occupy
+ * the heap. The data of an aircraft is only built when it is looked up.
+ * <p>
+ * The mapping is only released once the database is garbage collected, as the JDK offers no way to unmap a file.
+ * Until then, the file cannot be deleted nor replaced on Windows.
+ * <p>
+ * The file is made of the following sections, all numbers being big-endian:
+ * <ul>
+ *      <li>a header of four ints: {@link #MAGIC}, {@link #VERSION}, the number of aircrafts and the number of strings
+ *      <li>the values of the ICAO addresses of the aircrafts, in increasing order, on 3 bytes each
+ *      <li>a record per aircraft, in the same order, made of the indices of its registration, type designator,
+ *      model and description in the string pool, as ints, followed by the ordinal of its wake turbulence category
+ *      as a byte
+ *      <li>the offsets of the strings of the pool in the following section, as ints, followed by its length
+ *      <li>the strings of the pool, encoded in UTF-8 one after the other, each appearing only once
+ * </ul>
+ *
+ * @author : Alexei Thornber (363088)
+ * @author : Zachary Doll (356458)
+ */
+public final class MappedAircraftDatabase implements AircraftDataSource {
+    static final int MAGIC = 0x4A415644; // "JAVD"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 4 * Integer.BYTES;
+    static final int KEY_SIZE = 3;
+    static final int RECORD_SIZE = 4 * Integer.BYTES + Byte.BYTES;
+    private static final int REGISTRATION_POS = 0;
+    private static final int TYPE_DESIGNATOR_POS = REGISTRATION_POS + Integer.BYTES;
+    private static final int MODEL_POS = TYPE_DESIGNATOR_POS + Integer.BYTES;
+    private static final int DESC_POS = MODEL_POS + Integer.BYTES;
+    private static final int WTC_POS = DESC_POS + Integer.BYTES;
+    private static final WakeTurbulenceCategory[] CATEGORIES = WakeTurbulenceCategory.values();
+
+    private final ByteBuffer buffer;
+    private final int aircraftCount;
+    private final int recordsStart;
+    private final int stringOffsetsStart;
+    private final int stringsStart;
+
+    /**
+     * Opens the given binary database file.
+     *
+     * @param file the path of the file (cannot be null)
+     * @throws NullPointerException if the path is null
+     * @throws IOException          if the file cannot be read, or is not a binary database file
+     */
+    public MappedAircraftDatabase(Path file) throws IOException {
+        Objects.requireNonNull(file, "File cannot be null");
+        try (FileChannel channel = FileChannel.open(file)) {
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) throw invalidFile(file);
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(Integer.BYTES) != VERSION) throw invalidFile(file);
+        this.aircraftCount = buffer.getInt(2 * Integer.BYTES);
+        int stringCount = buffer.getInt(3 * Integer.BYTES);
+
+        long records = HEADER_SIZE + (long) aircraftCount * KEY_SIZE;
+        long stringOffsets = records + (long) aircraftCount * RECORD_SIZE;
+        long strings = stringOffsets + ((long) stringCount + 1) * Integer.BYTES;
+        if (aircraftCount < 0 || stringCount < 0 || strings > buffer.limit()
+                || strings + buffer.getInt((int) strings - Integer.BYTES) != buffer.limit()) {
+            throw invalidFile(file);
+        }
+        this.recordsStart = (int) records;
+        this.stringOffsetsStart = (int) stringOffsets;
+        this.stringsStart = (int) strings;
+    }
+
+    /**
+     * Provides the exception thrown when opening a file which is not a valid binary database file.
+     *
+     * @param file the path of the file
+     * @return the exception
+     */
+    private static IOException invalidFile(Path file) {
+        return new IOException("Invalid aircraft database file: " + file);
+    }
+
+    /**
+     * Provides the data of an aircraft, given its ICAO address, by a binary search among the addresses of the file.
+     *
+     * @param address the ICAO address of the aircraft
+     * @return the data of the aircraft, or null if the file does not contain it
+     */
+    @Override
+    public AircraftData get(IcaoAddress address) {
+        int value = address.value();
+        int low = 0;
+        int high = aircraftCount - 1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int key = key(mid);
+            if (key < value) low = mid + 1;
+            else if (key > value) high = mid - 1;
+            else return aircraftData(mid);
+        }
+        return null;
+    }
+
+    /**
+     * Reads the value of the address of an aircraft.
+     *
+     * @param index the index of the aircraft in the file
+     * @return the value of its address
+     */
+    private int key(int index) {
+        int position = HEADER_SIZE + index * KEY_SIZE;
+        return (Byte.toUnsignedInt(buffer.get(position)) << 16)
+                | (Byte.toUnsignedInt(buffer.get(position + 1)) << 8)
+                | Byte.toUnsignedInt(buffer.get(position + 2));
+    }
+
+    /**
+     * Builds the data of an aircraft from its record.
+     *
+     * @param index the index of the aircraft in the file
+     * @return the data of the aircraft
+     */
+    private AircraftData aircraftData(int index) {
+        int record = recordsStart + index * RECORD_SIZE;
+        return new AircraftData(new AircraftRegistration(string(buffer.getInt(record + REGISTRATION_POS))),
+                new AircraftTypeDesignator(string(buffer.getInt(record + TYPE_DESIGNATOR_POS))),
+                string(buffer.getInt(record + MODEL_POS)),
+                new AircraftDescription(string(buffer.getInt(record + DESC_POS))),
+                CATEGORIES[buffer.get(record + WTC_POS)]);
+    }
+
+    /**
+     * Reads a string of the pool. Only absolute accesses are made to the buffer, so that lookups can be made by
+     * several threads at once.
+     *
+     * @param index the index of the string in the pool
+     * @return the string
+     */
+    private String string(int index) {
+        int offset = stringOffsetsStart + index * Integer.BYTES;
+        int start = buffer.getInt(offset);
+        byte[] bytes = new byte[buffer.getInt(offset + Integer.BYTES) - start];
+        buffer.get(stringsStart + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
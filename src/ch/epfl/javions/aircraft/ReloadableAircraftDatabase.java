@@ -0,0 +1,216 @@
+package ch.epfl.javions.aircraft;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Represents a database of aircrafts which is reloaded whenever its file changes, so that a long-running application
+ * picks up the updates of the registry without being restarted.
+ * <p>
+ * The directory of the file is watched by a background thread. Once the file has stopped changing for a short delay,
+ * that thread loads it into a new database, and then replaces the current one in a single write. Lookups read the
+ * current database without any lock, so that they are never blocked by a reload, and a lookup made during a reload is
+ * answered by the previous database. If the new file cannot be loaded, the previous database is kept until the file
+ * changes again. The file should be replaced by moving a complete file over it, as {@link AircraftDatabaseConverter}
+ * does, rather than rewritten in place.
+ * <p>
+ * A binary file stays mapped by the {@link MappedAircraftDatabase} it was loaded into until that database is garbage
+ * collected, which never happens at a known time, even after a reload has replaced it. On Windows, a file having a
+ * mapped view can neither be deleted nor replaced, so that moving a new file over a binary database file fails there
+ * while it is in use. Binary databases can thus only be updated in place on systems that allow replacing a mapped
+ * file, such as Linux and macOS; on Windows, the text database should be watched instead.
+ *
+ * @author : Alexei Thornber (363088)
+ * @author : Zachary Doll (356458)
+ */
+public final class ReloadableAircraftDatabase implements AircraftDataSource, AutoCloseable {
+    //Time during which the file must not change before being reloaded, as writing it triggers several events
+    private static final long SETTLE_DELAY_MS = 500;
+    private static final String BINARY_EXTENSION = ".bin";
+
+    private final Path file;
+    private final Loader loader;
+    private final WatchService watchService;
+    private final List<Runnable> reloadListeners = new CopyOnWriteArrayList<>();
+    private volatile AircraftDataSource current;
+
+    /**
+     * Loads a database file into a database.
+     */
+    @FunctionalInterface
+    public interface Loader {
+
+        /**
+         * Loads the given database file.
+         *
+         * @param file the path of the file
+         * @return the database holding the content of the file
+         * @throws IOException if the file cannot be read
+         */
+        AircraftDataSource load(Path file) throws IOException;
+    }
+
+    /**
+     * Opens the given database file, loaded as a {@link MappedAircraftDatabase} if its name ends with ".bin", or as an
+     * indexed {@link AircraftDatabase} otherwise, and starts watching it.
+     *
+     * @param file the path of the file (cannot be null)
+     * @throws NullPointerException if the path is null
+     * @throws IOException          if the file cannot be loaded or watched
+     * @see #ReloadableAircraftDatabase(Path, Loader)
+     */
+    public ReloadableAircraftDatabase(Path file) throws IOException {
+        this(file, ReloadableAircraftDatabase::load);
+    }
+
+    /**
+     * Loads the given database file with the given loader, and starts watching it.
+     *
+     * @param file   the path of the file (cannot be null)
+     * @param loader the loader used to load the file, and to reload it when it changes (cannot be null)
+     * @throws NullPointerException if the path or the loader is null
+     * @throws IOException          if the file cannot be loaded or watched
+     */
+    public ReloadableAircraftDatabase(Path file, Loader loader) throws IOException {
+        this.file = Objects.requireNonNull(file, "File cannot be null").toAbsolutePath();
+        this.loader = Objects.requireNonNull(loader, "Loader cannot be null");
+        this.current = loader.load(this.file);
+
+        this.watchService = FileSystems.getDefault().newWatchService();
+        try {
+            this.file.getParent().register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+        } catch (IOException e) {
+            watchService.close();
+            throw e;
+        }
+        Thread.ofVirtual().name("aircraft-database-watcher").start(this::watch);
+    }
+
+    /**
+     * Loads a database file according to its extension.
+     *
+     * @param file the path of the file
+     * @return the database holding the content of the file
+     * @throws IOException if the file cannot be read
+     */
+    private static AircraftDataSource load(Path file) throws IOException {
+        return file.getFileName().toString().endsWith(BINARY_EXTENSION)
+                ? new MappedAircraftDatabase(file)
+                : AircraftDatabase.indexed(file.toString());
+    }
+
+    /**
+     * Provides the data of an aircraft from the current database, without waiting for a reload in progress.
+     *
+     * @param address the ICAO address of the aircraft
+     * @return the data of the aircraft, or null if the current database does not contain it
+     * @throws IOException if the current database cannot be read
+     */
+    @Override
+    public AircraftData get(IcaoAddress address) throws IOException {
+        return current.get(address);
+    }
+
+    /**
+     * Adds a listener called by the background thread after each successful reload, for example to refresh the data
+     * of the aircrafts already known. An exception thrown by a listener is reported to the uncaught exception handler
+     * of that thread, and neither prevents the other listeners from being called nor stops the file from being watched.
+     *
+     * @param listener the listener (cannot be null)
+     * @throws NullPointerException if the listener is null
+     */
+    public void addReloadListener(Runnable listener) {
+        reloadListeners.add(Objects.requireNonNull(listener, "Listener cannot be null"));
+    }
+
+    /**
+     * Stops watching the file. The current database remains usable.
+     *
+     * @throws IOException if the watch service cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    /**
+     * Waits for the file to change, and reloads it, until the database is closed.
+     */
+    private void watch() {
+        try {
+            while (true) {
+                if (!isFileEvent(watchService.take())) continue;
+
+                //waits for the writes of the file to be over
+                WatchKey key;
+                while ((key = watchService.poll(SETTLE_DELAY_MS, TimeUnit.MILLISECONDS)) != null) {
+                    isFileEvent(key);
+                }
+                reload();
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            //the database was closed, so the file is not watched anymore
+        }
+    }
+
+    /**
+     * Consumes the events of the given key, and resets it.
+     *
+     * @param key the signalled key
+     * @return true if one of the events concerns the database file, or if events were lost, false otherwise
+     */
+    private boolean isFileEvent(WatchKey key) {
+        boolean fileEvent = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW
+                    || (event.context() instanceof Path changed && file.getFileName().equals(changed))) {
+                fileEvent = true;
+            }
+        }
+        key.reset();
+        return fileEvent;
+    }
+
+    /**
+     * Loads the file into a new database, and swaps it with the current one if it could be loaded.
+     */
+    private void reload() {
+        AircraftDataSource reloaded;
+        try {
+            reloaded = loader.load(file);
+        } catch (IOException | RuntimeException e) {
+            //the previous database is kept until the file changes again
+            return;
+        }
+        current = reloaded;
+        for (Runnable listener : reloadListeners) notifyListener(listener);
+    }
+
+    /**
+     * Calls a reload listener, reporting the exception it throws, if any, as if it were uncaught, but without letting
+     * it end the watching thread.
+     *
+     * @param listener the listener
+     */
+    private static void notifyListener(Runnable listener) {
+        try {
+            listener.run();
+        } catch (RuntimeException e) {
+            Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        }
+    }
+}
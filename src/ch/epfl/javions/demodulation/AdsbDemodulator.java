@@ -1,9 +1,13 @@
 package ch.epfl.javions.demodulation;
 
+import ch.epfl.javions.Crc24;
+import ch.epfl.javions.Preconditions;
+import ch.epfl.javions.adsb.ErrorCorrector;
 import ch.epfl.javions.adsb.RawMessage;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
 
 /**
  * Demodulates ADS-B messages from a stream of power samples.
@@ -12,14 +16,43 @@ import java.io.InputStream;
  * @author : Zachary Doll (356458)
  */
 public final class AdsbDemodulator {
+    /**
+     * The size of the window in which a message is searched for, its preamble included.
+     */
+    static final int WINDOW_SIZE = 1200;
     private static final int MESSAGE_LENGTH = 112;
-    private final int SAMPLES_IN_PREAMBLE = 80;
-    private final PowerWindow window;
+    private static final int SAMPLES_IN_PREAMBLE = 80;
     //The distance between two peaks
-    private final int PULSE_SIZE = 5;
+    private static final int PULSE_SIZE = 5;
+    //The duration of a power sample, in nanoseconds
+    private static final int SAMPLE_DURATION_NS = 100;
+    //Number of bytes of a message packed in its first long
+    private static final int HIGH_BYTES = Long.BYTES;
+    private static final Crc24 CRC = new Crc24(Crc24.GENERATOR);
+    //Number of fractional bits of the noise floor, whose moving average spans about 2^12 power samples (410 us)
+    private static final int NOISE_FLOOR_SHIFT = 12;
+    //Number of power samples summed in a peak, used to compare it to the noise floor of a single sample
+    private static final int SAMPLES_IN_PEAK = 4;
+    //Number of positions scanned without moving the window, the last one needing the peak of the following position
+    private static final int SCANNED_POSITIONS = WINDOW_SIZE - 9 * PULSE_SIZE - 1;
+    private final PowerWindow window;
+    //Bytes of the message being decoded, reused from one candidate to the next
+    private final byte[] scratch = new byte[RawMessage.LENGTH];
     private int currentPeak = 0;
     private int nextPeak;
 
+    //Exponential moving average of the power samples, with NOISE_FLOOR_SHIFT fractional bits
+    private long scaledNoiseFloor;
+    //Ratio between the smallest accepted peak and the noise floor, 0 when no threshold is set
+    private double minimumPeakRatio;
+    private int maxCorrectedBits;
+    //Number of bits corrected in the message held by the scratch array
+    private int correctedBits;
+    private long candidates;
+    private long rejectedCandidates;
+    private long crcFailures;
+    private long correctedMessages;
+
     /**
      * Builds a new demodulator from the given stream of samples.
      *
@@ -27,7 +60,111 @@ public final class AdsbDemodulator {
      * @throws IOException if the stream cannot be read from (see {@link InputStream#readNBytes(byte[], int, int)})
      */
     public AdsbDemodulator(InputStream samplesStream) throws IOException {
-        window = new PowerWindow(samplesStream, 1200);
+        window = new PowerWindow(samplesStream, WINDOW_SIZE);
+    }
+
+    /**
+     * Builds a new demodulator decoding the samples of a recording straight from the memory-mapped pages of the
+     * given channel, starting at its current position. Preferred over the stream constructor when replaying files.
+     *
+     * @param samplesChannel the channel to read the samples from
+     * @throws IOException if the channel cannot be read from (see {@link SamplesDecoder})
+     */
+    public AdsbDemodulator(FileChannel samplesChannel) throws IOException {
+        window = new PowerWindow(samplesChannel, WINDOW_SIZE);
+    }
+
+    /**
+     * Builds a new demodulator over the power samples provided by the given source.
+     *
+     * @param source the source of the power samples
+     * @throws IOException if the first batch of power samples cannot be read
+     */
+    AdsbDemodulator(PowerSource source) throws IOException {
+        window = new PowerWindow(source, WINDOW_SIZE);
+    }
+
+    /**
+     * Returns the position of the demodulator in the stream of power samples.
+     *
+     * @return the number of power samples the demodulator went past
+     */
+    long position() {
+        return window.position();
+    }
+
+    /**
+     * Sets the signal-to-noise ratio under which a preamble is rejected before its message is decoded. A preamble is
+     * rejected if the average power of its pulses is smaller than the noise floor, estimated by a moving average of
+     * the power samples, multiplied by this ratio. No preamble is rejected by default.
+     *
+     * @param snrDb the smallest accepted signal-to-noise ratio in decibels, or {@link Double#NEGATIVE_INFINITY} to
+     *              accept all preambles (cannot be NaN or positive infinity)
+     * @throws IllegalArgumentException if the ratio is NaN or positive infinity
+     */
+    public void setSnrThresholdDb(double snrDb) {
+        Preconditions.checkArgument(!Double.isNaN(snrDb) && snrDb != Double.POSITIVE_INFINITY);
+        minimumPeakRatio = SAMPLES_IN_PEAK * Math.pow(10, snrDb / 10);
+    }
+
+    /**
+     * Sets the largest number of flipped bits repaired in a message whose CRC is not valid (see
+     * {@link ErrorCorrector}). No message is repaired by default.
+     *
+     * @param maxCorrectedBits the largest number of bits to correct (between 0 and
+     *                         {@link ErrorCorrector#MAX_CORRECTED_BITS})
+     * @throws IllegalArgumentException if the number of bits is invalid
+     */
+    public void setMaxCorrectedBits(int maxCorrectedBits) {
+        Preconditions.checkArgument(0 <= maxCorrectedBits && maxCorrectedBits <= ErrorCorrector.MAX_CORRECTED_BITS);
+        this.maxCorrectedBits = maxCorrectedBits;
+    }
+
+    /**
+     * Returns the estimated noise floor, i.e. the moving average of the power samples the demodulator went past.
+     *
+     * @return the estimated noise floor
+     */
+    public long noiseFloor() {
+        return scaledNoiseFloor >> NOISE_FLOOR_SHIFT;
+    }
+
+    /**
+     * Returns the number of preambles found so far, whether they were then rejected or not.
+     *
+     * @return the number of candidate messages
+     */
+    public long candidates() {
+        return candidates;
+    }
+
+    /**
+     * Returns the number of preambles rejected so far because their power was too close to the noise floor.
+     *
+     * @return the number of candidates rejected by the signal-to-noise ratio threshold
+     * @see #setSnrThresholdDb(double)
+     */
+    public long rejectedCandidates() {
+        return rejectedCandidates;
+    }
+
+    /**
+     * Returns the number of ADS-B messages decoded so far whose CRC was not valid and which could not be repaired.
+     *
+     * @return the number of candidates failing the CRC check
+     */
+    public long crcFailures() {
+        return crcFailures;
+    }
+
+    /**
+     * Returns the number of ADS-B messages repaired so far.
+     *
+     * @return the number of messages whose CRC was made valid by correcting some of their bits
+     * @see #setMaxCorrectedBits(int)
+     */
+    public long correctedMessages() {
+        return correctedMessages;
     }
 
     /**
@@ -37,42 +174,243 @@ public final class AdsbDemodulator {
      * @throws IOException if the stream cannot be read from (see {@link InputStream#readNBytes(byte[], int, int)})
      */
     public RawMessage nextMessage() throws IOException {
+        if (!findMessage()) return null;
+
+        RawMessage message = rawMessage(timeStampNs(window.position()), scratch, correctedBits);
+        window.advanceBy(window.size());
+        return message;
+    }
+
+    /**
+     * Demodulates all the remaining ADS-B messages in the stream provided to the constructor, handing each one to the
+     * given sink as soon as it is found. Contrary to {@link #nextMessage()}, no object is allocated per message.
+     *
+     * @param sink the sink receiving the messages, packed as described in {@link RawMessageSink}
+     * @return the number of messages handed to the sink
+     * @throws IOException if the stream cannot be read from (see {@link InputStream#readNBytes(byte[], int, int)})
+     */
+    public long demodulate(RawMessageSink sink) throws IOException {
+        long count = 0;
+        while (findMessage()) {
+            sink.accept(timeStampNs(window.position()),
+                    packedBytes(scratch, 0, HIGH_BYTES),
+                    packedBytes(scratch, HIGH_BYTES, RawMessage.LENGTH),
+                    correctedBits);
+            window.advanceBy(window.size());
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Advances the window until a valid message starts at its beginning, and decodes it in the scratch array.
+     * <p>
+     * The positions are scanned by blocks, with the window left in place: the noise floor and the peaks are updated
+     * at every position of the block exactly as if the window was advanced one position at a time, but the window is
+     * only moved to the preambles found in the block, or past it. The messages found are thus the same.
+     *
+     * @return true if a message was found, false if the end of the stream was reached
+     * @throws IOException if the stream cannot be read from (see {@link InputStream#readNBytes(byte[], int, int)})
+     */
+    private boolean findMessage() throws IOException {
         while (window.isFull()) {
+            //the window must stay full at every scanned position
+            int positions = (int) Math.min(SCANNED_POSITIONS, window.availableSamples() - window.size() + 1);
+            int scanned = scan(positions);
+            if (scanned < positions) {
+                window.advanceBy(scanned);
+                if (isValidCandidate()) return true;
+                window.advance();
+            } else {
+                window.advanceBy(positions);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Updates the noise floor and the peaks at the given number of positions from the start of the window on, until
+     * a preamble is found.
+     *
+     * @param positions the number of positions to scan
+     * @return the index in the window of the preamble found, or the number of positions if none was found
+     */
+    private int scan(int positions) {
+        for (int i = 0; i < positions; i++) {
+            scaledNoiseFloor += window.get(i) - (scaledNoiseFloor >> NOISE_FLOOR_SHIFT);
+
             //Setting the peaks correctly
             int previousPeak = currentPeak;
             currentPeak = nextPeak;
-            nextPeak = window.get(1) + window.get(11) + window.get(36) + window.get(46);
+            nextPeak = peak(window, i + 1);
+
+            if (isPreamble(previousPeak, currentPeak, nextPeak, window, i)) return i;
+        }
+        return positions;
+    }
 
-            int valley = window.get(PULSE_SIZE) + window.get(3 * PULSE_SIZE) + window.get(4 * PULSE_SIZE) +
-                    window.get(5 * PULSE_SIZE) + window.get(6 * PULSE_SIZE) + window.get(8 * PULSE_SIZE);
+    /**
+     * Checks the candidate message whose preamble starts at the beginning of the window against the noise floor,
+     * then decodes it in the scratch array and checks its CRC, repairing it if possible, and updates the counters.
+     *
+     * @return true if the scratch array holds a valid (possibly repaired) ADS-B message, false otherwise
+     */
+    private boolean isValidCandidate() {
+        candidates++;
+        if (currentPeak < minimumPeakRatio * noiseFloor()) {
+            rejectedCandidates++;
+            return false;
+        }
+        if (!decodeBits(window, scratch)) return false;
 
-            if (messageIsStarting(previousPeak, valley)) {
+        correctedBits = ErrorCorrector.correct(scratch, CRC.messageCrc(scratch, 0), maxCorrectedBits);
+        if (correctedBits < 0) {
+            crcFailures++;
+            return false;
+        }
+        if (correctedBits > 0) correctedMessages++;
+        return true;
+    }
+
+    /**
+     * Returns the sum of the power samples of the four pulses of a preamble starting at the given index of the window.
+     *
+     * @param window the window to read the power samples from
+     * @param offset the index in the window at which the preamble would start
+     * @return the sum of the power samples at the peaks of the preamble
+     */
+    static int peak(PowerWindow window, int offset) {
+        return window.get(offset) + window.get(offset + 2 * PULSE_SIZE) + window.get(offset + 7 * PULSE_SIZE) +
+                window.get(offset + 9 * PULSE_SIZE);
+    }
 
-                byte[] message = new byte[RawMessage.LENGTH];
-                buildMessage(message, 0, Byte.SIZE);
+    /**
+     * Returns the sum of the power samples between the pulses of a preamble starting at the given index of the window.
+     *
+     * @param window the window to read the power samples from
+     * @param offset the index in the window at which the preamble would start
+     * @return the sum of the power samples in the valleys of the preamble
+     */
+    private static int valley(PowerWindow window, int offset) {
+        return window.get(offset + PULSE_SIZE) + window.get(offset + 3 * PULSE_SIZE) +
+                window.get(offset + 4 * PULSE_SIZE) + window.get(offset + 5 * PULSE_SIZE) +
+                window.get(offset + 6 * PULSE_SIZE) + window.get(offset + 8 * PULSE_SIZE);
+    }
 
-                if (RawMessage.size(message[0]) == RawMessage.LENGTH) {
-                    //Decoding the rest of the message
-                    buildMessage(message, Byte.SIZE, MESSAGE_LENGTH);
-                    RawMessage maybeValid = RawMessage.of(window.position() * 100, message);
+    /**
+     * Checks if a preamble starts at the beginning of the window. Since almost all positions are noise, the peaks are
+     * first checked to form a local maximum, and the valley is only summed for the few positions where they do.
+     *
+     * @param previousPeak the previous peak
+     * @param currentPeak  the current peak
+     * @param nextPeak     the next peak
+     * @param window       the window to read the valley from
+     * @return true if an ADS-B message is starting, false otherwise
+     */
+    static boolean isPreamble(int previousPeak, int currentPeak, int nextPeak, PowerWindow window) {
+        return isPreamble(previousPeak, currentPeak, nextPeak, window, 0);
+    }
 
-                    if (maybeValid != null) {
-                        window.advanceBy(window.size());
-                        return maybeValid;
-                    }
-                }
-            }
-            window.advance();
+    /**
+     * Checks if a preamble starts at the given index of the window, as {@link #isPreamble(int, int, int, PowerWindow)}
+     * does at its beginning.
+     *
+     * @param previousPeak the previous peak
+     * @param currentPeak  the current peak
+     * @param nextPeak     the next peak
+     * @param window       the window to read the valley from
+     * @param offset       the index in the window at which the preamble would start
+     * @return true if an ADS-B message is starting at the given index, false otherwise
+     */
+    private static boolean isPreamble(int previousPeak, int currentPeak, int nextPeak, PowerWindow window,
+                                      int offset) {
+        return (previousPeak < currentPeak) && (currentPeak > nextPeak)
+                && (currentPeak >= 2 * valley(window, offset));
+    }
+
+    /**
+     * Decodes the message whose preamble starts at the beginning of the window.
+     *
+     * @param window      the window to read the power samples from
+     * @param timeStampNs the timestamp of the message in nanoseconds
+     * @return the decoded message, or null if it is not a valid ADS-B message
+     */
+    static RawMessage decodeMessage(PowerWindow window, long timeStampNs) {
+        byte[] message = new byte[RawMessage.LENGTH];
+        return decodeBits(window, message) && CRC.messageCrc(message, 0) == 0
+                ? rawMessage(timeStampNs, message, 0)
+                : null;
+    }
+
+    /**
+     * Builds a raw message from the bytes of a decoded message, packed in two longs.
+     *
+     * @param timeStampNs   the timestamp of the message in nanoseconds
+     * @param message       the bytes of the message
+     * @param correctedBits the number of bits of the message that were corrected
+     * @return the raw message
+     */
+    private static RawMessage rawMessage(long timeStampNs, byte[] message, int correctedBits) {
+        return new RawMessage(timeStampNs,
+                packedBytes(message, 0, HIGH_BYTES),
+                packedBytes(message, HIGH_BYTES, RawMessage.LENGTH),
+                correctedBits);
+    }
+
+    /**
+     * Decodes the bits of the message whose preamble starts at the beginning of the window in the given array,
+     * without checking its CRC. Only the first byte is decoded if the message is not an ADS-B message. The array can
+     * be reused from one call to the next, since every decoded byte is entirely overwritten.
+     *
+     * @param window  the window to read the power samples from
+     * @param message the array receiving the bytes of the message (must be of length {@link RawMessage#LENGTH})
+     * @return true if the array holds an ADS-B message, false otherwise
+     */
+    private static boolean decodeBits(PowerWindow window, byte[] message) {
+        buildMessage(window, message, 0, Byte.SIZE);
+
+        if (RawMessage.size(message[0]) != RawMessage.LENGTH) return false;
+
+        //Decoding the rest of the message
+        buildMessage(window, message, Byte.SIZE, MESSAGE_LENGTH);
+        return true;
+    }
+
+    /**
+     * Packs the given range of bytes in a long, in big-endian order.
+     *
+     * @param bytes the bytes to pack
+     * @param from  the index of the first byte to pack
+     * @param to    the index following the last byte to pack (at most 8 bytes after the first one)
+     * @return the packed bytes, in the least significant bits of the long
+     */
+    static long packedBytes(byte[] bytes, int from, int to) {
+        long packed = 0;
+        for (int i = from; i < to; i++) {
+            packed = (packed << Byte.SIZE) | Byte.toUnsignedLong(bytes[i]);
         }
-        return null;
+        return packed;
+    }
+
+    /**
+     * Returns the timestamp of a message starting at the given position.
+     *
+     * @param position the index of the first power sample of the message
+     * @return the timestamp of the message in nanoseconds
+     */
+    static long timeStampNs(long position) {
+        return position * SAMPLE_DURATION_NS;
     }
 
     /**
-     * Builds the first 8 bits of the ADS-B message, representing the preamble.
+     * Decodes the given range of bits of the ADS-B message whose preamble starts at the beginning of the window.
      *
+     * @param window  the window to read the power samples from
      * @param message the message to decode
+     * @param start   the index of the first bit to decode
+     * @param end     the index of the bit following the last one to decode
      */
-    private void buildMessage(byte[] message, int start, int end) {
+    private static void buildMessage(PowerWindow window, byte[] message, int start, int end) {
         for (int i = start; i < end; i++) {
             if ((window.get(SAMPLES_IN_PREAMBLE + (10 * i))) < (window.get((SAMPLES_IN_PREAMBLE + PULSE_SIZE) + (10 * i)))) {
                 message[i / Byte.SIZE] = (byte) (message[i / Byte.SIZE] << 1);
@@ -81,16 +419,4 @@ public final class AdsbDemodulator {
             }
         }
     }
-
-    /**
-     * Checks if the current peak is the start of an ADS-B message.
-     *
-     * @param previousPeak the previous peak
-     * @param valley       the valley between the peaks
-     * @return true if an ADS-B message is starting, false otherwise
-     */
-    private boolean messageIsStarting(int previousPeak, int valley) {
-        return (currentPeak >= 2 * valley) && (previousPeak < currentPeak) && (currentPeak > nextPeak);
-    }
 }
-
@@ -0,0 +1,291 @@
+package ch.epfl.javions.demodulation;
+
+import ch.epfl.javions.adsb.RawMessage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Objects;
+
+/**
+ * Demodulates ADS-B messages from a live stream of samples, splitting the work into stages running on separate
+ * threads so that reading the samples and computing their power overlap with the demodulation:
+ * <ol>
+ *     <li>a reader thread fills raw batches with the bytes of the stream,
+ *     <li>a power thread decodes the raw batches and turns them into batches of power samples,
+ *     <li>the thread calling {@link #nextMessage()} searches the power samples for messages and checks their CRC.
+ * </ol>
+ * The batches are allocated once, and travel between the stages through single-producer, single-consumer
+ * lock-free queues, the empty ones being sent back to the stage filling them.
+ *
+ * @author : Alexei Thornber (363088)
+ * @author : Zachary Doll (356458)
+ */
+public final class DemodulationPipeline {
+    //Number of batches of each kind, bounding the number of samples buffered between two stages
+    private static final int POOL_SIZE = 8;
+    private static final int RAW_BATCH_SIZE = PowerWindow.BATCH_SIZE * 2 * Short.BYTES;
+    private final InputStream samplesStream;
+    private final SpscRing<ByteBuffer> emptyRawBatches = new SpscRing<>(POOL_SIZE);
+    private final SpscRing<ByteBuffer> rawBatches = new SpscRing<>(POOL_SIZE);
+    private final SpscRing<PowerBatch> emptyPowerBatches = new SpscRing<>(POOL_SIZE);
+    private final SpscRing<PowerBatch> powerBatches = new SpscRing<>(POOL_SIZE);
+    private final AdsbDemodulator demodulator;
+    private volatile IOException failure;
+    private boolean ended;
+
+    //Counters, each one being written by the thread of its stage only
+    private volatile long readBytes;
+    private volatile long computedPowerSamples;
+    private volatile long demodulatedPowerSamples;
+    private volatile long demodulatedMessages;
+
+    /**
+     * Builds a new pipeline demodulating the given stream of samples, and starts its reader and power threads.
+     *
+     * @param samplesStream the stream of samples to read from (cannot be null)
+     * @throws NullPointerException if the stream is null
+     * @throws IOException          if the stream cannot be read from (see {@link InputStream#readNBytes(byte[], int, int)})
+     */
+    public DemodulationPipeline(InputStream samplesStream) throws IOException {
+        this.samplesStream = Objects.requireNonNull(samplesStream, "Stream cannot be null");
+        for (int i = 0; i < POOL_SIZE; i++) {
+            emptyRawBatches.offer(ByteBuffer.allocate(RAW_BATCH_SIZE).order(ByteOrder.LITTLE_ENDIAN));
+            emptyPowerBatches.offer(new PowerBatch());
+        }
+        startStage(this::readSamples, "samples-reader");
+        startStage(this::computePower, "power-computer");
+
+        demodulator = new AdsbDemodulator(this::takePowerBatch);
+    }
+
+    /**
+     * Returns the next ADS-B message in the stream provided to the constructor.
+     *
+     * @return the next ADS-B message in the stream, or null if there are no more messages to read
+     * @throws IOException if the stream cannot be read from (see {@link InputStream#readNBytes(byte[], int, int)})
+     */
+    public RawMessage nextMessage() throws IOException {
+        RawMessage message = demodulator.nextMessage();
+        demodulatedPowerSamples = demodulator.position();
+        if (message != null) demodulatedMessages++;
+        return message;
+    }
+
+    /**
+     * Demodulates all the remaining ADS-B messages in the stream provided to the constructor, handing each one to the
+     * given sink without allocating (see {@link AdsbDemodulator#demodulate(RawMessageSink)}).
+     *
+     * @param sink the sink receiving the messages
+     * @return the number of messages handed to the sink
+     * @throws IOException if the stream cannot be read from (see {@link InputStream#readNBytes(byte[], int, int)})
+     */
+    public long demodulate(RawMessageSink sink) throws IOException {
+        long count = demodulator.demodulate((timeStampNs, high, low, correctedBits) -> {
+            demodulatedPowerSamples = demodulator.position();
+            demodulatedMessages++;
+            sink.accept(timeStampNs, high, low, correctedBits);
+        });
+        demodulatedPowerSamples = demodulator.position();
+        return count;
+    }
+
+    /**
+     * Sets the signal-to-noise ratio under which a preamble is rejected (see
+     * {@link AdsbDemodulator#setSnrThresholdDb(double)}). This method and the candidate counters must be called from
+     * the thread demodulating the messages.
+     *
+     * @param snrDb the smallest accepted signal-to-noise ratio in decibels, or {@link Double#NEGATIVE_INFINITY} to
+     *              accept all preambles (cannot be NaN or positive infinity)
+     * @throws IllegalArgumentException if the ratio is NaN or positive infinity
+     */
+    public void setSnrThresholdDb(double snrDb) {
+        demodulator.setSnrThresholdDb(snrDb);
+    }
+
+    /**
+     * Sets the largest number of flipped bits repaired in a message (see
+     * {@link AdsbDemodulator#setMaxCorrectedBits(int)}). Must be called from the thread demodulating the messages.
+     *
+     * @param maxCorrectedBits the largest number of bits to correct (between 0 and
+     *                         {@link ch.epfl.javions.adsb.ErrorCorrector#MAX_CORRECTED_BITS})
+     * @throws IllegalArgumentException if the number of bits is invalid
+     */
+    public void setMaxCorrectedBits(int maxCorrectedBits) {
+        demodulator.setMaxCorrectedBits(maxCorrectedBits);
+    }
+
+    /**
+     * Returns the number of preambles found so far (see {@link AdsbDemodulator#candidates()}).
+     *
+     * @return the number of candidate messages
+     */
+    public long candidates() {
+        return demodulator.candidates();
+    }
+
+    /**
+     * Returns the number of preambles rejected so far (see {@link AdsbDemodulator#rejectedCandidates()}).
+     *
+     * @return the number of candidates rejected by the signal-to-noise ratio threshold
+     */
+    public long rejectedCandidates() {
+        return demodulator.rejectedCandidates();
+    }
+
+    /**
+     * Returns the number of messages whose CRC was not valid so far (see {@link AdsbDemodulator#crcFailures()}).
+     *
+     * @return the number of candidates failing the CRC check
+     */
+    public long crcFailures() {
+        return demodulator.crcFailures();
+    }
+
+    /**
+     * Returns the number of messages repaired so far (see {@link AdsbDemodulator#correctedMessages()}).
+     *
+     * @return the number of messages whose CRC was made valid by correcting some of their bits
+     */
+    public long correctedMessages() {
+        return demodulator.correctedMessages();
+    }
+
+    /**
+     * Returns the number of bytes read from the stream by the reader stage so far.
+     *
+     * @return the number of bytes read
+     */
+    public long readBytes() {
+        return readBytes;
+    }
+
+    /**
+     * Returns the number of power samples computed by the power stage so far.
+     *
+     * @return the number of power samples computed
+     */
+    public long computedPowerSamples() {
+        return computedPowerSamples;
+    }
+
+    /**
+     * Returns the number of power samples the demodulation stage went past so far.
+     *
+     * @return the number of power samples demodulated
+     */
+    public long demodulatedPowerSamples() {
+        return demodulatedPowerSamples;
+    }
+
+    /**
+     * Returns the number of messages demodulated so far.
+     *
+     * @return the number of messages demodulated
+     */
+    public long demodulatedMessages() {
+        return demodulatedMessages;
+    }
+
+    /**
+     * Starts a daemon thread running the given stage.
+     *
+     * @param stage the stage to run
+     * @param name  the name of the thread
+     */
+    private static void startStage(Runnable stage, String name) {
+        Thread thread = new Thread(stage, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Reader stage: fills raw batches with the bytes of the stream, until the stream ends or cannot be read. The last
+     * batch sent is the first one which is not full.
+     */
+    private void readSamples() {
+        try {
+            boolean lastBatch = false;
+            while (!lastBatch) {
+                ByteBuffer batch = emptyRawBatches.take();
+                int length;
+                try {
+                    length = samplesStream.readNBytes(batch.array(), 0, batch.capacity());
+                } catch (IOException e) {
+                    failure = e;
+                    length = 0;
+                }
+                batch.limit(length).position(0);
+                readBytes += length;
+                lastBatch = length < batch.capacity();
+                rawBatches.put(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Power stage: turns the raw batches into batches of power samples, until the last raw batch.
+     */
+    private void computePower() {
+        var kernel = PowerKernel.create();
+        try {
+            boolean lastBatch = false;
+            while (!lastBatch) {
+                ByteBuffer raw = rawBatches.take();
+                PowerBatch batch = emptyPowerBatches.take();
+
+                lastBatch = raw.remaining() < RAW_BATCH_SIZE;
+                batch.size = kernel.compute(raw, batch.samples, 0);
+                batch.last = lastBatch;
+                computedPowerSamples += batch.size;
+
+                emptyRawBatches.put(raw);
+                powerBatches.put(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Demodulation stage: copies the next batch of power samples in the window of the demodulator. Once the last
+     * batch has been taken, no power sample is read anymore.
+     *
+     * @param target the array receiving the power samples
+     * @param offset the index at which the first power sample is written
+     * @return the number of power samples written
+     * @throws IOException if the stream could not be read from by the reader stage, or if the thread is
+     *                     interrupted while waiting for a batch
+     */
+    private int takePowerBatch(int[] target, int offset) throws IOException {
+        if (ended) return 0;
+
+        PowerBatch batch;
+        try {
+            batch = powerBatches.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for power samples");
+        }
+        int size = batch.size;
+        System.arraycopy(batch.samples, 0, target, offset, size);
+        ended = batch.last;
+        emptyPowerBatches.offer(batch); //never full, since it holds at most all the batches
+
+        if (ended && failure != null) throw failure;
+        return size;
+    }
+
+    /**
+     * A reusable batch of power samples.
+     */
+    private static final class PowerBatch {
+        private final int[] samples = new int[PowerWindow.BATCH_SIZE];
+        private int size;
+        private boolean last;
+    }
+}
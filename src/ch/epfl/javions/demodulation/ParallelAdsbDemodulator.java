@@ -0,0 +1,226 @@
+package ch.epfl.javions.demodulation;
+
+import ch.epfl.javions.Preconditions;
+import ch.epfl.javions.adsb.RawMessage;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import static ch.epfl.javions.demodulation.AdsbDemodulator.*;
+
+/**
+ * Demodulates the ADS-B messages of a recorded samples file in parallel, producing exactly the messages that an
+ * {@link AdsbDemodulator} reading the whole file would produce, in the same order.
+ * <p>
+ * The file is split into chunks which are scanned independently on a fork-join pool, each chunk reading a window
+ * beyond its end. The sequential demodulator skips a whole window after each message, and the first two positions
+ * it tests after a skip use the peaks computed before it. A chunk therefore records every message found with the
+ * regular preamble test, along with the messages that would be found right after a skip if that message were kept.
+ * The messages that the sequential demodulator keeps are then chosen in a single, cheap pass over these results,
+ * which also drops the duplicates found by neighbouring chunks.
+ *
+ * @author : Alexei Thornber (363088)
+ * @author : Zachary Doll (356458)
+ */
+public final class ParallelAdsbDemodulator {
+    /**
+     * The default number of power samples scanned by a single task.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 22;
+    //Each power sample is computed from two samples of two bytes each
+    private static final int BYTES_PER_POWER_SAMPLE = 2 * Short.BYTES;
+    //Number of power samples read before a chunk, so that its first peaks are computed from valid samples
+    private static final int LEAD_IN = 8;
+
+    private ParallelAdsbDemodulator() {
+    } // Prevents instantiation
+
+    /**
+     * Demodulates all the messages of the given samples file on the common fork-join pool.
+     *
+     * @param samplesFile the path of the file containing the samples
+     * @return the messages of the file, in timestamp order
+     * @throws IOException if the file cannot be read from
+     * @see #demodulate(Path, ForkJoinPool, int)
+     */
+    public static List<RawMessage> demodulate(Path samplesFile) throws IOException {
+        return demodulate(samplesFile, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Demodulates all the messages of the given samples file, splitting it into chunks scanned on the given pool.
+     *
+     * @param samplesFile the path of the file containing the samples
+     * @param pool        the pool on which the chunks are scanned
+     * @param chunkSize   the number of power samples scanned by a single task (must be strictly positive)
+     * @return the messages of the file, in timestamp order, equal to the ones returned one by one by
+     * {@link AdsbDemodulator#nextMessage()}
+     * @throws IllegalArgumentException if the chunk size is not strictly positive
+     * @throws IOException              if the file cannot be read from
+     */
+    public static List<RawMessage> demodulate(Path samplesFile, ForkJoinPool pool, int chunkSize)
+            throws IOException {
+        Preconditions.checkArgument(chunkSize > 0);
+
+        try (FileChannel channel = FileChannel.open(samplesFile)) {
+            long powerSamples = channel.size() / BYTES_PER_POWER_SAMPLE;
+
+            List<Callable<List<Hit>>> tasks = new ArrayList<>();
+            for (long start = 0; start < powerSamples; start += chunkSize) {
+                long chunkStart = start;
+                long chunkEnd = Math.min(start + chunkSize, powerSamples);
+                tasks.add(() -> scan(channel, chunkStart, chunkEnd));
+            }
+
+            List<Hit> hits = new ArrayList<>();
+            for (Future<List<Hit>> future : pool.invokeAll(tasks)) {
+                hits.addAll(future.get());
+            }
+            return keptMessages(hits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Demodulation interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) throw ioException;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Scans the positions of a chunk with the regular preamble test, and evaluates the positions following a skip
+     * for every message found.
+     *
+     * @param channel the channel containing the samples
+     * @param start   the first position of the chunk
+     * @param end     the position following the last one of the chunk
+     * @return the messages found at the positions of the chunk, in increasing order of position
+     * @throws IOException if the channel cannot be read from
+     */
+    private static List<Hit> scan(FileChannel channel, long start, long end) throws IOException {
+        long windowStart = Math.max(0, start - LEAD_IN);
+        var window = new PowerWindow(channel, windowStart * BYTES_PER_POWER_SAMPLE, WINDOW_SIZE);
+
+        List<Hit> hits = new ArrayList<>();
+        //the messages whose following skipped window has not been evaluated yet, in increasing order of position
+        List<Hit> pending = new ArrayList<>();
+        int currentPeak = 0;
+        int nextPeak = 0;
+
+        while (window.isFull()) {
+            long position = windowStart + window.position();
+            if (position >= end && pending.isEmpty()) break;
+
+            int previousPeak = currentPeak;
+            currentPeak = nextPeak;
+            nextPeak = peak(window, 1);
+
+            if (position >= start && position < end) {
+                Hit hit = hitAt(window, position, previousPeak, currentPeak, nextPeak);
+                if (hit != null) {
+                    hits.add(hit);
+                    pending.add(hit);
+                }
+            }
+
+            //positions tested right after a skip use the peaks that were current when the message was found
+            while (!pending.isEmpty() && pending.get(0).position + WINDOW_SIZE + 1 < position) {
+                pending.remove(0);
+            }
+            //messages found here are appended to the list, and are not evaluated again at this position
+            for (int i = 0, evaluated = pending.size(); i < evaluated; i++) {
+                Hit kept = pending.get(i);
+                if (position == kept.position + WINDOW_SIZE) {
+                    kept.afterSkip = hitAt(window, position, kept.currentPeak, kept.nextPeak, nextPeak);
+                    if (kept.afterSkip != null) pending.add(kept.afterSkip);
+                } else if (position == kept.position + WINDOW_SIZE + 1 && kept.afterSkip == null) {
+                    kept.afterSkipNext = hitAt(window, position, kept.nextPeak, currentPeak, nextPeak);
+                    if (kept.afterSkipNext != null) pending.add(kept.afterSkipNext);
+                }
+            }
+            window.advance();
+        }
+        return hits;
+    }
+
+    /**
+     * Returns the message found at the given position with the given peaks, if any.
+     *
+     * @param window       the window, starting at the given position
+     * @param position     the position of the window in the file
+     * @param previousPeak the previous peak
+     * @param currentPeak  the current peak
+     * @param nextPeak     the next peak
+     * @return the message found at the given position, or null if there is none
+     */
+    private static Hit hitAt(PowerWindow window, long position, int previousPeak, int currentPeak, int nextPeak) {
+        if (!isPreamble(previousPeak, currentPeak, nextPeak, window)) return null;
+
+        RawMessage message = decodeMessage(window, timeStampNs(position));
+        return message == null ? null : new Hit(position, message, currentPeak, nextPeak);
+    }
+
+    /**
+     * Chooses the messages kept by the sequential demodulator among the messages found by the chunks.
+     *
+     * @param hits the messages found with the regular preamble test, in increasing order of position
+     * @return the messages kept by the sequential demodulator
+     */
+    private static List<RawMessage> keptMessages(List<Hit> hits) {
+        List<RawMessage> messages = new ArrayList<>();
+        int index = 0;
+        Hit next = hits.isEmpty() ? null : hits.get(0);
+
+        while (next != null) {
+            messages.add(next.message);
+            Hit kept = next;
+
+            if (kept.afterSkip != null) {
+                next = kept.afterSkip;
+            } else if (kept.afterSkipNext != null) {
+                next = kept.afterSkipNext;
+            } else {
+                //from then on, positions are tested with the regular preamble test again
+                while (index < hits.size() && hits.get(index).position < kept.position + WINDOW_SIZE + 2) index++;
+                next = index < hits.size() ? hits.get(index) : null;
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * A message found at a given position, along with the messages found right after the window skipped if it is
+     * kept.
+     */
+    private static final class Hit {
+        private final long position;
+        private final RawMessage message;
+        //the peaks that were current when the message was found
+        private final int currentPeak;
+        private final int nextPeak;
+        private Hit afterSkip;
+        private Hit afterSkipNext;
+
+        /**
+         * Builds a new message found at the given position.
+         *
+         * @param position    the position of the message
+         * @param message     the message
+         * @param currentPeak the current peak when the message was found
+         * @param nextPeak    the next peak when the message was found
+         */
+        private Hit(long position, RawMessage message, int currentPeak, int nextPeak) {
+            this.position = position;
+            this.message = message;
+            this.currentPeak = currentPeak;
+            this.nextPeak = nextPeak;
+        }
+    }
+}
@@ -4,20 +4,20 @@ import ch.epfl.javions.Preconditions;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
 
 /**
  * Represents an object capable of computing the power of a signal from a stream of unsigned samples produced
- * by a {@link SamplesDecoder}.
+ * by a {@link SamplesDecoder}. The samples are decoded from the raw bytes and turned into power samples in a single
+ * pass, without going through an intermediate array of decoded samples.
  *
  * @author : Alexei Thornber (363088)
  * @author : Zachary Doll (356458)
  */
 public final class PowerComputer {
     private final int BATCH_SIZE;
-    private final int NB_OF_SAMPLES = 8; // Number of samples in a batch
-    private final short[] last8Samples; // Temporary array that will constantly be modified.
-
-    private final short[] decodedSamples; // Contains the decoded batch (sample of 12bits in big-endian notation)
+    private final static int NB_OF_SAMPLES = 8; // Number of samples in a batch
+    private final PowerKernel kernel;
     private final SamplesDecoder samplesDecoder;
 
 
@@ -30,13 +30,59 @@ public final class PowerComputer {
      * @throws IllegalArgumentException if the batch size is not a multiple of 8, or inferior or equal to 0
      */
     public PowerComputer(InputStream stream, int batchSize) {
-        Preconditions.checkArgument(batchSize % NB_OF_SAMPLES == 0);
-        Preconditions.checkArgument(batchSize > 0);
+        this(new SamplesDecoder(stream, checkedBatchSize(batchSize) * Short.BYTES), batchSize);
+    }
+
+    /**
+     * Builds a new power computer that computes the power samples of a recording read straight from the
+     * memory-mapped pages of the given channel, starting at its current position.
+     *
+     * @param channel   the channel to read the samples from
+     * @param batchSize the number of samples to read at once (must be a multiple of 8 and strictly positive)
+     * @throws IllegalArgumentException if the batch size is not a multiple of 8, or inferior or equal to 0
+     * @throws IOException              if the channel cannot be read from (see {@link SamplesDecoder})
+     */
+    public PowerComputer(FileChannel channel, int batchSize) throws IOException {
+        this(new SamplesDecoder(channel, checkedBatchSize(batchSize) * Short.BYTES), batchSize);
+    }
+
+    /**
+     * Builds a new power computer that computes the power samples of a recording read straight from the
+     * memory-mapped pages of the given channel, starting at the given position.
+     *
+     * @param channel   the channel to read the samples from
+     * @param start     the position in the channel of the first byte to read
+     * @param batchSize the number of samples to read at once (must be a multiple of 8 and strictly positive)
+     * @throws IllegalArgumentException if the batch size is not a multiple of 8, or inferior or equal to 0
+     * @throws IOException              if the channel cannot be read from (see {@link SamplesDecoder})
+     */
+    PowerComputer(FileChannel channel, long start, int batchSize) throws IOException {
+        this(new SamplesDecoder(channel, start, checkedBatchSize(batchSize) * Short.BYTES), batchSize);
+    }
 
+    /**
+     * Builds a new power computer reading its unsigned samples from the given decoder.
+     *
+     * @param samplesDecoder the decoder providing the samples
+     * @param batchSize      the number of power samples computed at once
+     */
+    private PowerComputer(SamplesDecoder samplesDecoder, int batchSize) {
         BATCH_SIZE = batchSize;
-        samplesDecoder = new SamplesDecoder(stream, batchSize * Short.BYTES);
-        decodedSamples = new short[batchSize * Short.BYTES];
-        last8Samples = new short[NB_OF_SAMPLES];
+        this.samplesDecoder = samplesDecoder;
+        kernel = PowerKernel.create();
+    }
+
+    /**
+     * Checks that the given batch size is a strictly positive multiple of 8.
+     *
+     * @param batchSize the batch size to check
+     * @return the given batch size
+     * @throws IllegalArgumentException if the batch size is not a multiple of 8, or inferior or equal to 0
+     */
+    private static int checkedBatchSize(int batchSize) {
+        Preconditions.checkArgument(batchSize % NB_OF_SAMPLES == 0);
+        Preconditions.checkArgument(batchSize > 0);
+        return batchSize;
     }
 
     /**
@@ -49,20 +95,20 @@ public final class PowerComputer {
      */
     public int readBatch(int[] batch) throws IOException {
         Preconditions.checkArgument(batch.length == BATCH_SIZE);
+        return readBatch(batch, 0);
+    }
 
-        int length = samplesDecoder.readBatch(decodedSamples);
-        int index = 0;
-
-        for (int i = 0; i < length / 2; i++) {
-            last8Samples[(2 * i) % (Byte.SIZE)] = decodedSamples[2 * i];
-            last8Samples[(2 * i + 1) % (Byte.SIZE)] = decodedSamples[(2 * i) + 1];
-
-            var sum1 = last8Samples[6] - last8Samples[4] + last8Samples[2] - last8Samples[0];
-            var sum2 = last8Samples[7] - last8Samples[5] + last8Samples[3] - last8Samples[1];
-            batch[i] = sum1 * sum1 + sum2 * sum2;
-
-            index++;
-        }
-        return index;
+    /**
+     * Reads the necessary number of samples from the stream and writes the power samples they produce in the given
+     * array, starting at the given offset.
+     *
+     * @param target the array receiving the power samples (must have room for {@link #BATCH_SIZE} samples after
+     *               the offset)
+     * @param offset the index at which the first power sample is written
+     * @return the number of samples placed in the array
+     * @throws IOException if the stream cannot be read from (see {@link InputStream#readNBytes(byte[], int, int)})
+     */
+    int readBatch(int[] target, int offset) throws IOException {
+        return kernel.compute(samplesDecoder.readRawBatch(), target, offset);
     }
-}
\ No newline at end of file
+}
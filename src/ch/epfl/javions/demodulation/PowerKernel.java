@@ -0,0 +1,131 @@
+package ch.epfl.javions.demodulation;
+
+import ch.epfl.javions.Preconditions;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Computes power samples straight from raw little-endian samples, in a single pass. Each power sample depends on the
+ * six samples preceding its own two, so the kernel keeps the last samples of a batch for the next one.
+ * <p>
+ * This scalar kernel is the one used unless the vectorized one is available. The vectorized kernel, which computes
+ * the same power samples with the incubating Vector API, lives in the separate source root {@code src-vector}, so that
+ * the main sources compile without any compiler option. It is compiled, and used by {@link #create()}, only when the
+ * Vector API module is added both at compile time and at run time:
+ * <pre>
+ *     javac --add-modules jdk.incubator.vector -d out $(find src src-vector test -name '*.java')
+ *     java --add-modules jdk.incubator.vector -cp out ...
+ * </pre>
+ *
+ * @author : Alexei Thornber (363088)
+ * @author : Zachary Doll (356458)
+ */
+class PowerKernel {
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String VECTOR_KERNEL = "ch.epfl.javions.demodulation.VectorPowerKernel";
+    //The class of the vectorized kernel, or null if it was not compiled or the Vector API module was not added
+    private static final Class<? extends PowerKernel> VECTOR_KERNEL_CLASS = vectorKernelClass();
+    //Whether the vectorized kernel can be created
+    static final boolean VECTOR_API_AVAILABLE = VECTOR_KERNEL_CLASS != null;
+    //Number of previous samples needed by the first power samples of a batch
+    private final static int HISTORY_SIZE = 6;
+    private final int[] history = new int[HISTORY_SIZE]; // The last samples of the previous batch, oldest first.
+
+    /**
+     * Constructs the scalar kernel, use {@link #create()} to get the fastest available one.
+     */
+    PowerKernel() {
+    }
+
+    /**
+     * Returns a new kernel, vectorized if the Vector API is available, scalar otherwise.
+     *
+     * @return a new kernel
+     */
+    static PowerKernel create() {
+        return create(VECTOR_API_AVAILABLE);
+    }
+
+    /**
+     * Returns a new kernel, vectorized or scalar.
+     *
+     * @param vectorized true to get a vectorized kernel, false to get a scalar one
+     * @return a new kernel
+     * @throws IllegalArgumentException if a vectorized kernel is requested while the Vector API is not available
+     */
+    static PowerKernel create(boolean vectorized) {
+        Preconditions.checkArgument(!vectorized || VECTOR_API_AVAILABLE);
+        if (!vectorized) return new PowerKernel();
+        try {
+            return VECTOR_KERNEL_CLASS.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("the vectorized kernel cannot be created", e);
+        }
+    }
+
+    /**
+     * Finds the class of the vectorized kernel, without initializing it, as it can only be linked when the Vector API
+     * module was added to the virtual machine.
+     *
+     * @return the class of the vectorized kernel, or null if the module was not added or the class was not compiled
+     */
+    private static Class<? extends PowerKernel> vectorKernelClass() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) return null;
+        try {
+            return Class.forName(VECTOR_KERNEL, false, PowerKernel.class.getClassLoader())
+                    .asSubclass(PowerKernel.class);
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the number of power samples computed at once.
+     *
+     * @return the number of power samples computed at once, one for the scalar kernel
+     */
+    int lanes() {
+        return 1;
+    }
+
+    /**
+     * Computes the power samples of the given raw batch, and writes them in the given array.
+     *
+     * @param raw    the raw batch, whose remaining bytes are pairs of little-endian samples
+     * @param target the array receiving the power samples (must have room for all of them after the offset)
+     * @param offset the index at which the first power sample is written
+     * @return the number of power samples written, one for every two samples of the batch
+     */
+    int compute(ByteBuffer raw, int[] target, int offset) {
+        int start = raw.position();
+        int count = raw.remaining() / (2 * Short.BYTES);
+
+        //the six previous samples are kept in local variables, s0 being the oldest one
+        int s0 = history[0], s1 = history[1], s2 = history[2], s3 = history[3], s4 = history[4], s5 = history[5];
+        for (int i = 0; i < count; i++) {
+            int index = start + i * 2 * Short.BYTES;
+            int s6 = SamplesDecoder.sampleAt(raw, index);
+            int s7 = SamplesDecoder.sampleAt(raw, index + Short.BYTES);
+
+            int sum1 = s6 - s4 + s2 - s0;
+            int sum2 = s7 - s5 + s3 - s1;
+            target[offset + i] = sum1 * sum1 + sum2 * sum2;
+
+            s0 = s2;
+            s1 = s3;
+            s2 = s4;
+            s3 = s5;
+            s4 = s6;
+            s5 = s7;
+        }
+
+        //keeping the last samples for the next batch
+        history[0] = s0;
+        history[1] = s1;
+        history[2] = s2;
+        history[3] = s3;
+        history[4] = s4;
+        history[5] = s5;
+        return count;
+    }
+}
@@ -0,0 +1,22 @@
+package ch.epfl.javions.demodulation;
+
+import java.io.IOException;
+
+/**
+ * Represents a source of batches of power samples, read by a {@link PowerWindow}.
+ *
+ * @author : Alexei Thornber (363088)
+ * @author : Zachary Doll (356458)
+ */
+interface PowerSource {
+
+    /**
+     * Writes the next batch of power samples in the given array, starting at the given offset.
+     *
+     * @param target the array receiving the power samples (must have room for a whole batch after the offset)
+     * @param offset the index at which the first power sample is written
+     * @return the number of power samples written, which is smaller than a whole batch only at the end of the source
+     * @throws IOException if the samples cannot be read
+     */
+    int readBatch(int[] target, int offset) throws IOException;
+}
@@ -4,24 +4,35 @@ import ch.epfl.javions.Preconditions;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.util.Objects;
 
 /**
  * Represents a fixed size window over a sequence of power samples produced by a {@link PowerComputer}.
+ * <p>
+ * The samples are stored in a ring of two batches, followed by a copy of the beginning of the first batch. A window
+ * starting in the second batch can thus run past the end of the ring without wrapping around, so that every sample
+ * of the window is a single array access away.
  *
  * @author : Alexei Thornber (363088)
  * @author : Zachary Doll (356458)
  */
 public final class PowerWindow {
 
-    //The size of a batch is 2^16
-    private final static int BATCH_SIZE = 1 << 16;
+    /**
+     * The number of power samples read at once, 2^16.
+     */
+    final static int BATCH_SIZE = 1 << 16;
+    private final static int RING_SIZE = 2 * BATCH_SIZE;
     private final int windowSize;
-    private final InputStream stream;
-    private final PowerComputer computer;
-    private int[] EvenBatch;
-    private int[] OddBatch;
+    private final PowerSource source;
+    //the two batches, followed by the mirrored beginning of the first one
+    private final int[] ring;
     private long posOfWindow;
-    private int size;
+    //the index in the ring of the first sample of the window
+    private int start;
+    private long size;
+    private long batchesRead;
 
 
     /**
@@ -33,16 +44,55 @@ public final class PowerWindow {
      * @throws IOException              if the stream cannot be read from (see {@link InputStream#readNBytes(byte[], int, int)})
      */
     public PowerWindow(InputStream stream, int windowSize) throws IOException {
+        this(new PowerComputer(stream, BATCH_SIZE)::readBatch, windowSize);
+    }
+
+    /**
+     * Builds a new window of the given size over the power samples of a recording read straight from the
+     * memory-mapped pages of the given channel, starting at its current position.
+     *
+     * @param channel    the channel to read from (cannot be null)
+     * @param windowSize the size of the window (must be positive and less than or equal to the batch size)
+     * @throws IllegalArgumentException if the window size is not positive or greater than the batch size
+     * @throws IOException              if the channel cannot be read from (see {@link SamplesDecoder})
+     */
+    public PowerWindow(FileChannel channel, int windowSize) throws IOException {
+        this(new PowerComputer(channel, BATCH_SIZE)::readBatch, windowSize);
+    }
+
+    /**
+     * Builds a new window of the given size over the power samples of a recording read straight from the
+     * memory-mapped pages of the given channel, starting at the given position. The position of the window is
+     * counted from that starting point.
+     *
+     * @param channel    the channel to read from (cannot be null)
+     * @param start      the position in the channel of the first byte to read
+     * @param windowSize the size of the window (must be positive and less than or equal to the batch size)
+     * @throws IllegalArgumentException if the window size is not positive or greater than the batch size
+     * @throws IOException              if the channel cannot be read from (see {@link SamplesDecoder})
+     */
+    PowerWindow(FileChannel channel, long start, int windowSize) throws IOException {
+        this(new PowerComputer(channel, start, BATCH_SIZE)::readBatch, windowSize);
+    }
+
+    /**
+     * Builds a new window of the given size over the power samples provided by the given source, in batches of
+     * {@link #BATCH_SIZE} samples.
+     *
+     * @param source     the source providing the power samples
+     * @param windowSize the size of the window (must be positive and less than or equal to the batch size)
+     * @throws IllegalArgumentException if the window size is not positive or greater than the batch size
+     * @throws IOException              if the first batch cannot be read
+     */
+    PowerWindow(PowerSource source, int windowSize) throws IOException {
         Preconditions.checkArgument(windowSize > 0 && windowSize <= BATCH_SIZE);
         this.windowSize = windowSize;
-        this.stream = stream;
-        EvenBatch = new int[BATCH_SIZE];
-        OddBatch = new int[BATCH_SIZE];
+        ring = new int[RING_SIZE + windowSize];
         posOfWindow = 0; //Window starts at index 0
 
-        //instantiates a new PowerComputer to read calculated power samples from the stream
-        this.computer = new PowerComputer(stream, BATCH_SIZE);
-        size = computer.readBatch(EvenBatch);
+        //reads calculated power samples from the given source
+        this.source = source;
+        readNextBatch();
     }
 
     /**
@@ -72,6 +122,16 @@ public final class PowerWindow {
         return windowSize + posOfWindow <= size;
     }
 
+    /**
+     * Returns the number of power samples read from the start of the window on, which may be less than the size of
+     * the window once the end of the stream is reached.
+     *
+     * @return the number of power samples available from the start of the window
+     */
+    long availableSamples() {
+        return size - posOfWindow;
+    }
+
     /**
      * Returns the value at a given index of the window.
      *
@@ -80,14 +140,8 @@ public final class PowerWindow {
      * @throws IndexOutOfBoundsException if the index is negative or greater than or equal to the window size
      */
     public int get(int i) {
-        if (i < 0 || i >= windowSize) {
-            throw new IndexOutOfBoundsException();
-        }
-        if (((posOfWindow % BATCH_SIZE) + i) >= BATCH_SIZE) {
-            return OddBatch[(int) ((posOfWindow % BATCH_SIZE) + i) % BATCH_SIZE];
-        } else {
-            return EvenBatch[(int) (posOfWindow % BATCH_SIZE) + i];
-        }
+        Objects.checkIndex(i, windowSize);
+        return ring[start + i];
     }
 
     /**
@@ -97,14 +151,8 @@ public final class PowerWindow {
      */
     public void advance() throws IOException {
         posOfWindow++;
-        if ((posOfWindow + windowSize) % BATCH_SIZE == 1) {
-            size += computer.readBatch(OddBatch);
-        }
-        if ((posOfWindow > 1) && ((posOfWindow % BATCH_SIZE) == 1)) {
-            int[] temp = EvenBatch;
-            EvenBatch = OddBatch;
-            OddBatch = temp;
-        }
+        if (++start == RING_SIZE) start = 0;
+        readMissingBatches();
     }
 
     /**
@@ -117,8 +165,33 @@ public final class PowerWindow {
      */
     public void advanceBy(int offset) throws IOException {
         Preconditions.checkArgument(offset >= 0);
-        for (int i = 0; i < offset; i++) {
-            advance();
+        posOfWindow += offset;
+        start = (int) (posOfWindow % RING_SIZE);
+        readMissingBatches();
+    }
+
+    /**
+     * Reads batches until the last sample of the window has been read, or would have been if the stream had not
+     * ended. Only the last two batches are kept, which is enough since a window is never larger than a batch.
+     *
+     * @throws IOException if the stream cannot be read from
+     */
+    private void readMissingBatches() throws IOException {
+        while (posOfWindow + windowSize > batchesRead * BATCH_SIZE) {
+            readNextBatch();
         }
     }
+
+    /**
+     * Reads the next batch into its half of the ring, and mirrors its beginning after the end of the ring if it is
+     * stored in the first half.
+     *
+     * @throws IOException if the stream cannot be read from
+     */
+    private void readNextBatch() throws IOException {
+        int offset = (int) (batchesRead % 2) * BATCH_SIZE;
+        size += source.readBatch(ring, offset);
+        if (offset == 0) System.arraycopy(ring, 0, ring, RING_SIZE, windowSize);
+        batchesRead++;
+    }
 }
@@ -0,0 +1,25 @@
+package ch.epfl.javions.demodulation;
+
+/**
+ * Represents a receiver of the raw ADS-B messages found by a demodulator, handed over as primitive values so that
+ * no object has to be allocated per message.
+ * <p>
+ * The 14 bytes of a message are packed in two longs, in big-endian order: the first 8 bytes form {@code high}, and
+ * the last 6 bytes form the 48 least significant bits of {@code low}, its 16 most significant bits being 0.
+ *
+ * @author : Alexei Thornber (363088)
+ * @author : Zachary Doll (356458)
+ */
+@FunctionalInterface
+public interface RawMessageSink {
+
+    /**
+     * Receives a message whose CRC has been checked.
+     *
+     * @param timeStampNs   the timestamp of the message in nanoseconds
+     * @param high          the first 8 bytes of the message
+     * @param low           the last 6 bytes of the message, in its 48 least significant bits
+     * @param correctedBits the number of bits of the message that were corrected to make its CRC valid
+     */
+    void accept(long timeStampNs, long high, long low, int correctedBits);
+}
@@ -1,24 +1,40 @@
 package ch.epfl.javions.demodulation;
 
-import ch.epfl.javions.Bits;
 import ch.epfl.javions.Preconditions;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Objects;
 
 /**
  * This class is used to decode samples, by transforming bytes transmitted by a radio into 12 bit unsigned samples.
+ * The bytes can either be read from an {@link InputStream}, or directly from the memory-mapped pages of a
+ * {@link FileChannel} when replaying a recording.
  *
  * @author : Alexei Thornber (363088)
  * @author : Zachary Doll (356458)
  */
 public final class SamplesDecoder {
 
+    //Largest region of a channel mapped at once, mappings are limited to Integer.MAX_VALUE bytes
+    private final static int MAX_REGION_SIZE = 1 << 30;
+    private final static ByteBuffer NO_BYTES = ByteBuffer.allocate(0);
     private final int BATCH_SIZE;
-    private final int BIAS = 2048;
-    private final byte[] bytes;
+    private final static int BIAS = 2048;
+    private final static int SAMPLE_MASK = (1 << 12) - 1;
     private final InputStream stream;
+    private final ByteBuffer streamBuffer;
+
+    private final FileChannel channel;
+    private final long channelEnd;
+    private final int regionSize;
+    private MappedByteBuffer region;
+    private long regionStart;
+    private long channelPosition;
 
 
     /**
@@ -35,33 +51,118 @@ public final class SamplesDecoder {
 
         this.stream = stream;
         this.BATCH_SIZE = batchSize;
-        this.bytes = new byte[batchSize * Short.BYTES];
+        this.streamBuffer = ByteBuffer.wrap(new byte[batchSize * Short.BYTES]).order(ByteOrder.LITTLE_ENDIAN);
+
+        this.channel = null;
+        this.channelEnd = 0;
+        this.regionSize = 0;
+    }
+
+    /**
+     * Creates a new decoder that decodes the samples straight from the memory-mapped content of the given channel,
+     * starting at its current position. The channel is mapped lazily, one region of at most 1 GiB at a time, and its
+     * position is left untouched.
+     *
+     * @param channel   the channel to read from (cannot be null)
+     * @param batchSize the number of samples to read at once (must be positive)
+     * @throws NullPointerException     if the channel is null
+     * @throws IllegalArgumentException if the batch size is not positive
+     * @throws IOException              if the position or size of the channel cannot be determined
+     */
+    public SamplesDecoder(FileChannel channel, int batchSize) throws IOException {
+        this(channel, Objects.requireNonNull(channel, "Channel cannot be null").position(), batchSize);
+    }
+
+    /**
+     * Creates a new decoder that decodes the samples straight from the memory-mapped content of the given channel,
+     * starting at the given position. The channel is mapped lazily and its position is neither read nor modified,
+     * so that several decoders can share the same channel.
+     *
+     * @param channel   the channel to read from (cannot be null)
+     * @param start     the position of the first byte to decode (must be positive)
+     * @param batchSize the number of samples to read at once (must be positive)
+     * @throws NullPointerException     if the channel is null
+     * @throws IllegalArgumentException if the start position is negative or the batch size is not positive
+     * @throws IOException              if the size of the channel cannot be determined
+     */
+    SamplesDecoder(FileChannel channel, long start, int batchSize) throws IOException {
+        Objects.requireNonNull(channel, "Channel cannot be null");
+        Preconditions.checkArgument(start >= 0 && batchSize > 0);
+
+        this.channel = channel;
+        this.BATCH_SIZE = batchSize;
+        this.channelPosition = start;
+        this.channelEnd = channel.size();
+        //regions hold a whole number of batches, so that a batch never straddles two mappings
+        int batchBytes = batchSize * Short.BYTES;
+        this.regionSize = Math.max(1, MAX_REGION_SIZE / batchBytes) * batchBytes;
+        this.regionStart = channelPosition;
+
+        this.stream = null;
+        this.streamBuffer = null;
     }
 
     /**
-     * Reads the number of bytes from the stored stream corresponding to the size of a batch and converts them into
+     * Reads the number of bytes from the stored source corresponding to the size of a batch and converts them into
      * signed 12 bit samples.
      *
      * @param batch the array to fill with the samples (must be of size {@link #BATCH_SIZE})
      * @return the number of successfully read samples
      * @throws IllegalArgumentException if the batch length is not equal to {@link #BATCH_SIZE}
-     * @throws IOException              if the stream cannot be read from (see {@link InputStream#readNBytes(byte[], int, int)})
+     * @throws IOException              if the source cannot be read from (see {@link InputStream#readNBytes(byte[], int, int)}
+     *                                  and {@link FileChannel#map(FileChannel.MapMode, long, long)})
      */
     public int readBatch(short[] batch) throws IOException {
         Preconditions.checkArgument(batch.length == BATCH_SIZE);
 
-        int readBytes = stream.readNBytes(bytes, 0, bytes.length);
-        int count = 0;
-        //reading two bytes per sample
-        for (int i = 0; i < readBytes; i += 2) {
-            var firstByte = bytes[i];
-            var secondByte = bytes[i + 1];
+        ByteBuffer raw = readRawBatch();
+        int start = raw.position();
+        int count = raw.remaining() / Short.BYTES;
+        for (int i = 0; i < count; i++) {
+            batch[i] = (short) sampleAt(raw, start + i * Short.BYTES);
+        }
+        return count;
+    }
+
+    /**
+     * Decodes the signed 12 bit sample stored in the two little-endian bytes at the given index of a raw batch.
+     *
+     * @param raw   the raw batch, as returned by {@link #readRawBatch()}
+     * @param index the index of the first byte of the sample
+     * @return the decoded sample, recentered around zero
+     */
+    static int sampleAt(ByteBuffer raw, int index) {
+        //reading two bytes per sample, the 4 msb of the second byte are ignored
+        int op = raw.getShort(index) & SAMPLE_MASK;
+        return op - BIAS; //recentering around zero by subtracting BIAS
+    }
+
+    /**
+     * Reads the raw bytes of the next batch, without decoding them. The returned buffer is owned by the decoder and
+     * is only valid until the next read.
+     *
+     * @return a little-endian buffer whose remaining bytes are the ones of the next batch
+     * @throws IOException if the source cannot be read from
+     */
+    ByteBuffer readRawBatch() throws IOException {
+        if (channel == null) {
+            int readBytes = stream.readNBytes(streamBuffer.array(), 0, streamBuffer.capacity());
+            return streamBuffer.limit(readBytes).position(0);
+        }
 
-            int op = (Bits.extractUInt(secondByte, 0, 4) << Byte.SIZE) | (firstByte & 0xFF);
-            op -= BIAS; //recentering around zero by subtracting BIAS
+        long batchEnd = Math.min(channelPosition + (long) BATCH_SIZE * Short.BYTES, channelEnd);
+        if (batchEnd <= channelPosition) return NO_BYTES;
 
-            batch[count++] = (short) op;
+        if (region == null || channelPosition >= regionStart + regionSize) {
+            if (region != null) regionStart += regionSize;
+            region = channel.map(FileChannel.MapMode.READ_ONLY,
+                    regionStart,
+                    Math.min(regionSize, channelEnd - regionStart));
+            region.order(ByteOrder.LITTLE_ENDIAN);
         }
-        return readBytes / 2;
+        int offset = (int) (channelPosition - regionStart);
+        region.limit(offset + (int) (batchEnd - channelPosition)).position(offset);
+        channelPosition = batchEnd;
+        return region;
     }
 }
@@ -0,0 +1,100 @@
+package ch.epfl.javions.demodulation;
+
+import ch.epfl.javions.Preconditions;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Represents a bounded, lock-free queue with a single producer thread and a single consumer thread. The producer
+ * only writes the tail and the consumer only writes the head, so that neither ever waits on a lock.
+ *
+ * @param <T> the type of the elements of the queue
+ * @author : Alexei Thornber (363088)
+ * @author : Zachary Doll (356458)
+ */
+final class SpscRing<T> {
+    //Number of busy-wait iterations before a waiting thread starts parking
+    private static final int SPINS = 1 << 10;
+    private static final long PARK_NS = 50_000;
+    private final Object[] slots;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong(); // index of the next element to take
+    private final AtomicLong tail = new AtomicLong(); // index of the next element to put
+
+    /**
+     * Builds a new empty queue of the given capacity.
+     *
+     * @param capacity the maximum number of elements in the queue (must be a strictly positive power of two)
+     * @throws IllegalArgumentException if the capacity is not a strictly positive power of two
+     */
+    SpscRing(int capacity) {
+        Preconditions.checkArgument(capacity > 0 && Integer.bitCount(capacity) == 1);
+        slots = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Adds the given element at the end of the queue, if it is not full. Must only be called by the producer.
+     *
+     * @param element the element to add
+     * @return true if the element was added, false if the queue is full
+     */
+    boolean offer(T element) {
+        long t = tail.get();
+        if (t - head.get() == slots.length) return false;
+        slots[(int) t & mask] = element;
+        tail.lazySet(t + 1); //publishes the element to the consumer
+        return true;
+    }
+
+    /**
+     * Removes the element at the head of the queue, if there is one. Must only be called by the consumer.
+     *
+     * @return the element at the head of the queue, or null if it is empty
+     */
+    @SuppressWarnings("unchecked")
+    T poll() {
+        long h = head.get();
+        if (h == tail.get()) return null;
+        int index = (int) h & mask;
+        T element = (T) slots[index];
+        slots[index] = null;
+        head.lazySet(h + 1); //hands the slot back to the producer
+        return element;
+    }
+
+    /**
+     * Adds the given element at the end of the queue, waiting for room if it is full.
+     *
+     * @param element the element to add
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    void put(T element) throws InterruptedException {
+        for (int attempt = 0; !offer(element); attempt++) idle(attempt);
+    }
+
+    /**
+     * Removes the element at the head of the queue, waiting for one if it is empty.
+     *
+     * @return the element at the head of the queue
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    T take() throws InterruptedException {
+        T element;
+        for (int attempt = 0; (element = poll()) == null; attempt++) idle(attempt);
+        return element;
+    }
+
+    /**
+     * Waits a little before the next attempt, by spinning first and then by parking the thread.
+     *
+     * @param attempt the number of failed attempts so far
+     * @throws InterruptedException if the thread is interrupted
+     */
+    private static void idle(int attempt) throws InterruptedException {
+        if (Thread.interrupted()) throw new InterruptedException();
+        if (attempt < SPINS) Thread.onSpinWait();
+        else LockSupport.parkNanos(PARK_NS);
+    }
+}
@@ -99,9 +99,7 @@ public final class AircraftController {
      */
     private SVGPath icon(ObservableAircraftState state) {
 
-        var data = state.getAircraftData();
-        var category = state.getCategory();
-        var icon = createIcon(data, category);
+        var icon = createIcon(state.getAircraftData(), state.getCategory());
         var output = new SVGPath();
 
         configureIcon(icon, output, state);
@@ -115,10 +113,13 @@ public final class AircraftController {
         // Update the icon if the category changes
         state.categoryProperty().addListener((obs, oldCat, newCat) -> {
             if (!(oldCat.equals(newCat))) {
-                AircraftIcon newIcon = createIcon(data, (Integer) newCat);
+                AircraftIcon newIcon = createIcon(state.getAircraftData(), (Integer) newCat);
                 configureIcon(newIcon, output, state);
             }
         });
+        // Update the icon once the data of the aircraft is found in the database
+        state.getAircraftDataProperty().addListener((obs, oldData, newData) ->
+                configureIcon(createIcon(newData, state.getCategory()), output, state));
         return output;
     }
 
@@ -135,7 +136,11 @@ public final class AircraftController {
         if (icon.canRotate()) {
             svgPath.rotateProperty().bind(Bindings.createDoubleBinding(() ->
                     convertTo(state.getTrackOrHeading(), DEGREE), state.getTrackOrHeadingProperty()));
-        } else svgPath.setRotate(0);
+        } else {
+            //the icon may have been rotating before its data or category changed
+            svgPath.rotateProperty().unbind();
+            svgPath.setRotate(0);
+        }
     }
 
     /**
@@ -0,0 +1,165 @@
+/**
+ * @author : Alexei Thornber (363088)
+ * @author : Zachary Doll (356458)
+ */
+
+package ch.epfl.javions.gui;
+
+import ch.epfl.javions.GeoPos;
+import ch.epfl.javions.adsb.AircraftStateSetter;
+import ch.epfl.javions.adsb.CallSign;
+import ch.epfl.javions.aircraft.IcaoAddress;
+import ch.epfl.javions.gui.ObservableAircraftState.AirbornePos;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.lang.Double.NaN;
+
+/**
+ * Represents the state of an aircraft as it is accumulated by the thread parsing the messages, without any JavaFX
+ * property, so that it can be updated outside the JavaFX thread. Its changes are handed to the
+ * {@link ObservableAircraftState} of the aircraft as {@link Snapshot}s.
+ * <p>
+ * The trajectory of the aircraft is built here, as each of its points depends on the order of the updates, which
+ * snapshots do not keep. Only the points which were not handed yet are kept.
+ */
+final class AircraftState implements AircraftStateSetter {
+    private final IcaoAddress icaoAddress;
+    private long lastMessageTimeStampNs;
+    private int category;
+    private CallSign callSign;
+    private GeoPos position;
+    //initially set to NaN because we don't know the altitude and velocity of the aircraft.
+    private double altitude = NaN;
+    private double velocity = NaN;
+    private double trackOrHeading;
+
+    private final List<AirbornePos> newTrajectoryPoints = new ArrayList<>();
+    private boolean replacesLastPoint;
+    private AirbornePos lastPoint;
+    private long lastPointTimeStampNs = -1;
+
+    /**
+     * Constructs the state of an aircraft of which no message was received yet.
+     *
+     * @param icaoAddress the ICAO address of the aircraft
+     */
+    AircraftState(IcaoAddress icaoAddress) {
+        this.icaoAddress = icaoAddress;
+    }
+
+    /**
+     * Returns the {@link IcaoAddress} of the aircraft.
+     *
+     * @return the ICAO address of the aircraft
+     */
+    IcaoAddress icaoAddress() {
+        return icaoAddress;
+    }
+
+    /**
+     * Returns the timestamp of the last message received from the aircraft.
+     *
+     * @return the timestamp of the last message in nanoseconds
+     */
+    long lastMessageTimeStampNs() {
+        return lastMessageTimeStampNs;
+    }
+
+    @Override
+    public void setLastMessageTimeStampNs(long timeStampNs) {
+        this.lastMessageTimeStampNs = timeStampNs;
+    }
+
+    @Override
+    public void setCategory(int category) {
+        this.category = category;
+    }
+
+    @Override
+    public void setCallSign(CallSign callSign) {
+        this.callSign = callSign;
+    }
+
+    @Override
+    public void setPosition(GeoPos position) {
+        this.position = position;
+        updateTrajectory();
+    }
+
+    @Override
+    public void setAltitude(double altitude) {
+        this.altitude = altitude;
+        updateTrajectory();
+    }
+
+    @Override
+    public void setVelocity(double velocity) {
+        this.velocity = velocity;
+    }
+
+    @Override
+    public void setTrackOrHeading(double trackOrHeading) {
+        this.trackOrHeading = trackOrHeading;
+    }
+
+    /**
+     * Updates the trajectory with the current position and altitude, if the position or altitude have changed.
+     * <p>
+     * If the position has changed, a new point is added to the trajectory. If the position has not changed but the
+     * altitude has, within the same message, the last point is replaced by one with the new altitude.
+     */
+    private void updateTrajectory() {
+        if (position == null || Double.isNaN(altitude))
+            return;
+
+        if (lastPoint == null || !position.equals(lastPoint.position())) {
+            lastPoint = new AirbornePos(position, altitude);
+            newTrajectoryPoints.add(lastPoint);
+            lastPointTimeStampNs = lastMessageTimeStampNs;
+
+        } else if (lastMessageTimeStampNs == lastPointTimeStampNs && altitude != lastPoint.altitude()) {
+            lastPoint = new AirbornePos(position, altitude);
+            //the last point may have been handed already, in which case the next snapshot replaces it
+            if (newTrajectoryPoints.isEmpty()) {
+                newTrajectoryPoints.add(lastPoint);
+                replacesLastPoint = true;
+            } else {
+                newTrajectoryPoints.set(newTrajectoryPoints.size() - 1, lastPoint);
+            }
+        }
+    }
+
+    /**
+     * Takes a snapshot of the state of the aircraft, holding the points of its trajectory added since the previous
+     * snapshot.
+     *
+     * @return the snapshot of the state
+     */
+    Snapshot snapshot() {
+        var snapshot = new Snapshot(lastMessageTimeStampNs, category, callSign, position, altitude, velocity,
+                trackOrHeading, List.copyOf(newTrajectoryPoints), replacesLastPoint);
+        newTrajectoryPoints.clear();
+        replacesLastPoint = false;
+        return snapshot;
+    }
+
+    /**
+     * The state of an aircraft at a given time, applied at once to its {@link ObservableAircraftState}.
+     *
+     * @param lastMessageTimeStampNs the timestamp of the last message received from the aircraft
+     * @param category               the category of the aircraft
+     * @param callSign               the call sign of the aircraft, or null if it is not known
+     * @param position               the position of the aircraft, or null if it is not known
+     * @param altitude               the altitude of the aircraft in meters, or NaN if it is not known
+     * @param velocity               the velocity of the aircraft in meters per second, or NaN if it is not known
+     * @param trackOrHeading         the track or heading of the aircraft in radians
+     * @param newTrajectoryPoints    the points added to the trajectory since the previous snapshot
+     * @param replacesLastPoint      true if the first new point replaces the last point of the trajectory
+     */
+    record Snapshot(long lastMessageTimeStampNs, int category, CallSign callSign, GeoPos position, double altitude,
+                    double velocity, double trackOrHeading, List<AirbornePos> newTrajectoryPoints,
+                    boolean replacesLastPoint) {
+    }
+}
@@ -5,18 +5,28 @@
 
 package ch.epfl.javions.gui;
 
+import ch.epfl.javions.GeoPos;
 import ch.epfl.javions.adsb.AircraftStateAccumulator;
+import ch.epfl.javions.adsb.AircraftStateSetter;
+import ch.epfl.javions.adsb.CallSign;
 import ch.epfl.javions.adsb.Message;
-import ch.epfl.javions.aircraft.AircraftData;
-import ch.epfl.javions.aircraft.AircraftDatabase;
+import ch.epfl.javions.adsb.MessageHandler;
+import ch.epfl.javions.adsb.MessageParser;
+import ch.epfl.javions.adsb.RawMessage;
+import ch.epfl.javions.aircraft.AircraftDataSource;
+import ch.epfl.javions.aircraft.AsyncAircraftDatabase;
 import ch.epfl.javions.aircraft.IcaoAddress;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableSet;
 
-import java.io.IOException;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
 
 import static ch.epfl.javions.Units.Time.MINUTE_IN_NS;
 import static java.util.Objects.requireNonNull;
@@ -24,12 +34,28 @@ import static java.util.Objects.requireNonNull;
 /**
  * Represents the manager of the aircraft states. Responsible for updating the state of the aircrafts and for
  * purging the states that have not been updated in the last minute, as well as updating the set of aircraft states.
+ * <p>
+ * The messages are parsed and accumulated by a thread receiving them, into {@link AircraftState}s which are not
+ * observable, so that the number of messages handled does not depend on the frame rate of the interface. The
+ * observable states are only updated on the JavaFX thread by {@link #applyUpdates()}, once per frame, with a single
+ * snapshot per aircraft updated since the previous frame, whatever the number of messages received from it.
+ * <p>
+ * The data of an aircraft is looked up in the database in the background when its observable state is created, so
+ * that a slow lookup never blocks the JavaFX thread. Its data is set on the JavaFX thread once the lookup is done.
  */
 public final class AircraftStateManager {
-    private final Map<IcaoAddress, AircraftStateAccumulator<ObservableAircraftState>> accumulators;
+    //guards the states accumulated by the receiving thread, and their changes not applied yet
+    private final Object lock = new Object();
+    private final Map<IcaoAddress, AircraftStateAccumulator<AircraftState>> accumulators;
+    private final Map<IcaoAddress, AircraftState> updatedStates = new HashMap<>();
+    private final Set<IcaoAddress> purgedAddresses = new HashSet<>();
+
+    private final Map<IcaoAddress, ObservableAircraftState> observableStates = new HashMap<>();
     private final ObservableSet<ObservableAircraftState> states;
     private final ObservableSet<ObservableAircraftState> unmodifiableStates;
-    private final AircraftDatabase database;
+    private final AsyncAircraftDatabase database;
+    private final GeoPos receiverPosition;
+    private final MessageHandler stateUpdater = new StateUpdater();
 
     //initially set to -1 to avoid purging the states before the first update.
     private long lastTimeStamp = -1;
@@ -39,8 +65,21 @@ public final class AircraftStateManager {
      *
      * @param database the database to use to get the aircraft data
      */
-    public AircraftStateManager(AircraftDatabase database) {
-        this.database = requireNonNull(database);
+    public AircraftStateManager(AircraftDataSource database) {
+        this(database, null);
+    }
+
+    /**
+     * Constructs a new {@link AircraftStateManager} object with the given database, which decodes the first
+     * positions of the aircraft relative to the given position of the receiver.
+     *
+     * @param database         the database to use to get the aircraft data
+     * @param receiverPosition the position of the receiver, or null if unknown
+     * @see AircraftStateAccumulator#AircraftStateAccumulator(AircraftStateSetter, GeoPos)
+     */
+    public AircraftStateManager(AircraftDataSource database, GeoPos receiverPosition) {
+        this.database = new AsyncAircraftDatabase(requireNonNull(database));
+        this.receiverPosition = receiverPosition;
         this.accumulators = new HashMap<>();
         this.states = FXCollections.observableSet();
         this.unmodifiableStates = FXCollections.unmodifiableObservableSet(states);
@@ -56,43 +95,166 @@ public final class AircraftStateManager {
     }
 
     /**
-     * Updates the state of the aircraft with the given message. If the aircraft is not in the database, it is added to
-     * the database. If the aircraft is not in the set of aircraft states, it is added to the set of aircraft states.
+     * Updates the state of the aircraft with the given message. If the aircraft is not known yet, its state is
+     * created. The observable state of the aircraft is only updated by the next call to {@link #applyUpdates()}.
+     * Can be called from any thread.
      *
      * @param message the message to update the state with
-     * @throws IOException if the database cannot be accessed (see {@link java.util.zip.ZipFile#getInputStream}
-     * @see AircraftDatabase#get(IcaoAddress) for the format of the returned data.
      */
-    public void updateWithMessage(Message message) throws IOException {
+    public void updateWithMessage(Message message) {
+        synchronized (lock) {
+            accumulatorOf(message.icaoAddress(), message.timeStampNs()).update(message);
+        }
+    }
+
+    /**
+     * Updates the state of the aircraft with the given raw message, which is decoded straight into the accumulator of
+     * the aircraft without building a {@link Message}. The observable state of the aircraft is only updated by the
+     * next call to {@link #applyUpdates()}. Can be called from any thread.
+     *
+     * @param rawMessage the raw message to update the state with
+     * @return true if the message was supported and valid, false otherwise, in which case no state is updated
+     * @see MessageParser#parse(RawMessage, MessageHandler)
+     */
+    public boolean updateWithRawMessage(RawMessage rawMessage) {
+        synchronized (lock) {
+            return MessageParser.parse(rawMessage, stateUpdater);
+        }
+    }
 
-        AircraftData data = database.get(message.icaoAddress());
-        AircraftStateAccumulator<ObservableAircraftState> stateAcc = accumulators.get(message.icaoAddress());
+    /**
+     * Returns the accumulator of the aircraft with the given address, creating it if the aircraft is not known yet,
+     * and marks its state as updated. Must be called while holding {@link #lock}.
+     *
+     * @param icaoAddress the address of the aircraft
+     * @param timeStampNs the timestamp of the message received from the aircraft
+     * @return the accumulator of the aircraft
+     */
+    private AircraftStateAccumulator<AircraftState> accumulatorOf(IcaoAddress icaoAddress, long timeStampNs) {
+        AircraftStateAccumulator<AircraftState> stateAcc = accumulators.get(icaoAddress);
 
         if (stateAcc == null) {
-            ObservableAircraftState accumulator = new ObservableAircraftState(message.icaoAddress(), data);
-            stateAcc = new AircraftStateAccumulator<>(accumulator);
-            accumulators.put(message.icaoAddress(), stateAcc);
+            stateAcc = new AircraftStateAccumulator<>(new AircraftState(icaoAddress), receiverPosition);
+            accumulators.put(icaoAddress, stateAcc);
+        }
+        updatedStates.put(icaoAddress, stateAcc.stateSetter());
+        lastTimeStamp = timeStampNs;
+        return stateAcc;
+    }
+
+    /**
+     * Applies to the observable states the updates and purges made since the previous call, with one snapshot per
+     * updated aircraft. The states of the aircrafts seen for the first time are created, and their data is looked up
+     * in the background. Must be called on the JavaFX thread, typically once per frame.
+     */
+    public void applyUpdates() {
+        List<IcaoAddress> purged;
+        Map<IcaoAddress, AircraftState.Snapshot> snapshots = new HashMap<>();
+
+        //the snapshots are taken while holding the lock, but applied without it, so as not to hold up the receiver
+        synchronized (lock) {
+            purged = List.copyOf(purgedAddresses);
+            purgedAddresses.clear();
+            for (AircraftState state : updatedStates.values()) snapshots.put(state.icaoAddress(), state.snapshot());
+            updatedStates.clear();
+        }
+
+        //purges come first, as an aircraft purged and heard from again since the last frame gets a new state
+        for (IcaoAddress icaoAddress : purged) {
+            ObservableAircraftState state = observableStates.remove(icaoAddress);
+            if (state != null) states.remove(state);
+        }
+        for (Map.Entry<IcaoAddress, AircraftState.Snapshot> snapshot : snapshots.entrySet()) {
+            ObservableAircraftState state = observableStates.computeIfAbsent(snapshot.getKey(), icaoAddress -> {
+                var newState = new ObservableAircraftState(icaoAddress, null);
+                lookUpData(newState);
+                return newState;
+            });
+            state.update(snapshot.getValue());
+            addIfPositioned(state);
         }
-        lastTimeStamp = message.timeStampNs();
-        stateAcc.update(message);
+    }
+
+    /**
+     * Looks up again the data of all the known aircrafts, for example after the database was reloaded, and updates
+     * their states once the lookups are done. The data of an aircraft is left unchanged if its lookup fails. Must be
+     * called on the JavaFX thread.
+     *
+     * @see ch.epfl.javions.aircraft.ReloadableAircraftDatabase#addReloadListener(Runnable)
+     */
+    public void refreshAircraftData() {
+        for (ObservableAircraftState state : observableStates.values()) {
+            lookUpData(state);
+        }
+    }
 
-        if (stateAcc.stateSetter().getPosition() != null)
-            states.add(stateAcc.stateSetter());
+    /**
+     * Looks up the data of an aircraft in the background, and sets it in its state on the JavaFX thread. If the lookup
+     * fails, the failure is reported on the standard error and the data of the aircraft is left unchanged, null if it
+     * was never found, until the next call to {@link #refreshAircraftData()} looks it up again.
+     *
+     * @param state the state of the aircraft
+     */
+    private void lookUpData(ObservableAircraftState state) {
+        IcaoAddress address = state.getIcaoAddress();
+        database.getAsync(address)
+                .thenAcceptAsync(state::setAircraftData, Platform::runLater)
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    System.err.printf("Could not look up the data of aircraft %s: %s%n", address.string(), cause);
+                    return null;
+                });
+    }
+
+    /**
+     * Adds the given state to the set of aircraft states once its position is known.
+     *
+     * @param state the observable state of the aircraft
+     */
+    private void addIfPositioned(ObservableAircraftState state) {
+        if (state.getPosition() != null)
+            states.add(state);
     }
 
     /**
-     * Purges the states from {@link #states} and {@link #accumulators} that have not been updated in the last minute.
+     * Purges the states from {@link #accumulators} that have not been updated in the last minute. They are removed
+     * from {@link #states} by the next call to {@link #applyUpdates()}. Can be called from any thread.
      */
     public void purge() {
-        Iterator<AircraftStateAccumulator<ObservableAircraftState>> it = accumulators.values().iterator();
-
-        while (it.hasNext()) {
-            AircraftStateAccumulator<ObservableAircraftState> state = it.next();
-            if (Math.abs(lastTimeStamp - state.stateSetter().getLastMessageTimeStampNs()) > MINUTE_IN_NS) {
-                it.remove();
-                states.remove(state.stateSetter());
-                accumulators.remove(state.stateSetter().getIcaoAddress());
+        synchronized (lock) {
+            Iterator<AircraftStateAccumulator<AircraftState>> it = accumulators.values().iterator();
+
+            while (it.hasNext()) {
+                AircraftState state = it.next().stateSetter();
+                if (Math.abs(lastTimeStamp - state.lastMessageTimeStampNs()) > MINUTE_IN_NS) {
+                    it.remove();
+                    updatedStates.remove(state.icaoAddress());
+                    purgedAddresses.add(state.icaoAddress());
+                }
             }
         }
     }
+
+    /**
+     * Forwards the content of the messages decoded by the parser to the accumulator of their aircraft. Only called
+     * while holding {@link #lock}.
+     */
+    private final class StateUpdater implements MessageHandler {
+
+        @Override
+        public void identification(long timeStampNs, IcaoAddress icaoAddress, int category, CallSign callSign) {
+            accumulatorOf(icaoAddress, timeStampNs).identification(timeStampNs, icaoAddress, category, callSign);
+        }
+
+        @Override
+        public void position(long timeStampNs, IcaoAddress icaoAddress, double altitude, int parity, double x,
+                             double y) {
+            accumulatorOf(icaoAddress, timeStampNs).position(timeStampNs, icaoAddress, altitude, parity, x, y);
+        }
+
+        @Override
+        public void velocity(long timeStampNs, IcaoAddress icaoAddress, double speed, double trackOrHeading) {
+            accumulatorOf(icaoAddress, timeStampNs).velocity(timeStampNs, icaoAddress, speed, trackOrHeading);
+        }
+    }
 }
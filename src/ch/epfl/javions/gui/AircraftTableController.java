@@ -9,7 +9,6 @@ import ch.epfl.javions.aircraft.*;
 import javafx.beans.binding.Bindings;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.ReadOnlyDoubleProperty;
-import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.beans.value.ObservableValue;
 import javafx.collections.ObservableSet;
 import javafx.collections.SetChangeListener;
@@ -148,26 +147,15 @@ public final class AircraftTableController {
                         state.getIcaoAddressProperty().map(IcaoAddress::string)),
                 createTextColumn("Call Sign", CALL_SIGN_COLUMN_WIDTH, state ->
                         state.getCallSignProperty().map(CallSign::string)),
-                createTextColumn("Registration", REG_COLUMN_WIDTH, state -> {
-                    AircraftData ad = state.getAircraftData();
-                    return ad == null ?
-                            readOnlyValue("") : readOnlyValue(ad.registration()).map(AircraftRegistration::string);
-                }),
-                createTextColumn("Model", MODEL_COLUMN_WIDTH, state -> {
-                    AircraftData ad = state.getAircraftData();
-                    return ad == null ?
-                            readOnlyValue("") : readOnlyValue(ad.model());
-                }),
-                createTextColumn("Type", TYPE_COLUMN_WIDTH, state -> {
-                    AircraftData ad = state.getAircraftData();
-                    return ad == null ? readOnlyValue("") :
-                            readOnlyValue(ad.typeDesignator()).map(AircraftTypeDesignator::string);
-                }),
-                createTextColumn("Description", DESC_COLUMN_WIDTH, state -> {
-                    AircraftData ad = state.getAircraftData();
-                    return ad == null ?
-                            readOnlyValue("") : readOnlyValue(ad.description()).map(AircraftDescription::string);
-                })
+                //the data of an aircraft may only be found after its state was added to the table
+                createTextColumn("Registration", REG_COLUMN_WIDTH, state -> state.getAircraftDataProperty()
+                        .map(AircraftData::registration).map(AircraftRegistration::string).orElse("")),
+                createTextColumn("Model", MODEL_COLUMN_WIDTH, state -> state.getAircraftDataProperty()
+                        .map(AircraftData::model).orElse("")),
+                createTextColumn("Type", TYPE_COLUMN_WIDTH, state -> state.getAircraftDataProperty()
+                        .map(AircraftData::typeDesignator).map(AircraftTypeDesignator::string).orElse("")),
+                createTextColumn("Description", DESC_COLUMN_WIDTH, state -> state.getAircraftDataProperty()
+                        .map(AircraftData::description).map(AircraftDescription::string).orElse(""))
         );
     }
 
@@ -268,17 +256,6 @@ public final class AircraftTableController {
         return column;
     }
 
-    /**
-     * Wraps the given value in an observable value that is always equal to the given value.
-     *
-     * @param e   the value to wrap
-     * @param <E> the type of the value
-     * @return an {@link ObservableValue<E>} value that is always equal to the given value
-     */
-    private <E> ObservableValue<E> readOnlyValue(E e) {
-        return new ReadOnlyObjectWrapper<>(e);
-    }
-
     //BONUS METHODS
 
     /**
@@ -7,17 +7,18 @@ package ch.epfl.javions.gui;
 
 import ch.epfl.javions.ByteString;
 import ch.epfl.javions.GeoPos;
+import ch.epfl.javions.Preconditions;
 import ch.epfl.javions.adsb.CallSign;
-import ch.epfl.javions.adsb.Message;
-import ch.epfl.javions.adsb.MessageParser;
+import ch.epfl.javions.adsb.DuplicateFilter;
 import ch.epfl.javions.adsb.RawMessage;
 import ch.epfl.javions.aircraft.AircraftData;
-import ch.epfl.javions.aircraft.AircraftDatabase;
 import ch.epfl.javions.aircraft.AircraftRegistration;
 import ch.epfl.javions.aircraft.IcaoAddress;
-import ch.epfl.javions.demodulation.AdsbDemodulator;
+import ch.epfl.javions.aircraft.ReloadableAircraftDatabase;
+import ch.epfl.javions.demodulation.DemodulationPipeline;
 import javafx.animation.AnimationTimer;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
 import javafx.beans.property.SimpleLongProperty;
 import javafx.beans.property.SimpleObjectProperty;
@@ -35,11 +36,15 @@ import java.io.*;
 import java.net.URL;
 import java.nio.file.Path;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 
+import static ch.epfl.javions.Units.Angle.DEGREE;
+import static ch.epfl.javions.Units.Angle.T32;
 import static ch.epfl.javions.Units.Time.MILLI_SECOND;
 import static ch.epfl.javions.Units.Time.NANO_SECOND;
 import static ch.epfl.javions.Units.convert;
@@ -61,6 +66,9 @@ public final class Main extends Application {
     public static final double TABLE_RST_HEIGHT = 0.5;
     public static final String TILE_SERVER = "tile.openstreetmap.org";
     public static final String CACHE = "tile-cache";
+    public static final String BINARY_DATABASE = "/aircraft.bin";
+    //Named parameter giving the position of the receiver, as --receiver=<latitude>,<longitude> in degrees
+    public static final String RECEIVER_PARAMETER = "receiver";
     private ChangeListener<GeoPos> listener = null;
     private ObservableAircraftState followedAircraft = null;
 
@@ -84,24 +92,32 @@ public final class Main extends Application {
 
         var dbURL = getClass().getResource("/aircraft.zip");
         assert dbURL != null;
+        //the binary database built by AircraftDatabaseConverter is used if present, as it is opened instantly
+        var binaryDbURL = getClass().getResource(BINARY_DATABASE);
 
-        var fileName = Path.of(dbURL.toURI()).toString();
-        var messageQueue = new ConcurrentLinkedQueue<RawMessage>();
+        var messageQueue = new LinkedBlockingQueue<RawMessage>();
         var messageCount = new SimpleLongProperty(0);
+        var receivedMessageCount = new AtomicLong();
 
-        Supplier<RawMessage> messageSupplier = getSupplier(getParameters().getRaw().isEmpty());
+        Supplier<RawMessage> messageSupplier = getSupplier(getParameters().getUnnamed().isEmpty());
 
         long startTime = System.nanoTime();
-        Thread thread = addMessagesToQueueThread(messageSupplier, messageQueue, startTime);
+        Thread thread = addMessagesToQueueThread(messageSupplier, new DuplicateFilter(), messageQueue, startTime);
         thread.setDaemon(true);
         thread.start();
 
         var sap = new SimpleObjectProperty<ObservableAircraftState>();
-        var db = new AircraftDatabase(fileName);
+        var db = new ReloadableAircraftDatabase(Path.of((binaryDbURL != null ? binaryDbURL : dbURL).toURI()));
         var tm = new TileManager(Path.of(CACHE), TILE_SERVER);
         var mp = new MapParameters(START_ZOOM, START_X, START_Y);
         var bmc = new BaseMapController(tm, mp);
-        var asm = new AircraftStateManager(db);
+        //the aircraft near the receiver are shown from their first position message if its position is given
+        var asm = new AircraftStateManager(db, receiverPosition(getParameters().getNamed().get(RECEIVER_PARAMETER)));
+        //the aircrafts already displayed get the data of the new registry once it is reloaded
+        db.addReloadListener(() -> Platform.runLater(asm::refreshAircraftData));
+        Thread ingestionThread = parseMessagesThread(messageQueue, asm, receivedMessageCount);
+        ingestionThread.setDaemon(true);
+        ingestionThread.start();
         var ac = new AircraftController(mp, asm.states(), sap);
         var atc = new AircraftTableController(asm.states(), sap);
 
@@ -139,55 +155,53 @@ public final class Main extends Application {
 
         new AnimationTimer() {
 
-            private long lastPurgeTime = 0;
-
             /**
              * {@inheritDoc}
              *
-             * Reads ten messages per second from the message queue, and updates the {@link AircraftStateManager}
-             * with them in real time according to their {@link Message#timeStampNs()}.
-             * Also calls {@link AircraftStateManager#purge()} every second.
+             * Applies to the displayed states the messages parsed since the previous frame, and updates the message
+             * count. The messages themselves are parsed by the ingestion thread, so that their number does not depend
+             * on the frame rate.
              */
             @Override
             public void handle(long now) {
-
-                if (messageQueue.isEmpty()) return;
-                try {
-                    for (int i = 0; i < 10; i++) {
-                        if (messageQueue.peek() != null) {
-                            Message m = MessageParser.parse(messageQueue.poll());
-                            if (m != null) {
-                                asm.updateWithMessage(m);
-                                //increment displayed message count by 1
-                                messageCount.set(messageCount.get() + 1);
-                            }
-                        }
-                    }
-                } catch (IOException e) {
-                    throw new UncheckedIOException(e);
-                }
-                //purge every second
-                long currentTime = System.nanoTime();
-                if (currentTime - lastPurgeTime >= convertTo(1, NANO_SECOND)) {
-                    asm.purge();
-                    lastPurgeTime = currentTime;
-                }
+                asm.applyUpdates();
+                messageCount.set(receivedMessageCount.get());
             }
         }.start();
     }
 
+    /**
+     * Parses the position of the receiver, given on the command line as {@code --receiver=<latitude>,<longitude>} in
+     * degrees.
+     *
+     * @param parameter the value of the parameter, or null if it was not given
+     * @return the position of the receiver, or null if the parameter was not given
+     * @throws IllegalArgumentException if the parameter is not made of two coordinates, or if the latitude is invalid
+     */
+    private static GeoPos receiverPosition(String parameter) {
+        if (parameter == null) return null;
+
+        String[] coordinates = parameter.split(",");
+        Preconditions.checkArgument(coordinates.length == 2);
+        double latitudeT32 = convert(Double.parseDouble(coordinates[0].trim()), DEGREE, T32);
+        double longitudeT32 = convert(Double.parseDouble(coordinates[1].trim()), DEGREE, T32);
+        //a longitude of 180 degrees wraps around to -180
+        return new GeoPos((int) Math.round(longitudeT32), (int) Math.round(latitudeT32));
+    }
+
     /**
      * Provides a Message Supplier that supplies the next message to be parsed.
      *
      * @param noFileGiven boolean indicating whether a file was given as a command line argument or not
      * @return a {@link Supplier<RawMessage>} that supplies the next {@link RawMessage} to be parsed
-     * @throws IOException if the stream passed to {@link AdsbDemodulator} cannot be read
-     * @see Parameters#getRaw() for details on how to determine whether a file was given as a command line argument
+     * @throws IOException if the stream passed to {@link DemodulationPipeline} cannot be read
+     * @see Parameters#getUnnamed() for details on how to determine whether a file was given as a command line
+     * argument
      */
     private Supplier<RawMessage> getSupplier(boolean noFileGiven) throws IOException {
 
         if (noFileGiven) {
-            var demodulator = new AdsbDemodulator(System.in);
+            var demodulator = new DemodulationPipeline(System.in);
             //read from standard input
             return () -> {
                 try {
@@ -201,7 +215,7 @@ public final class Main extends Application {
             try {
                 DataInputStream s = new DataInputStream(
                         new BufferedInputStream(
-                                new FileInputStream(getParameters().getRaw().get(0))));
+                                new FileInputStream(getParameters().getUnnamed().get(0))));
 
                 return () -> {
                     try {
@@ -225,8 +239,10 @@ public final class Main extends Application {
 
     /**
      * Creates a thread that adds messages from a Supplier to the message queue, and updates the message count.
+     * Duplicate messages are dropped before being queued.
      *
      * @param messageSupplier the message supplier that supplies the next message to be parsed
+     * @param duplicates      the filter detecting the duplicate messages, only used by the created thread
      * @param messageQueue    the message queue to which the messages are added
      * @param startTime       the start time of the application
      * @return a {@link Thread} that adds {@link RawMessage}s to the message queue and updates the message count
@@ -237,13 +253,15 @@ public final class Main extends Application {
      * thread is paused
      */
     private Thread addMessagesToQueueThread(Supplier<RawMessage> messageSupplier,
-                                            ConcurrentLinkedQueue<RawMessage> messageQueue,
+                                            DuplicateFilter duplicates,
+                                            BlockingQueue<RawMessage> messageQueue,
                                             long startTime) {
 
         return new Thread(() -> {
             while (true) {
                 RawMessage message = messageSupplier.get();
                 if (message == null) break;
+                if (duplicates.isDuplicate(message)) continue;
 
                 long elapsedTime = System.nanoTime() - startTime;
                 long timeDifference = message.timeStampNs() - elapsedTime;
@@ -263,6 +281,44 @@ public final class Main extends Application {
         });
     }
 
+    /**
+     * Creates a thread that takes the messages from the message queue as soon as they are received, and updates the
+     * {@link AircraftStateManager} with them, counting the valid ones. Also calls {@link AircraftStateManager#purge()}
+     * every second while messages are received.
+     *
+     * @param messageQueue the message queue from which the messages are taken
+     * @param asm          the {@link AircraftStateManager} updated with the messages
+     * @param messageCount the number of valid messages received, incremented by the created thread
+     * @return a {@link Thread} that parses the {@link RawMessage}s of the message queue
+     * @see AircraftStateManager#applyUpdates() for information on how the displayed states are updated
+     */
+    private Thread parseMessagesThread(BlockingQueue<RawMessage> messageQueue,
+                                       AircraftStateManager asm,
+                                       AtomicLong messageCount) {
+
+        return new Thread(() -> {
+            long lastPurgeTime = 0;
+            while (true) {
+                RawMessage message;
+                try {
+                    message = messageQueue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                //decoded straight into the state of the aircraft, without building a Message
+                if (asm.updateWithRawMessage(message)) messageCount.incrementAndGet();
+
+                //purge every second
+                long currentTime = System.nanoTime();
+                if (currentTime - lastPurgeTime >= convertTo(1, NANO_SECOND)) {
+                    asm.purge();
+                    lastPurgeTime = currentTime;
+                }
+            }
+        });
+    }
+
     /**
      * Centers the map on the selected aircraft, and selects it in the table upon double click.
      *
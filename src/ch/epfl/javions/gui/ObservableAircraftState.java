@@ -7,7 +7,6 @@ package ch.epfl.javions.gui;
 
 import ch.epfl.javions.GeoPos;
 import ch.epfl.javions.adsb.AirborneVelocityMessage;
-import ch.epfl.javions.adsb.AircraftStateSetter;
 import ch.epfl.javions.adsb.CallSign;
 import ch.epfl.javions.aircraft.AircraftData;
 import ch.epfl.javions.aircraft.IcaoAddress;
@@ -15,15 +14,20 @@ import javafx.beans.property.*;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
+import java.util.List;
+
 import static java.lang.Double.NaN;
 
 
 /**
  * Immutable class representing the state of an aircraft.
+ * <p>
+ * The state is accumulated outside the JavaFX thread by an {@link AircraftState}, and only updated on the JavaFX
+ * thread from its snapshots (see {@link #update(AircraftState.Snapshot)}).
  */
-public final class ObservableAircraftState implements AircraftStateSetter {
+public final class ObservableAircraftState {
 
-    private final AircraftData data;
+    private final ObjectProperty<AircraftData> data = new SimpleObjectProperty<>();
     private final IcaoAddress icaoAddress;
     private final LongProperty lastMessageTimeStampNs = new SimpleLongProperty();
     private final IntegerProperty category = new SimpleIntegerProperty();
@@ -37,31 +41,45 @@ public final class ObservableAircraftState implements AircraftStateSetter {
     //initially set to NaN because we don't know the velocity of the aircraft.
     private final DoubleProperty altitude = new SimpleDoubleProperty(NaN);
     private final DoubleProperty velocity = new SimpleDoubleProperty(NaN);
-    private long lastTimeStamp = -1;
 
 
     /**
      * Constructs a new ObservableAircraftState for an aircraft with the given Icao address and data.
      *
      * @param icaoAddress the Icao address of the aircraft
-     * @param data        the data of the aircraft
+     * @param data        the data of the aircraft, or null if it is not known (yet)
      */
     public ObservableAircraftState(IcaoAddress icaoAddress, AircraftData data) {
         this.icaoAddress = icaoAddress;
-        this.data = data;
+        this.data.set(data);
     }
 
     /**
      * Returns the {@link AircraftData} of an aircraft.
      *
-     * @return the aircraft data of an aircraft
+     * @return the aircraft data of an aircraft, or null if it is not known (yet)
      */
     public AircraftData getAircraftData() {
-        return data;
+        return data.get();
+    }
+
+    /**
+     * Sets the {@link AircraftData} of an aircraft, once it has been looked up.
+     *
+     * @param data the aircraft data of the aircraft, or null if it is unknown
+     */
+    public void setAircraftData(AircraftData data) {
+        this.data.set(data);
     }
 
+    /**
+     * Returns the {@link AircraftData} of an aircraft as a ReadOnlyObjectProperty, which changes when the data of the
+     * aircraft is found after its state was created.
+     *
+     * @return the aircraft data of an aircraft as a ReadOnlyObjectProperty
+     */
     public ReadOnlyObjectProperty<AircraftData> getAircraftDataProperty() {
-        return new SimpleObjectProperty<>(this.data);
+        return data;
     }
 
     /**
@@ -83,6 +101,24 @@ public final class ObservableAircraftState implements AircraftStateSetter {
     }
 
 
+    /**
+     * Updates the state of the aircraft with the given snapshot of its accumulated state. Must be called on the
+     * JavaFX thread, as the properties of the state are observed by the interface.
+     *
+     * @param snapshot the snapshot of the state, taken after the previous one given to this method
+     */
+    void update(AircraftState.Snapshot snapshot) {
+        setLastMessageTimeStampNs(snapshot.lastMessageTimeStampNs());
+        setCategory(snapshot.category());
+        setCallSign(snapshot.callSign());
+        if (snapshot.position() != null) setPosition(snapshot.position());
+        setAltitude(snapshot.altitude());
+        setVelocity(snapshot.velocity());
+        setTrackOrHeading(snapshot.trackOrHeading());
+        extendTrajectory(snapshot.newTrajectoryPoints(), snapshot.replacesLastPoint());
+    }
+
+
     //============================================================================================
     //=================================== TimeStamp ==============================================
     //============================================================================================
@@ -102,8 +138,7 @@ public final class ObservableAircraftState implements AircraftStateSetter {
      *
      * @param timeStampNs the new timestamp value in nanoseconds to be set to
      */
-    @Override
-    public void setLastMessageTimeStampNs(long timeStampNs) {
+    private void setLastMessageTimeStampNs(long timeStampNs) {
         this.lastMessageTimeStampNs.set(timeStampNs);
     }
 
@@ -136,8 +171,7 @@ public final class ObservableAircraftState implements AircraftStateSetter {
      *
      * @param category the new category value
      */
-    @Override
-    public void setCategory(int category) {
+    private void setCategory(int category) {
         this.category.set(category);
     }
 
@@ -170,8 +204,7 @@ public final class ObservableAircraftState implements AircraftStateSetter {
      *
      * @param callSign the new Call sign value
      */
-    @Override
-    public void setCallSign(CallSign callSign) {
+    private void setCallSign(CallSign callSign) {
         this.callSign.set(callSign);
     }
 
@@ -199,12 +232,10 @@ public final class ObservableAircraftState implements AircraftStateSetter {
      *
      * @param position the new position value as a {@link GeoPos} object
      */
-    @Override
-    public void setPosition(GeoPos position) {
+    private void setPosition(GeoPos position) {
         this.position.set(position);
         this.latitude.set(position.latitude());
         this.longitude.set(position.longitude());
-        updateTrajectory();
     }
 
 
@@ -256,10 +287,8 @@ public final class ObservableAircraftState implements AircraftStateSetter {
      *
      * @param altitude the new altitude value in meters
      */
-    @Override
-    public void setAltitude(double altitude) {
+    private void setAltitude(double altitude) {
         this.altitude.set(altitude);
-        updateTrajectory();
     }
 
     /**
@@ -291,8 +320,7 @@ public final class ObservableAircraftState implements AircraftStateSetter {
      *
      * @param velocity the new velocity value in meters per second
      */
-    @Override
-    public void setVelocity(double velocity) {
+    private void setVelocity(double velocity) {
         this.velocity.set(velocity);
     }
 
@@ -326,8 +354,7 @@ public final class ObservableAircraftState implements AircraftStateSetter {
      *
      * @param trackOrHeading the new track or heading value in radians
      */
-    @Override
-    public void setTrackOrHeading(double trackOrHeading) {
+    private void setTrackOrHeading(double trackOrHeading) {
         this.trackOrHeading.set(trackOrHeading);
     }
 
@@ -356,33 +383,22 @@ public final class ObservableAircraftState implements AircraftStateSetter {
     }
 
     /**
-     * Updates the trajectory list with the current position and altitude, if the position or altitude
-     * have changed.
-     * <p>
-     * If the position has changed, a new {@link AirbornePos} is added to the list. If the position
-     * has not changed but the altitude has, the last position is updated with the new altitude.
+     * Extends the trajectory list with the points added since the previous update.
      *
-     * @see AirbornePos for details on how the {@link #trajectory} is stored.
+     * @param newPoints         the points added to the trajectory
+     * @param replacesLastPoint true if the first point replaces the last point of the list, because only the altitude
+     *                          of the aircraft changed
+     * @see AircraftState for details on how the points of the {@link #trajectory} are chosen.
      */
-    private void updateTrajectory() {
-        GeoPos currentPos = position.get();
-        double currentAltitude = getAltitude();
-        long currentTimeStampNs = lastMessageTimeStampNs.get();
-
-        if (currentPos == null || Double.isNaN(currentAltitude))
+    private void extendTrajectory(List<AirbornePos> newPoints, boolean replacesLastPoint) {
+        if (newPoints.isEmpty())
             return;
 
-        boolean posChanged = !trajectory.isEmpty() &&
-                !currentPos.equals(trajectory.get(trajectory.size() - 1).position());
-
-        if (posChanged || trajectory.isEmpty()) {
-            trajectory.add(new AirbornePos(currentPos, currentAltitude));
-            lastTimeStamp = currentTimeStampNs;
-
-        } else if (currentTimeStampNs == lastTimeStamp &&
-                currentAltitude != trajectory.get(trajectory.size() - 1).altitude()) {
-            trajectory.set(trajectory.size() - 1, new AirbornePos(currentPos, currentAltitude));
-            lastTimeStamp = currentTimeStampNs;
+        if (replacesLastPoint && !trajectory.isEmpty()) {
+            trajectory.set(trajectory.size() - 1, newPoints.get(0));
+            trajectory.addAll(newPoints.subList(1, newPoints.size()));
+        } else {
+            trajectory.addAll(newPoints);
         }
     }
 
@@ -0,0 +1,112 @@
+package ch.epfl.javions;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Helpers shared by the benchmarks, which are plain programs timed with {@link System#nanoTime()}. They are compiled
+ * along with the sources, for example with:
+ * <pre>
+ *     javac -d out $(find src test -name '*.java')
+ * </pre>
+ * or, to include the vectorized kernel of the {@code src-vector} source root (see
+ * {@code ch.epfl.javions.demodulation.PowerKernel}), with:
+ * <pre>
+ *     javac --add-modules jdk.incubator.vector -d out $(find src src-vector test -name '*.java')
+ * </pre>
+ * <p>
+ * Variants of the same code are timed in separate virtual machines (see {@link #fork(Class, List, String...)}),
+ * as the JIT compiler specializes code for the types it saw first, so that a variant timed after another one in the
+ * same virtual machine may run slower than it would on its own.
+ *
+ * @author : Alexei Thornber (363088)
+ * @author : Zachary Doll (356458)
+ */
+public final class Benchmarks {
+    private static final int WARMUP_RUNS = 5;
+    private static final int MEASURED_RUNS = 11;
+
+    private Benchmarks() {
+    } // Prevents instantiation
+
+    /**
+     * A run of a benchmark, returning a checksum of what it computed so that it is not optimized away.
+     */
+    @FunctionalInterface
+    public interface Run {
+        long run() throws Exception;
+    }
+
+    /**
+     * Times the given run, after warming it up, and prints its median duration and throughput.
+     *
+     * @param name     the name of the run
+     * @param units    the number of units processed by a run
+     * @param unitName the name of the units, used to print the throughput
+     * @param run      the run
+     * @return the median duration of a run, in nanoseconds
+     * @throws Exception if the run fails
+     */
+    public static long time(String name, double units, String unitName, Run run) throws Exception {
+        long checksum = 0;
+        for (int i = 0; i < WARMUP_RUNS; i++) checksum += run.run();
+
+        long[] durations = new long[MEASURED_RUNS];
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long start = System.nanoTime();
+            checksum += run.run();
+            durations[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(durations);
+        long median = durations[MEASURED_RUNS / 2];
+        System.out.printf("%-36s %9.2f ms  %12.1f %s/s   (checksum %x)%n",
+                name, median / 1e6, units / (median / 1e9), unitName, checksum);
+        return median;
+    }
+
+    /**
+     * Runs the given benchmark once per mode, each time in a new virtual machine with the same class path, the mode
+     * being given as first argument, followed by the given arguments.
+     *
+     * @param benchmark the class of the benchmark, with a main method
+     * @param modes     the modes to run
+     * @param args      the arguments following the mode
+     * @throws IOException if a virtual machine cannot be started, or fails
+     */
+    public static void fork(Class<?> benchmark, List<String> modes, String... args) throws IOException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        for (String mode : modes) {
+            List<String> command = new ArrayList<>(List.of(java, "-cp", System.getProperty("java.class.path")));
+            command.addAll(moduleOptions());
+            command.add(benchmark.getName());
+            command.add(mode);
+            command.addAll(List.of(args));
+
+            Process process = new ProcessBuilder(command).inheritIO().start();
+            try {
+                if (process.waitFor() != 0) throw new IOException("benchmark failed in mode " + mode);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+        }
+    }
+
+    /**
+     * Returns the module options of the current virtual machine, such as the incubator modules it was started with,
+     * which the forked virtual machines need too.
+     *
+     * @return the module options
+     */
+    private static List<String> moduleOptions() {
+        List<String> options = new ArrayList<>();
+        for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (argument.startsWith("--add-modules")) options.add(argument);
+        }
+        return options;
+    }
+}
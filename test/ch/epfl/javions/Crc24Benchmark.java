@@ -0,0 +1,156 @@
+package ch.epfl.javions;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the throughput of the ways of computing the CRC of ADS-B messages of 14 bytes: the original byte-wise
+ * computation, {@link Crc24#crc(byte[])} eight bytes at a time, and the fixed-length
+ * {@link Crc24#messageCrc(byte[], int)} and {@link Crc24#messageCrc(long, long)}, after checking that all of them
+ * give the same CRCs. Each way is timed in its own virtual machine.
+ * <pre>
+ *     java -cp out ch.epfl.javions.Crc24Benchmark
+ * </pre>
+ *
+ * @author : Alexei Thornber (363088)
+ * @author : Zachary Doll (356458)
+ */
+final class Crc24Benchmark {
+    private static final String BYTEWISE = "bytewise";
+    private static final String SLICED = "sliced";
+    private static final String MESSAGE_BYTES = "messageCrc(byte[])";
+    private static final String MESSAGE_LONGS = "messageCrc(long,long)";
+    private static final int MESSAGES = 1 << 16;
+    private static final int ROUNDS = 16;
+    private static final int LENGTH = 14;
+    private static final int CRC_SIZE = 24;
+    private static final Crc24 CRC = new Crc24(Crc24.GENERATOR);
+    //The table of the CRCs of single bytes, used by the byte-wise computation
+    private static final int[] BYTEWISE_TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < BYTEWISE_TABLE.length; i++) BYTEWISE_TABLE[i] = CRC.crc(new byte[]{(byte) i});
+    }
+
+    private Crc24Benchmark() {
+    } // Prevents instantiation
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) {
+            run(args[0]);
+            return;
+        }
+        Messages messages = messages();
+        for (int i = 0; i < MESSAGES; i++) {
+            int expected = bytewiseCrc(BYTEWISE_TABLE, messages.bytes, i * LENGTH, LENGTH);
+            byte[] message = Arrays.copyOfRange(messages.bytes, i * LENGTH, (i + 1) * LENGTH);
+            if (CRC.crc(message) != expected
+                    || CRC.messageCrc(messages.bytes, i * LENGTH) != expected
+                    || CRC.messageCrc(messages.highs[i], messages.lows[i]) != expected)
+                throw new AssertionError("different CRCs for message " + i);
+        }
+        Benchmarks.fork(Crc24Benchmark.class, List.of(BYTEWISE, SLICED, MESSAGE_BYTES, MESSAGE_LONGS));
+    }
+
+    /**
+     * Random messages, stored one after the other in an array, and packed in two longs as in a raw message.
+     *
+     * @param bytes the messages, one after the other
+     * @param highs the first 8 bytes of every message
+     * @param lows  the last 6 bytes of every message
+     */
+    private record Messages(byte[] bytes, long[] highs, long[] lows) {
+    }
+
+    /**
+     * Times the computation of the CRCs of random messages in the given way.
+     *
+     * @param mode the way of computing the CRCs
+     * @throws Exception if a run fails
+     */
+    private static void run(String mode) throws Exception {
+        Messages m = messages();
+        double crcs = (double) MESSAGES * ROUNDS;
+        Benchmarks.Run run = switch (mode) {
+            case BYTEWISE -> () -> {
+                long checksum = 0;
+                for (int r = 0; r < ROUNDS; r++) {
+                    for (int i = 0; i < MESSAGES; i++)
+                        checksum += bytewiseCrc(BYTEWISE_TABLE, m.bytes, i * LENGTH, LENGTH);
+                }
+                return checksum;
+            };
+            case SLICED -> {
+                //crc(byte[]) needs an array per message, built once
+                byte[][] arrays = new byte[MESSAGES][];
+                for (int i = 0; i < MESSAGES; i++)
+                    arrays[i] = Arrays.copyOfRange(m.bytes, i * LENGTH, (i + 1) * LENGTH);
+                yield () -> {
+                    long checksum = 0;
+                    for (int r = 0; r < ROUNDS; r++) {
+                        for (byte[] array : arrays) checksum += CRC.crc(array);
+                    }
+                    return checksum;
+                };
+            }
+            case MESSAGE_BYTES -> () -> {
+                long checksum = 0;
+                for (int r = 0; r < ROUNDS; r++) {
+                    for (int i = 0; i < MESSAGES; i++) checksum += CRC.messageCrc(m.bytes, i * LENGTH);
+                }
+                return checksum;
+            };
+            case MESSAGE_LONGS -> () -> {
+                long checksum = 0;
+                for (int r = 0; r < ROUNDS; r++) {
+                    for (int i = 0; i < MESSAGES; i++) checksum += CRC.messageCrc(m.highs[i], m.lows[i]);
+                }
+                return checksum;
+            };
+            default -> throw new IllegalArgumentException(mode);
+        };
+        Benchmarks.time(mode, crcs / 1e6, "M CRCs", run);
+    }
+
+    /**
+     * Draws the random messages.
+     *
+     * @return the messages
+     */
+    private static Messages messages() {
+        byte[] bytes = new byte[MESSAGES * LENGTH];
+        new Random(1).nextBytes(bytes);
+        long[] highs = new long[MESSAGES];
+        long[] lows = new long[MESSAGES];
+        for (int i = 0; i < MESSAGES; i++) {
+            for (int j = 0; j < LENGTH; j++) {
+                long b = Byte.toUnsignedLong(bytes[i * LENGTH + j]);
+                if (j < Long.BYTES) highs[i] = (highs[i] << Byte.SIZE) | b;
+                else lows[i] = (lows[i] << Byte.SIZE) | b;
+            }
+        }
+        return new Messages(bytes, highs, lows);
+    }
+
+    /**
+     * Computes a CRC one byte at a time, as {@link Crc24#crc(byte[])} originally did.
+     *
+     * @param table  the table of the CRCs of single bytes
+     * @param bytes  the array containing the message
+     * @param offset the index of the first byte of the message
+     * @param length the length of the message
+     * @return the 24 bit CRC of the message
+     */
+    private static int bytewiseCrc(int[] table, byte[] bytes, int offset, int length) {
+        int crc = 0;
+        for (int i = offset; i < offset + length; i++) {
+            int tabIdx = table[Bits.extractUInt(crc, (CRC_SIZE - Byte.SIZE), Byte.SIZE)];
+            crc = ((crc << Byte.SIZE) | Byte.toUnsignedInt(bytes[i])) ^ tabIdx;
+        }
+        for (int j = 0; j < 3; j++) {
+            crc = ((crc << Byte.SIZE) ^ table[Bits.extractUInt(crc, (CRC_SIZE - Byte.SIZE), Byte.SIZE)]);
+        }
+        return Bits.extractUInt(crc, 0, CRC_SIZE);
+    }
+}
@@ -0,0 +1,173 @@
+package ch.epfl.javions.adsb;
+
+import ch.epfl.javions.Bits;
+import ch.epfl.javions.Units;
+
+import java.util.HexFormat;
+import java.util.Random;
+
+/**
+ * Checks that the position messages decoded through the table of altitudes match a verbatim copy of the decoders the
+ * table replaced, kept here as an oracle independent of {@link AirbornePositionMessage}, for all 4096 values of the
+ * altitude attribute, with both parities and random coordinates: a message is rejected exactly when its altitude is
+ * invalid, and its altitude, parity and coordinates are the expected ones. The altitudes of two example messages of
+ * the handout, one with Q equal to 1 and one with Q equal to 0, are also checked.
+ * <pre>
+ *     java -cp out ch.epfl.javions.adsb.AirbornePositionMessageTest
+ * </pre>
+ *
+ * @author : Alexei Thornber (363088)
+ * @author : Zachary Doll (356458)
+ */
+final class AirbornePositionMessageTest {
+    private static final int ALTITUDE_VALUES = 1 << 12;
+    private static final int COORD_LENGTH = 17;
+    //Example messages of the handout, and their altitudes in meters
+    private static final String[] HANDOUT_MESSAGES = {"8D39203559B225F07550ADBE328F", "8DAE02C85864A5F5DD4975A1A3F5"};
+    private static final double[] HANDOUT_ALTITUDES = {3474.72, 7315.20};
+    private static final double HANDOUT_TOLERANCE = 1e-6;
+
+    //Constants of the baseline decoders
+    private static final int ALTITUDE_SIZE = 12;
+    private static final int Q_IDX = 4;
+    private static final int STRONG_SIZE = (ALTITUDE_SIZE - Q_IDX) + 1;
+    private static final int WEAK_SIZE = ALTITUDE_SIZE - STRONG_SIZE;
+    private static final int[] REORDERED_INDICES = {7, 9, 11, 1, 3, 5, 6, 8, 10, 0, 2, 4};
+
+    private AirbornePositionMessageTest() {
+    } // Prevents instantiation
+
+    public static void main(String[] args) {
+        checkHandoutMessages();
+
+        Random random = new Random(2023);
+        int valid = 0;
+        for (int alt = 0; alt < ALTITUDE_VALUES; alt++) {
+            for (int parity = 0; parity <= 1; parity++) {
+                int lat = random.nextInt(1 << COORD_LENGTH);
+                int lon = random.nextInt(1 << COORD_LENGTH);
+                int typeCode = 9 + random.nextInt(10);
+                long payload = (long) typeCode << 51 | (long) alt << 36 | (long) parity << 34
+                        | (long) lat << COORD_LENGTH | lon;
+                var message = AirbornePositionMessage.of(rawMessage(payload));
+
+                double expected = Bits.testBit(alt, Q_IDX) ? decodeAltitudeQ1(alt) : decodeAltitudeQ0(alt);
+                if (Double.isNaN(expected)) {
+                    if (message != null) throw new AssertionError("invalid altitude %d accepted".formatted(alt));
+                    continue;
+                }
+                if (message == null) throw new AssertionError("valid altitude %d rejected".formatted(alt));
+                if (Double.compare(message.altitude(), expected) != 0
+                        || message.parity() != parity
+                        || message.y() != Math.scalb((double) lat, -COORD_LENGTH)
+                        || message.x() != Math.scalb((double) lon, -COORD_LENGTH))
+                    throw new AssertionError("altitude %d: %s".formatted(alt, message));
+                valid++;
+            }
+        }
+        System.out.printf("all %d altitude values match the baseline decoders (%d valid), handout examples match%n",
+                ALTITUDE_VALUES, valid / 2);
+    }
+
+    /**
+     * Checks the altitudes of the example messages of the handout.
+     */
+    private static void checkHandoutMessages() {
+        for (int i = 0; i < HANDOUT_MESSAGES.length; i++) {
+            RawMessage rawMessage = RawMessage.of(0, HexFormat.of().parseHex(HANDOUT_MESSAGES[i]));
+            var message = rawMessage == null ? null : AirbornePositionMessage.of(rawMessage);
+            if (message == null || Math.abs(message.altitude() - HANDOUT_ALTITUDES[i]) > HANDOUT_TOLERANCE)
+                throw new AssertionError("handout message %s: %s".formatted(HANDOUT_MESSAGES[i], message));
+        }
+    }
+
+    /**
+     * Builds an ADS-B raw message with the given payload.
+     *
+     * @param payload the 56 bit payload
+     * @return the raw message
+     */
+    private static RawMessage rawMessage(long payload) {
+        //DF 17 and an ICAO address in the first 4 bytes, then the first 4 bytes of the payload
+        long high = 0x8D_4B1814L << 32 | payload >>> 24;
+        long low = (payload & 0xFF_FFFFL) << 24;
+        return new RawMessage(0, high, low, 0);
+    }
+
+    //The decoders below are copied verbatim from AirbornePositionMessage as it was before the table of altitudes
+
+    /**
+     * Returns the altitude for the specific case where the bit at index {@link #Q_IDX} of the altitude attribute is
+     * equal to 1.
+     *
+     * @param alt the altitude of the aircraft attribute of the message
+     * @return the altitude of the aircraft in meters
+     */
+    private static double decodeAltitudeQ1(int alt) {
+
+        int left = Bits.extractUInt(alt, 5, ALTITUDE_SIZE - Q_IDX);
+        int right = Bits.extractUInt(alt, 0, Q_IDX);
+        alt = (left << 4) | right;
+        //formula from the handout
+        return Units.convertFrom((-1000 + (alt * 25)), Units.Length.FOOT);
+    }
+
+    /**
+     * Returns the altitude for the specific case where the bit at index {@link #Q_IDX} of the altitude attribute is
+     * equal to 0.
+     *
+     * @param alt the altitude of the aircraft attribute of the message
+     * @return the altitude of the aircraft in meters if it is valid (if the gray code value of the 3 least significant
+     * bits of the alt attribute is not 0, 5 or 6), NaN otherwise
+     */
+    private static double decodeAltitudeQ0(int alt) {
+
+        alt = reorder(alt);
+        //taking the 9 most significant bits of alt attribute
+        int strongBits = decodeGray(Bits.extractUInt(alt, WEAK_SIZE, STRONG_SIZE));
+        //taking the 3 least significant bits of alt attribute
+        int weakBits = decodeGray(Bits.extractUInt(alt, 0, WEAK_SIZE));
+
+        //if the weak bits are 0, 5 or 6, the altitude is defined as invalid
+        if (weakBits == 0 || weakBits == 5 || weakBits == 6)
+            return Double.NaN;
+        else if (weakBits == 7)
+            weakBits = 5;
+
+        //if the Gray code value of the 9 most significant bits is odd, the weak bits are reflected
+        if (strongBits % 2 != 0)
+            weakBits = 6 - weakBits;
+        //formula from the handout
+        return Units.convertFrom(-1300 + (weakBits * 100) + (strongBits * 500), Units.Length.FOOT);
+    }
+
+    /**
+     * Reorders the 12 bits of an inputted integer in the order specified by the indices array.
+     *
+     * @param n the number to rearrange in specified format
+     * @return the rearranged number
+     */
+    private static int reorder(int n) {
+        int reordered = 0;
+
+        for (int i = 0; i < REORDERED_INDICES.length; i++) {
+            int bit = (n >> REORDERED_INDICES[i]) & 1;
+            reordered |= bit << i;
+        }
+
+        return reordered;
+    }
+
+    /**
+     * Interprets a given integer as a gray code and decodes it.
+     *
+     * @param gray the gray code to decode
+     * @return the decoded gray code value of the given integer
+     */
+    private static int decodeGray(int gray) {
+        for (int i = 1; i < Integer.SIZE; i <<= 1) {
+            gray ^= gray >> i;
+        }
+        return gray;
+    }
+}
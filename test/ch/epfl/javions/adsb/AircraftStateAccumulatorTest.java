@@ -0,0 +1,258 @@
+package ch.epfl.javions.adsb;
+
+import ch.epfl.javions.GeoPos;
+import ch.epfl.javions.aircraft.IcaoAddress;
+
+/**
+ * Checks how {@link AircraftStateAccumulator} decodes positions from single messages: relative to a receiver close to
+ * the aircraft from its first message on, never relative to a receiver found too far from it by a global decoding,
+ * and relative to the last trusted position of the aircraft while it is recent enough, unless the aircraft could not
+ * have flown to the decoded position since then.
+ * <pre>
+ *     java -cp out ch.epfl.javions.adsb.AircraftStateAccumulatorTest
+ * </pre>
+ *
+ * @author : Alexei Thornber (363088)
+ * @author : Zachary Doll (356458)
+ */
+final class AircraftStateAccumulatorTest {
+    private static final IcaoAddress ADDRESS = new IcaoAddress("4B1814");
+    //The aircraft flies over Lausanne, at about 50 km of the receiver
+    private static final double LATITUDE = 46.5;
+    private static final double LONGITUDE = 6.6;
+    private static final GeoPos NEAR_RECEIVER = position(46.2, 6.1);
+    //More than half a latitude zone (3 degrees) north of the aircraft
+    private static final GeoPos FAR_RECEIVER = position(50.5, 6.6);
+    //About 55 km north of the aircraft, within half a latitude zone of it
+    private static final double UNREACHABLE_LATITUDE = LATITUDE + 0.5;
+    //About 100 m
+    private static final double TOLERANCE_DEGREES = 1e-3;
+    private static final long SECOND_NS = 1_000_000_000L;
+    private static final int CPR_BITS = 17;
+
+    private AircraftStateAccumulatorTest() {
+    } // Prevents instantiation
+
+    public static void main(String[] args) {
+        nearReceiver();
+        farReceiver();
+        noReceiver();
+        unreachablePosition();
+        System.out.println("single position messages are decoded relative to the expected references");
+    }
+
+    /**
+     * A receiver close to the aircraft gives its position from its first message, and again once its last position
+     * is too old to be a reference.
+     */
+    private static void nearReceiver() {
+        var state = new RecordingState();
+        var accumulator = new AircraftStateAccumulator<>(state, NEAR_RECEIVER);
+
+        send(accumulator, 0, 0);
+        check(state, "first message, near receiver");
+        send(accumulator, SECOND_NS, 1);
+        check(state, "global decoding, near receiver");
+        send(accumulator, 100 * SECOND_NS, 0);
+        check(state, "stale reference, near receiver");
+    }
+
+    /**
+     * A receiver too far from the aircraft gives a wrong first position, and is no longer used once a global decoding
+     * disagrees with it.
+     */
+    private static void farReceiver() {
+        var state = new RecordingState();
+        var accumulator = new AircraftStateAccumulator<>(state, FAR_RECEIVER);
+
+        send(accumulator, 0, 0);
+        if (state.position == null || isNear(state.position))
+            throw new AssertionError("the far receiver should give a position in the wrong zone");
+        send(accumulator, SECOND_NS, 1);
+        check(state, "global decoding, far receiver");
+
+        state.position = null;
+        send(accumulator, 100 * SECOND_NS, 0);
+        if (state.position != null)
+            throw new AssertionError("position decoded relative to a rejected receiver: " + state.position);
+        send(accumulator, 101 * SECOND_NS, 1);
+        check(state, "global decoding after the rejection");
+    }
+
+    /**
+     * Without receiver, single messages are decoded relative to the last trusted position while it is recent, each
+     * decoded position becoming the next reference.
+     */
+    private static void noReceiver() {
+        var state = new RecordingState();
+        var accumulator = new AircraftStateAccumulator<>(state);
+
+        send(accumulator, 0, 0);
+        if (state.position != null) throw new AssertionError("position decoded from a single message");
+        send(accumulator, SECOND_NS, 1);
+        check(state, "global decoding, no receiver");
+
+        state.position = null;
+        send(accumulator, 40 * SECOND_NS, 0);
+        check(state, "single message after 39 s");
+        state.position = null;
+        send(accumulator, 90 * SECOND_NS, 0);
+        check(state, "single message 50 s after the previous local one");
+        state.position = null;
+        send(accumulator, 200 * SECOND_NS, 0);
+        if (state.position != null) throw new AssertionError("position decoded relative to a stale reference");
+    }
+
+    /**
+     * A single message decoded farther from the last trusted position than the aircraft could have flown, as a
+     * corrupted message would be, is ignored, and does not replace the reference.
+     */
+    private static void unreachablePosition() {
+        var state = new RecordingState();
+        var accumulator = new AircraftStateAccumulator<>(state);
+
+        send(accumulator, 0, 0);
+        send(accumulator, SECOND_NS, 1);
+        check(state, "global decoding before the unreachable position");
+
+        //the messages are sent too late to be decoded along with the odd one, and the aircraft flies at most 10 km
+        state.position = null;
+        send(accumulator, 20 * SECOND_NS, 0, UNREACHABLE_LATITUDE);
+        if (state.position != null) throw new AssertionError("unreachable position decoded: " + state.position);
+        send(accumulator, 30 * SECOND_NS, 0);
+        check(state, "single message after the unreachable position");
+    }
+
+    /**
+     * Sends a position message of the aircraft to the accumulator.
+     *
+     * @param accumulator the accumulator
+     * @param timeStampNs the timestamp of the message
+     * @param parity      the parity of the message
+     */
+    private static void send(AircraftStateAccumulator<RecordingState> accumulator, long timeStampNs, int parity) {
+        send(accumulator, timeStampNs, parity, LATITUDE);
+    }
+
+    /**
+     * Sends a position message to the accumulator, at the longitude of the aircraft and the given latitude.
+     *
+     * @param accumulator the accumulator
+     * @param timeStampNs the timestamp of the message
+     * @param parity      the parity of the message
+     * @param latitude    the latitude in degrees
+     */
+    private static void send(AircraftStateAccumulator<RecordingState> accumulator, long timeStampNs, int parity,
+                             double latitude) {
+        double[] cpr = encode(latitude, LONGITUDE, parity);
+        accumulator.position(timeStampNs, ADDRESS, 10_000, parity, cpr[0], cpr[1]);
+    }
+
+    /**
+     * Checks that the last position of the state is the one of the aircraft.
+     *
+     * @param state the state
+     * @param step  the name of the step, used in the error message
+     */
+    private static void check(RecordingState state, String step) {
+        if (state.position == null || !isNear(state.position))
+            throw new AssertionError("%s: position %s".formatted(step, state.position));
+    }
+
+    /**
+     * Checks whether a position is the one of the aircraft.
+     *
+     * @param position the position
+     * @return true if the position is within the tolerance of the one of the aircraft
+     */
+    private static boolean isNear(GeoPos position) {
+        return Math.abs(Math.toDegrees(position.latitude()) - LATITUDE) < TOLERANCE_DEGREES
+                && Math.abs(Math.toDegrees(position.longitude()) - LONGITUDE) < TOLERANCE_DEGREES;
+    }
+
+    /**
+     * Returns the position of the given coordinates.
+     *
+     * @param latitude  the latitude in degrees
+     * @param longitude the longitude in degrees
+     * @return the position
+     */
+    private static GeoPos position(double latitude, double longitude) {
+        return new GeoPos((int) Math.round(Math.scalb(longitude / 360, 32)),
+                (int) Math.round(Math.scalb(latitude / 360, 32)));
+    }
+
+    /**
+     * Encodes a position as the normalized local coordinates of a message of the given parity.
+     *
+     * @param latitude  the latitude in degrees
+     * @param longitude the longitude in degrees
+     * @param parity    the parity of the message
+     * @return the normalized local longitude and latitude, on 17 bits
+     */
+    private static double[] encode(double latitude, double longitude, int parity) {
+        double latZoneWidth = 1.0 / (60 - parity);
+        double y = fraction(latitude / 360 / latZoneWidth);
+        //the number of longitude zones is the one at the latitude decoded from the message
+        double decodedLatitude = 360 * latZoneWidth * (Math.floor(latitude / 360 / latZoneWidth) + y);
+        double longZones = Math.max(longitudeZones(decodedLatitude) - parity, 1);
+        double x = fraction(longitude / 360 * longZones);
+        return new double[]{quantized(x), quantized(y)};
+    }
+
+    /**
+     * Returns the number of even longitude zones at the given latitude.
+     *
+     * @param latitude the latitude in degrees
+     * @return the number of even longitude zones
+     */
+    private static double longitudeZones(double latitude) {
+        double cos = Math.cos(Math.toRadians(latitude));
+        double a = Math.acos(1 - (1 - Math.cos(2 * Math.PI / 60)) / (cos * cos));
+        return Double.isNaN(a) ? 1 : Math.floor(2 * Math.PI / a);
+    }
+
+    private static double fraction(double value) {
+        return value - Math.floor(value);
+    }
+
+    private static double quantized(double value) {
+        return Math.scalb(Math.floor(Math.scalb(value, CPR_BITS)), -CPR_BITS);
+    }
+
+    /**
+     * A state setter recording the last position of the aircraft.
+     */
+    private static final class RecordingState implements AircraftStateSetter {
+        private GeoPos position;
+
+        @Override
+        public void setLastMessageTimeStampNs(long timeStampNs) {
+        }
+
+        @Override
+        public void setCategory(int category) {
+        }
+
+        @Override
+        public void setCallSign(CallSign callSign) {
+        }
+
+        @Override
+        public void setPosition(GeoPos position) {
+            this.position = position;
+        }
+
+        @Override
+        public void setAltitude(double altitude) {
+        }
+
+        @Override
+        public void setVelocity(double velocity) {
+        }
+
+        @Override
+        public void setTrackOrHeading(double trackOrHeading) {
+        }
+    }
+}
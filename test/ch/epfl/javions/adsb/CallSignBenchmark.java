@@ -0,0 +1,147 @@
+package ch.epfl.javions.adsb;
+
+import ch.epfl.javions.Benchmarks;
+import ch.epfl.javions.Bits;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the decoding of identification messages by {@link AircraftIdentificationMessage#of(RawMessage)}, which
+ * maps the characters of the call sign through a table and interns it, with the original decoding, which appended
+ * each character to a {@link StringBuilder} and validated the trimmed call sign with the regular expression of
+ * {@link CallSign}, after checking that both give the same messages. Messages carry either a few hundred call signs
+ * received over and over, as in real traffic, or a new call sign each, so that the interning table always misses.
+ * Each decoding is timed in its own virtual machine.
+ * <pre>
+ *     java -cp out ch.epfl.javions.adsb.CallSignBenchmark
+ * </pre>
+ *
+ * @author : Alexei Thornber (363088)
+ * @author : Zachary Doll (356458)
+ */
+final class CallSignBenchmark {
+    private static final String ORIGINAL = "original";
+    private static final String TABLE = "table";
+    private static final int MESSAGES = 1 << 16;
+    private static final int REPEATED_CALL_SIGNS = 300;
+    private static final int NB_CHARACTERS = 8;
+    private static final int BITS_PER_CHAR = 6;
+    private static final int NB_BITS = BITS_PER_CHAR * NB_CHARACTERS;
+    private static final int CA_SIZE = 3;
+    //The 6 bit codes of the valid characters: A to Z, space and 0 to 9
+    private static final int[] VALID_CODES = validCodes();
+
+    private CallSignBenchmark() {
+    } // Prevents instantiation
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) {
+            run(args[0]);
+            return;
+        }
+        for (boolean repeated : new boolean[]{true, false}) {
+            for (RawMessage message : messages(repeated)) {
+                if (!AircraftIdentificationMessage.of(message).equals(originalMessage(message)))
+                    throw new AssertionError("different messages for " + message);
+            }
+        }
+        Benchmarks.fork(CallSignBenchmark.class, List.of(ORIGINAL, TABLE));
+    }
+
+    /**
+     * Times the decoding of the messages with repeated and distinct call signs.
+     *
+     * @param mode the decoding, {@link #ORIGINAL} or {@link #TABLE}
+     * @throws Exception if a run fails
+     */
+    private static void run(String mode) throws Exception {
+        boolean original = mode.equals(ORIGINAL);
+        for (boolean repeated : new boolean[]{true, false}) {
+            RawMessage[] messages = messages(repeated);
+            String name = "%s, %s call signs".formatted(mode, repeated ? "repeated" : "distinct");
+            Benchmarks.time(name, MESSAGES / 1e6, "M messages", () -> {
+                long checksum = 0;
+                for (RawMessage message : messages) {
+                    var decoded = original ? originalMessage(message) : AircraftIdentificationMessage.of(message);
+                    checksum = 31 * checksum + decoded.callSign().string().length() + decoded.category();
+                }
+                return checksum;
+            });
+        }
+    }
+
+    /**
+     * Builds identification messages with valid call signs, of which the last characters may be spaces.
+     *
+     * @param repeated true to draw the call signs among a few hundred ones, false to draw a new one per message
+     * @return the messages
+     */
+    private static RawMessage[] messages(boolean repeated) {
+        Random random = new Random(1);
+        long[] callSigns = new long[repeated ? REPEATED_CALL_SIGNS : MESSAGES];
+        for (int i = 0; i < callSigns.length; i++) {
+            int length = 3 + random.nextInt(NB_CHARACTERS - 2);
+            for (int c = 0; c < NB_CHARACTERS; c++) {
+                int code = c < length ? VALID_CODES[random.nextInt(VALID_CODES.length)] : ' ';
+                callSigns[i] = (callSigns[i] << BITS_PER_CHAR) | code;
+            }
+        }
+
+        RawMessage[] messages = new RawMessage[MESSAGES];
+        for (int i = 0; i < MESSAGES; i++) {
+            long callSign = repeated ? callSigns[random.nextInt(callSigns.length)] : callSigns[i];
+            int typeCode = 1 + random.nextInt(4);
+            long payload = ((long) typeCode << 51) | ((long) random.nextInt(1 << CA_SIZE) << NB_BITS) | callSign;
+            //DF 17 and the ICAO address in the first 4 bytes, then the first 4 bytes of the payload
+            long high = (0x8DL << 56) | ((long) random.nextInt(1 << 24) << 32) | (payload >>> 24);
+            long low = (payload & 0xFF_FFFFL) << 24;
+            messages[i] = new RawMessage(i, high, low, 0);
+        }
+        return messages;
+    }
+
+    /**
+     * Returns the 6 bit codes of the valid characters of a call sign.
+     *
+     * @return the valid codes
+     */
+    private static int[] validCodes() {
+        int[] codes = new int[37];
+        for (int i = 0; i < 26; i++) codes[i] = i + 1;
+        codes[26] = ' ';
+        for (int i = 0; i < 10; i++) codes[27 + i] = '0' + i;
+        return codes;
+    }
+
+    /**
+     * Decodes an identification message as {@link AircraftIdentificationMessage} originally did.
+     *
+     * @param rawMessage the raw message
+     * @return the identification message, or null if a character of the call sign is invalid
+     */
+    private static AircraftIdentificationMessage originalMessage(RawMessage rawMessage) {
+        int CA = Bits.extractUInt(rawMessage.payload(), NB_BITS, CA_SIZE);
+        int category = ((RawMessage.LENGTH - rawMessage.typeCode()) << 4) | CA;
+
+        int idx = NB_BITS;
+        var callSignBuilder = new StringBuilder(NB_CHARACTERS);
+        for (int i = 0; i < NB_CHARACTERS; i++) {
+            int character = Bits.extractUInt(rawMessage.payload(), idx - BITS_PER_CHAR, BITS_PER_CHAR);
+
+            if (character >= 1 && character <= 26) { // A-Z
+                callSignBuilder.append((char) (character + 'A' - 1));
+            } else if (character == ' ') { // Space
+                callSignBuilder.append(" ");
+            } else if (character >= '0' && character <= '9') { // 0-9
+                callSignBuilder.append((char) character);
+            } else {
+                return null;
+            }
+            idx -= BITS_PER_CHAR;
+        }
+        var callSign = new CallSign(callSignBuilder.toString().trim());
+        return new AircraftIdentificationMessage(rawMessage.timeStampNs(), rawMessage.icaoAddress(), category,
+                callSign);
+    }
+}
@@ -0,0 +1,214 @@
+package ch.epfl.javions.adsb;
+
+import ch.epfl.javions.GeoPos;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Checks that {@link CprBatchDecoder} writes, for every pair, the position {@link CprDecoder#decodePosition} gives,
+ * in the calling thread and on fork-join pools with various chunk sizes. The pairs mix random coordinates, some of
+ * which have invalid latitudes, pairs sent from a single position, pairs whose messages lie on both sides of a
+ * latitude at which the number of longitude zones changes, and pairs sent close to the poles. Invalid parities,
+ * arrays of different lengths and chunks of no pairs must be rejected.
+ * <pre>
+ *     java -cp out ch.epfl.javions.adsb.CprBatchDecoderTest
+ * </pre>
+ *
+ * @author : Alexei Thornber (363088)
+ * @author : Zachary Doll (356458)
+ */
+final class CprBatchDecoderTest {
+    //More pairs than in a default chunk, so that the common pool splits them
+    private static final int PAIRS = 1 << 18;
+    private static final int[] CHUNK_SIZES = {1, 7, 1000, CprBatchDecoder.DEFAULT_CHUNK_SIZE};
+    private static final int POOL_PARALLELISM = 4;
+    private static final int CPR_BITS = 17;
+    private static final double POLE = 0.25;
+    //Step of the search of the latitudes at which the number of longitude zones changes, in turns
+    private static final double EDGE_SEARCH_STEP = 1e-5;
+    //Distance in turns between the messages of a pair and the latitude at which the number of zones changes
+    private static final double EDGE_DISTANCE = 1e-5;
+
+    private enum Kind {RANDOM, SAME_POSITION, BAND_SWITCH, POLAR}
+
+    private CprBatchDecoderTest() {
+    } // Prevents instantiation
+
+    public static void main(String[] args) {
+        Random random = new Random(2023);
+        double[] edges = edges();
+        double[] x0 = new double[PAIRS], y0 = new double[PAIRS], x1 = new double[PAIRS], y1 = new double[PAIRS];
+        int[] mostRecent = new int[PAIRS];
+        Kind[] kinds = Kind.values();
+        for (int i = 0; i < PAIRS; i++) {
+            Kind kind = kinds[random.nextInt(kinds.length)];
+            double latitude0, latitude1;
+            switch (kind) {
+                case SAME_POSITION -> latitude0 = latitude1 = (random.nextDouble() - 0.5) * 0.48;
+                case BAND_SWITCH -> {
+                    double edge = edges[random.nextInt(edges.length)] * (random.nextBoolean() ? 1 : -1);
+                    double side = random.nextBoolean() ? EDGE_DISTANCE : -EDGE_DISTANCE;
+                    latitude0 = edge + side;
+                    latitude1 = edge - side;
+                }
+                case POLAR -> latitude0 = latitude1 = (random.nextBoolean() ? 1 : -1)
+                        * (edges[edges.length - 1] + random.nextDouble() * (POLE - edges[edges.length - 1]));
+                default -> latitude0 = latitude1 = Double.NaN;
+            }
+            mostRecent[i] = random.nextInt(2);
+            if (kind == Kind.RANDOM) {
+                x0[i] = quantized(random.nextDouble());
+                y0[i] = quantized(random.nextDouble());
+                x1[i] = quantized(random.nextDouble());
+                y1[i] = quantized(random.nextDouble());
+            } else {
+                double longitude = random.nextDouble();
+                x0[i] = x(longitude, latitude0, 0);
+                y0[i] = y(latitude0, 0);
+                x1[i] = x(longitude, latitude1, 1);
+                y1[i] = y(latitude1, 1);
+            }
+
+            if (kind == Kind.BAND_SWITCH
+                    && CprDecoder.decodePosition(x0[i], y0[i], x1[i], y1[i], mostRecent[i]) != null)
+                throw new AssertionError("pair switching of longitude zones decoded, pair " + i);
+        }
+
+        long[] expected = new long[PAIRS];
+        int decoded = 0;
+        for (int i = 0; i < PAIRS; i++) {
+            GeoPos position = CprDecoder.decodePosition(x0[i], y0[i], x1[i], y1[i], mostRecent[i]);
+            expected[i] = position == null
+                    ? CprDecoder.NO_POSITION
+                    : (long) position.latitudeT32() << Integer.SIZE | (position.longitudeT32() & 0xFFFF_FFFFL);
+            if (position != null) decoded++;
+        }
+
+        long[] positions = new long[PAIRS];
+        CprBatchDecoder.decode(x0, y0, x1, y1, mostRecent, positions);
+        compare("sequential", positions, expected);
+
+        Arrays.fill(positions, 0);
+        CprBatchDecoder.decodeInParallel(x0, y0, x1, y1, mostRecent, positions);
+        compare("common pool", positions, expected);
+
+        try (var pool = new ForkJoinPool(POOL_PARALLELISM)) {
+            for (int chunkSize : CHUNK_SIZES) {
+                Arrays.fill(positions, 0);
+                CprBatchDecoder.decodeInParallel(x0, y0, x1, y1, mostRecent, positions, pool, chunkSize);
+                compare("chunks of " + chunkSize, positions, expected);
+            }
+        }
+
+        checkRejected(x0, y0, x1, y1, mostRecent);
+        System.out.printf("batch and fork-join decodings match the scalar one on %d pairs (%d decoded)%n",
+                PAIRS, decoded);
+    }
+
+    /**
+     * Compares the packed positions written by a batch decoding to the expected ones.
+     *
+     * @param name      the name of the decoding, used in the error message
+     * @param positions the written positions
+     * @param expected  the expected positions
+     */
+    private static void compare(String name, long[] positions, long[] expected) {
+        int index = Arrays.mismatch(positions, expected);
+        if (index >= 0)
+            throw new AssertionError("%s: pair %d decoded to %x instead of %x".formatted(name, index,
+                    positions[index], expected[index]));
+    }
+
+    /**
+     * Checks that the batch decodings reject an invalid parity, arrays of different lengths, and chunks of no pairs.
+     *
+     * @param x0         the normalized local longitudes of the even messages
+     * @param y0         the normalized local latitudes of the even messages
+     * @param x1         the normalized local longitudes of the odd messages
+     * @param y1         the normalized local latitudes of the odd messages
+     * @param mostRecent the valid parities of the most recent messages
+     */
+    private static void checkRejected(double[] x0, double[] y0, double[] x1, double[] y1, int[] mostRecent) {
+        int[] invalidParities = mostRecent.clone();
+        invalidParities[PAIRS / 2] = 2;
+        long[] positions = new long[PAIRS];
+        List<Runnable> invalidCalls = List.of(
+                () -> CprBatchDecoder.decode(x0, y0, x1, y1, invalidParities, positions),
+                () -> CprBatchDecoder.decodeInParallel(x0, y0, x1, y1, invalidParities, positions),
+                () -> CprBatchDecoder.decode(x0, y0, x1, y1, mostRecent, new long[PAIRS - 1]),
+                () -> CprBatchDecoder.decodeInParallel(x0, y0, Arrays.copyOf(x1, 1), y1, mostRecent, positions),
+                () -> CprBatchDecoder.decodeInParallel(x0, y0, x1, y1, mostRecent, positions,
+                        ForkJoinPool.commonPool(), 0));
+        for (int i = 0; i < invalidCalls.size(); i++) {
+            try {
+                invalidCalls.get(i).run();
+                throw new AssertionError("invalid call %d accepted".formatted(i));
+            } catch (IllegalArgumentException e) {
+                //expected
+            }
+        }
+    }
+
+    /**
+     * Finds the positive latitudes at which the computed number of even longitude zones changes, the last one being
+     * the latitude from which it is undefined.
+     *
+     * @return the latitudes in turns, in increasing order
+     */
+    private static double[] edges() {
+        List<Double> edges = new ArrayList<>();
+        for (double latitude = EDGE_SEARCH_STEP; latitude <= POLE; latitude += EDGE_SEARCH_STEP) {
+            double low = latitude - EDGE_SEARCH_STEP;
+            if (Double.compare(zones(latitude), zones(low)) == 0) continue;
+            double high = latitude;
+            while (Math.nextUp(low) < high) {
+                double mid = (low + high) / 2;
+                if (Double.compare(zones(mid), zones(low)) == 0) low = mid;
+                else high = mid;
+            }
+            edges.add(high);
+        }
+        return edges.stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    /**
+     * Returns the normalized local longitude of a message sent from the given position, on 17 bits.
+     *
+     * @param longitude the longitude in turns
+     * @param latitude  the latitude in turns
+     * @param parity    the parity of the message
+     * @return the normalized local longitude
+     */
+    private static double x(double longitude, double latitude, int parity) {
+        double zones = zones(latitude);
+        zones = Double.isNaN(zones) ? 1 : Math.max(zones - parity, 1);
+        return quantized(fraction(longitude * zones));
+    }
+
+    /**
+     * Returns the normalized local latitude of a message sent from the given latitude, on 17 bits.
+     *
+     * @param latitude the latitude in turns
+     * @param parity   the parity of the message
+     * @return the normalized local latitude
+     */
+    private static double y(double latitude, int parity) {
+        return quantized(fraction(latitude * (60 - parity)));
+    }
+
+    private static double zones(double latitude) {
+        return CprDecoder.computeLongitudeZones(latitude);
+    }
+
+    private static double fraction(double value) {
+        return value - Math.floor(value);
+    }
+
+    private static double quantized(double value) {
+        return Math.scalb(Math.floor(Math.scalb(value, CPR_BITS)), -CPR_BITS);
+    }
+}
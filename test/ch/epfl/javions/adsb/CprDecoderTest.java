@@ -0,0 +1,157 @@
+package ch.epfl.javions.adsb;
+
+import ch.epfl.javions.GeoPos;
+
+import java.util.Random;
+
+/**
+ * Checks that the number of even longitude zones looked up in the table of {@link CprDecoder} is exactly the one
+ * computed by {@link CprDecoder#computeLongitudeZones(double)}, on a dense sweep of latitudes from pole to pole, and
+ * on the few doubles around each latitude at which the computed number changes, found by bisection independently of
+ * the table. The sweep also checks that the computed number never increases with the absolute latitude, on which the
+ * bisections building the table rely. Finally, pairs of messages sent close to the poles, where both splittings have
+ * a single longitude zone, are decoded.
+ * <pre>
+ *     java -cp out ch.epfl.javions.adsb.CprDecoderTest
+ * </pre>
+ *
+ * @author : Alexei Thornber (363088)
+ * @author : Zachary Doll (356458)
+ */
+final class CprDecoderTest {
+    //Number of latitudes of the sweep between the equator and a pole
+    private static final int SWEEP_STEPS = 1 << 22;
+    private static final double POLE = 0.25;
+    //Number of doubles checked on each side of a latitude at which the number of zones changes
+    private static final int EDGE_ULPS = 4;
+    //The number of even longitude zones goes from 59 at the equator down to 2, and is undefined near the poles
+    private static final int EXPECTED_EDGES = 58;
+    private static final int POLAR_PAIRS = 10_000;
+    //About 1 m
+    private static final double TOLERANCE_DEGREES = 1e-5;
+
+    private CprDecoderTest() {
+    } // Prevents instantiation
+
+    public static void main(String[] args) {
+        int edges = 0;
+        double previous = 0;
+        for (int i = 0; i <= SWEEP_STEPS; i++) {
+            double latitude = POLE * i / SWEEP_STEPS;
+            check(latitude);
+            check(-latitude);
+
+            if (i > 0 && Double.compare(zones(latitude), zones(previous)) != 0) {
+                if (!(zones(latitude) < zones(previous)) && !Double.isNaN(zones(latitude)))
+                    throw new AssertionError("the number of zones increases at latitude " + latitude);
+                checkEdge(previous, latitude);
+                edges++;
+            }
+            previous = latitude;
+        }
+        if (edges != EXPECTED_EDGES)
+            throw new AssertionError("%d changes of the number of zones instead of %d".formatted(edges,
+                    EXPECTED_EDGES));
+        for (double latitude : new double[]{0, -0.0, POLE, Math.nextDown(POLE), Math.nextUp(-POLE)}) check(latitude);
+
+        checkPolarPairs(new Random(2023));
+        System.out.printf("looked up numbers of zones match on %d latitudes and around %d edges, "
+                + "%d polar pairs decoded%n", 2 * (SWEEP_STEPS + 1), edges, POLAR_PAIRS);
+    }
+
+    /**
+     * Checks that the looked up number of zones is the computed one at the given latitude.
+     *
+     * @param latitude the latitude in turns
+     */
+    private static void check(double latitude) {
+        double expected = zones(latitude);
+        double actual = CprDecoder.getLongitudeZones(latitude);
+        if (Double.compare(actual, expected) != 0)
+            throw new AssertionError("latitude %s: %s zones instead of %s".formatted(latitude, actual, expected));
+    }
+
+    /**
+     * Finds by bisection the two consecutive doubles between which the computed number of zones changes, and checks
+     * the doubles around them, on both hemispheres.
+     *
+     * @param low  a positive latitude in turns
+     * @param high a larger latitude in turns, with less zones or an undefined number of zones
+     */
+    private static void checkEdge(double low, double high) {
+        double lowZones = zones(low);
+        long lowBits = Double.doubleToRawLongBits(low);
+        long highBits = Double.doubleToRawLongBits(high);
+        while (highBits - lowBits > 1) {
+            long mid = (lowBits + highBits) >>> 1;
+            if (Double.compare(zones(Double.longBitsToDouble(mid)), lowZones) == 0) lowBits = mid;
+            else highBits = mid;
+        }
+        for (long bits = lowBits - EDGE_ULPS + 1; bits <= highBits + EDGE_ULPS - 1; bits++) {
+            check(Double.longBitsToDouble(bits));
+            check(-Double.longBitsToDouble(bits));
+        }
+    }
+
+    /**
+     * Decodes pairs of messages sent close to the poles, where both splittings have a single longitude zone, so that
+     * the longitude is the local one of the most recent message, and a pair whose messages lie on both sides of the
+     * latitude from which the number of zones is undefined, which cannot be decoded.
+     *
+     * @param random the generator
+     */
+    private static void checkPolarPairs(Random random) {
+        double polarBound = polarBound();
+        for (int i = 0; i < POLAR_PAIRS; i++) {
+            double sign = random.nextBoolean() ? 1 : -1;
+            double latitude = sign * (polarBound + random.nextDouble() * (POLE - polarBound));
+            double longitude = random.nextDouble() - 0.5;
+            double x = longitude - Math.floor(longitude);
+            for (int mostRecent = 0; mostRecent <= 1; mostRecent++) {
+                GeoPos position = CprDecoder.decodePosition(x, y(latitude, 0), x, y(latitude, 1), mostRecent);
+                if (position == null
+                        || Math.abs(Math.toDegrees(position.latitude()) - 360 * latitude) > TOLERANCE_DEGREES
+                        || Math.abs(Math.toDegrees(position.longitude()) - 360 * longitude) > TOLERANCE_DEGREES)
+                    throw new AssertionError("latitude %s, longitude %s: %s".formatted(latitude, longitude, position));
+            }
+        }
+
+        //the odd message is sent a few hundred meters before reaching the polar band
+        double even = polarBound + 1e-5;
+        double odd = polarBound - 1e-5;
+        GeoPos position = CprDecoder.decodePosition(0.5, y(even, 0), 0.5, y(odd, 1), 1);
+        if (position != null) throw new AssertionError("pair switching to the polar band decoded: " + position);
+    }
+
+    /**
+     * Finds by bisection the smallest positive latitude from which the number of zones is undefined.
+     *
+     * @return the latitude in turns
+     */
+    private static double polarBound() {
+        double low = 0;
+        double high = POLE;
+        while (Math.nextUp(low) < high) {
+            double mid = (low + high) / 2;
+            if (Double.isNaN(zones(mid))) high = mid;
+            else low = mid;
+        }
+        return high;
+    }
+
+    /**
+     * Returns the normalized local latitude of a message sent from the given latitude.
+     *
+     * @param latitude the latitude in turns
+     * @param parity   the parity of the message
+     * @return the normalized local latitude
+     */
+    private static double y(double latitude, int parity) {
+        double zones = latitude * (60 - parity);
+        return zones - Math.floor(zones);
+    }
+
+    private static double zones(double latitude) {
+        return CprDecoder.computeLongitudeZones(latitude);
+    }
+}
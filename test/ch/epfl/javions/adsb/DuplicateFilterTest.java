@@ -0,0 +1,174 @@
+package ch.epfl.javions.adsb;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Checks {@link DuplicateFilter}: a duplicate received inside the time window is dropped and one received just outside
+ * it is kept, messages sharing their slots do not hide each other, including when their probes wrap around the end of
+ * the table, a full table evicts its oldest message, and a long random stream gives the same answers as a map
+ * remembering when each message last got through.
+ * <pre>
+ *     java -cp out ch.epfl.javions.adsb.DuplicateFilterTest
+ * </pre>
+ *
+ * @author : Alexei Thornber (363088)
+ * @author : Zachary Doll (356458)
+ */
+final class DuplicateFilterTest {
+    private static final long WINDOW_NS = 1_000;
+    //Smallest capacity, in which every message is looked up in all the slots
+    private static final int SMALL_CAPACITY = 8;
+    private static final int LARGE_CAPACITY = 1 << 12;
+    //The hash of the filter, used to find messages with the same first slot
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+    private static final int STREAM_MESSAGES = 1 << 21;
+    private static final int STREAM_KEYS = 300;
+
+    private DuplicateFilterTest() {
+    } // Prevents instantiation
+
+    public static void main(String[] args) {
+        Random random = new Random(2023);
+        checkWindow(random);
+        checkCollisions(random);
+        checkEviction(random);
+        checkStream(random);
+        System.out.println("duplicates are dropped inside the window only, colliding messages are kept apart");
+    }
+
+    /**
+     * Checks that a duplicate is dropped one nanosecond before the end of the window, and kept at its end, which
+     * starts a new window.
+     *
+     * @param random the generator
+     */
+    private static void checkWindow(Random random) {
+        var filter = new DuplicateFilter(WINDOW_NS, LARGE_CAPACITY);
+        long high = random.nextLong(), low = random.nextLong();
+
+        expect(filter, 0, high, low, false, "first occurrence");
+        expect(filter, WINDOW_NS - 1, high, low, true, "duplicate inside the window");
+        expect(filter, WINDOW_NS, high, low, false, "duplicate at the end of the window");
+        expect(filter, WINDOW_NS + 1, high, low, true, "duplicate inside the new window");
+        expect(filter, WINDOW_NS + 1, high, low ^ 1, false, "message differing by one bit");
+        if (filter.suppressedMessages() != 2)
+            throw new AssertionError("%d suppressed messages instead of 2".formatted(filter.suppressedMessages()));
+    }
+
+    /**
+     * Checks that messages sharing their slots are all remembered, in a table whose slots are all probed, and in a
+     * large table with messages whose first slot is its last one, so that their probes wrap around to its first
+     * slots.
+     *
+     * @param random the generator
+     */
+    private static void checkCollisions(Random random) {
+        long[][] keys = new long[SMALL_CAPACITY][];
+        for (int i = 0; i < keys.length; i++) keys[i] = new long[]{random.nextLong(), random.nextLong()};
+        checkAllRemembered(new DuplicateFilter(WINDOW_NS, SMALL_CAPACITY), keys, "small table");
+
+        for (int i = 0; i < keys.length; i++) keys[i] = keyWithHome(random, LARGE_CAPACITY - 1, LARGE_CAPACITY);
+        checkAllRemembered(new DuplicateFilter(WINDOW_NS, LARGE_CAPACITY), keys, "wrapping probes");
+    }
+
+    /**
+     * Gives the given messages to a filter, and checks that each of them is then a duplicate.
+     *
+     * @param filter the new filter
+     * @param keys   the high and low words of the messages, as many as the slots probed per message
+     * @param name   the name of the case, used in the error messages
+     */
+    private static void checkAllRemembered(DuplicateFilter filter, long[][] keys, String name) {
+        for (int i = 0; i < keys.length; i++) expect(filter, i, keys[i][0], keys[i][1], false, name + ", new message");
+        for (int i = keys.length - 1; i >= 0; i--)
+            expect(filter, keys.length, keys[i][0], keys[i][1], true, name + ", duplicate " + i);
+    }
+
+    /**
+     * Checks that a message arriving while all its slots hold recent messages replaces the oldest of them, and that
+     * stale slots are reused once the window has passed.
+     *
+     * @param random the generator
+     */
+    private static void checkEviction(Random random) {
+        var filter = new DuplicateFilter(WINDOW_NS, SMALL_CAPACITY);
+        long[][] keys = new long[SMALL_CAPACITY + 1][];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = new long[]{random.nextLong(), random.nextLong()};
+            expect(filter, i, keys[i][0], keys[i][1], false, "filling message " + i);
+        }
+
+        long t = keys.length;
+        expect(filter, t, keys[SMALL_CAPACITY][0], keys[SMALL_CAPACITY][1], true, "newest message");
+        expect(filter, t, keys[2][0], keys[2][1], true, "message neither oldest nor newest");
+        //the first message was evicted by the last one, and its return evicts the second one
+        expect(filter, t, keys[0][0], keys[0][1], false, "evicted message");
+        expect(filter, t, keys[1][0], keys[1][1], false, "message evicted by the return of the first one");
+
+        t += WINDOW_NS;
+        for (int i = 0; i < keys.length; i++) expect(filter, t, keys[i][0], keys[i][1], false, "stale message " + i);
+    }
+
+    /**
+     * Checks a long stream of messages drawn among a few hundred, at random intervals, against a map remembering the
+     * time at which each message last got through. The table is large enough for no message to be evicted.
+     *
+     * @param random the generator
+     */
+    private static void checkStream(Random random) {
+        long[] highs = random.longs(STREAM_KEYS).toArray();
+        long[] lows = random.longs(STREAM_KEYS).toArray();
+        var filter = new DuplicateFilter(WINDOW_NS, LARGE_CAPACITY);
+        Map<Integer, Long> passedAt = new HashMap<>();
+        long suppressed = 0;
+        long t = 0;
+        for (int i = 0; i < STREAM_MESSAGES; i++) {
+            t += random.nextInt(3);
+            int key = random.nextInt(STREAM_KEYS);
+            Long last = passedAt.get(key);
+            boolean expected = last != null && t - last < WINDOW_NS;
+            if (expected) suppressed++;
+            else passedAt.put(key, t);
+            expect(filter, t, highs[key], lows[key], expected, "stream message " + i);
+        }
+        if (filter.suppressedMessages() != suppressed)
+            throw new AssertionError("%d suppressed messages instead of %d".formatted(filter.suppressedMessages(),
+                    suppressed));
+    }
+
+    /**
+     * Draws a message whose first slot is the given one.
+     *
+     * @param random   the generator
+     * @param home     the first slot
+     * @param capacity the capacity of the table
+     * @return the high and low words of the message
+     */
+    private static long[] keyWithHome(Random random, int home, int capacity) {
+        int hashShift = Long.SIZE - Integer.numberOfTrailingZeros(capacity);
+        while (true) {
+            long high = random.nextLong(), low = random.nextLong();
+            if ((int) (((high ^ Long.rotateLeft(low, Integer.SIZE)) * HASH_MULTIPLIER) >>> hashShift) == home)
+                return new long[]{high, low};
+        }
+    }
+
+    /**
+     * Gives a message to the filter, and checks whether it was found to be a duplicate.
+     *
+     * @param filter      the filter
+     * @param timeStampNs the timestamp of the message
+     * @param high        the high word of the message
+     * @param low         the low word of the message
+     * @param duplicate   whether the message must be a duplicate
+     * @param name        the name of the message, used in the error message
+     */
+    private static void expect(DuplicateFilter filter, long timeStampNs, long high, long low, boolean duplicate,
+                               String name) {
+        if (filter.isDuplicate(timeStampNs, high, low) != duplicate)
+            throw new AssertionError("%s at %d: expected %s".formatted(name, timeStampNs,
+                    duplicate ? "a duplicate" : "a new message"));
+    }
+}
@@ -0,0 +1,157 @@
+package ch.epfl.javions.adsb;
+
+import ch.epfl.javions.Crc24;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Checks {@link ErrorCorrector} by flipping every bit and every pair of bits of valid messages. The syndromes of the
+ * correctable patterns, which leave the DF attribute intact, are counted independently of the corrector, with
+ * {@link Crc24#crc(byte[])}. A pattern whose syndrome no other correctable pattern has must be repaired, if it has
+ * no more bits than allowed, while a message whose syndrome is shared, or whose DF attribute was corrupted, must never
+ * be turned back into the valid message. No message is changed when no bit may be corrected.
+ * <p>
+ * With the CRC of ADS-B, no two correctable patterns share their syndrome in a 112 bit message, so that the printed
+ * number of shared syndromes is 0. Every flip of three bits, whose syndrome is thus not the one of any correctable
+ * pattern, is also checked to be rejected.
+ * <pre>
+ *     java -cp out ch.epfl.javions.adsb.ErrorCorrectorTest
+ * </pre>
+ *
+ * @author : Alexei Thornber (363088)
+ * @author : Zachary Doll (356458)
+ */
+final class ErrorCorrectorTest {
+    private static final int LENGTH = RawMessage.LENGTH;
+    private static final int MESSAGE_BITS = LENGTH * Byte.SIZE;
+    private static final int DF_BITS = 5;
+    private static final int CRC_BYTES = 3;
+    private static final int MESSAGES = 4;
+    private static final Crc24 CRC = new Crc24(Crc24.GENERATOR);
+    //Indices of the numbers of flips of each outcome
+    private static final int REPAIRED = 0;
+    private static final int REJECTED = 1;
+    private static final int NOT_ALLOWED = 2;
+
+    private ErrorCorrectorTest() {
+    } // Prevents instantiation
+
+    public static void main(String[] args) {
+        Map<Integer, Integer> patternsPerSyndrome = patternsPerSyndrome();
+        Random random = new Random(2023);
+        int[] outcomes = new int[3];
+        for (int m = 0; m < MESSAGES; m++) {
+            byte[] valid = validMessage(random);
+            for (int maxCorrectedBits = 0; maxCorrectedBits <= ErrorCorrector.MAX_CORRECTED_BITS; maxCorrectedBits++) {
+                byte[] copy = valid.clone();
+                if (ErrorCorrector.correct(copy, CRC.crc(copy), maxCorrectedBits) != 0 || !Arrays.equals(copy, valid))
+                    throw new AssertionError("valid message changed");
+
+                for (int i = 0; i < MESSAGE_BITS; i++) {
+                    check(valid, new int[]{i}, maxCorrectedBits, patternsPerSyndrome, outcomes);
+                    for (int j = i + 1; j < MESSAGE_BITS; j++) {
+                        check(valid, new int[]{i, j}, maxCorrectedBits, patternsPerSyndrome, outcomes);
+                    }
+                }
+            }
+        }
+
+        byte[] valid = validMessage(random);
+        for (int i = 0; i < MESSAGE_BITS; i++) {
+            for (int j = i + 1; j < MESSAGE_BITS; j++) {
+                for (int k = j + 1; k < MESSAGE_BITS; k++) {
+                    check(valid, new int[]{i, j, k}, ErrorCorrector.MAX_CORRECTED_BITS, patternsPerSyndrome, outcomes);
+                }
+            }
+        }
+
+        long shared = patternsPerSyndrome.values().stream().filter(count -> count > 1).count();
+        System.out.printf("%d flips repaired, %d rejected, %d left alone when nothing may be corrected, "
+                + "%d syndromes shared by correctable patterns%n", outcomes[REPAIRED], outcomes[REJECTED],
+                outcomes[NOT_ALLOWED], shared);
+    }
+
+    /**
+     * Corrupts a copy of a valid message, tries to repair it, and checks the outcome.
+     *
+     * @param valid               the valid message
+     * @param bits                  the indices of the flipped bits, in increasing order
+     * @param maxCorrectedBits      the largest number of bits that may be corrected
+     * @param patternsPerSyndrome   the number of correctable patterns of each syndrome
+     * @param outcomes              the number of flips of each outcome, indexed by {@link #REPAIRED},
+     *                              {@link #REJECTED} and {@link #NOT_ALLOWED}
+     */
+    private static void check(byte[] valid, int[] bits, int maxCorrectedBits,
+                              Map<Integer, Integer> patternsPerSyndrome, int[] outcomes) {
+        byte[] message = valid.clone();
+        for (int bit : bits) flip(message, bit);
+        byte[] corrupted = message.clone();
+        int syndrome = CRC.crc(message);
+        boolean correctable = bits[0] >= DF_BITS && bits.length <= ErrorCorrector.MAX_CORRECTED_BITS;
+        boolean unique = patternsPerSyndrome.getOrDefault(syndrome, 0) == 1;
+
+        int corrected = ErrorCorrector.correct(message, syndrome, maxCorrectedBits);
+        String name = "bits %s, at most %d corrected".formatted(Arrays.toString(bits), maxCorrectedBits);
+
+        if (correctable && unique && bits.length <= maxCorrectedBits) {
+            if (corrected != bits.length || !Arrays.equals(message, valid))
+                throw new AssertionError(name + ": not repaired, " + corrected);
+            outcomes[REPAIRED]++;
+        } else if (maxCorrectedBits == 0 || !unique) {
+            //nothing may be corrected, or no single correctable pattern explains the syndrome
+            if (corrected != -1 || !Arrays.equals(message, corrupted))
+                throw new AssertionError(name + ": changed, " + corrected);
+            outcomes[maxCorrectedBits == 0 ? NOT_ALLOWED : REJECTED]++;
+        } else {
+            //the syndrome is the one of this pattern, with more bits than allowed, or of another pattern
+            if (correctable && corrected != -1) throw new AssertionError(name + ": corrected " + corrected);
+            if (Arrays.equals(message, valid)) throw new AssertionError(name + ": repaired");
+            if (corrected == -1 && !Arrays.equals(message, corrupted))
+                throw new AssertionError(name + ": changed although rejected");
+            outcomes[REJECTED]++;
+        }
+    }
+
+    /**
+     * Counts the correctable patterns, of one or two bits outside the DF attribute, having each syndrome.
+     *
+     * @return the number of patterns of each syndrome
+     */
+    private static Map<Integer, Integer> patternsPerSyndrome() {
+        Map<Integer, Integer> counts = new HashMap<>();
+        byte[] zero = new byte[LENGTH];
+        for (int i = DF_BITS; i < MESSAGE_BITS; i++) {
+            byte[] pattern = zero.clone();
+            flip(pattern, i);
+            counts.merge(CRC.crc(pattern), 1, Integer::sum);
+            for (int j = i + 1; j < MESSAGE_BITS; j++) {
+                flip(pattern, j);
+                counts.merge(CRC.crc(pattern), 1, Integer::sum);
+                flip(pattern, j);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Draws a valid ADS-B message, whose CRC is 0.
+     *
+     * @param random the generator
+     * @return the 14 bytes of the message
+     */
+    private static byte[] validMessage(Random random) {
+        byte[] message = new byte[LENGTH];
+        random.nextBytes(message);
+        message[0] = (byte) (17 << 3 | (message[0] & 0b111));
+        int crc = CRC.crc(Arrays.copyOf(message, LENGTH - CRC_BYTES));
+        for (int i = 0; i < CRC_BYTES; i++) message[LENGTH - 1 - i] = (byte) (crc >>> (i * Byte.SIZE));
+        return message;
+    }
+
+    private static void flip(byte[] message, int bit) {
+        message[bit / Byte.SIZE] ^= (byte) (1 << (Byte.SIZE - 1 - bit % Byte.SIZE));
+    }
+}
@@ -0,0 +1,88 @@
+package ch.epfl.javions.adsb;
+
+import ch.epfl.javions.Benchmarks;
+import ch.epfl.javions.Crc24;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Measures the rate at which raw messages are built from their bytes and parsed by {@link MessageParser}, and the
+ * number of bytes allocated per message. Only methods which existed before raw messages were packed in two longs are
+ * used, so that the benchmark can be compiled against both representations to compare them.
+ * <pre>
+ *     java -cp out ch.epfl.javions.adsb.MessageParserBenchmark
+ * </pre>
+ *
+ * @author : Alexei Thornber (363088)
+ * @author : Zachary Doll (356458)
+ */
+final class MessageParserBenchmark {
+    private static final int MESSAGES = 1 << 18;
+    private static final int LENGTH = 14;
+    //The type codes of the identification, airborne position and velocity messages
+    private static final int[] TYPE_CODES = {1, 2, 3, 4, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22};
+    private static final Crc24 CRC = new Crc24(Crc24.GENERATOR);
+
+    private MessageParserBenchmark() {
+    } // Prevents instantiation
+
+    public static void main(String[] args) throws Exception {
+        byte[][] messages = messages(new Random(1));
+
+        Benchmarks.time("RawMessage.of + MessageParser.parse", MESSAGES / 1e6, "M messages", () -> parse(messages));
+
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long checksum = parse(messages);
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        System.out.printf("%-36s %9.1f bytes per message   (checksum %x)%n",
+                "allocated", allocated / (double) MESSAGES, checksum);
+    }
+
+    /**
+     * Builds the raw messages from their bytes, and parses them.
+     *
+     * @param messages the bytes of the messages
+     * @return a checksum of the parsed messages
+     */
+    private static long parse(byte[][] messages) {
+        long checksum = 0;
+        for (int i = 0; i < messages.length; i++) {
+            RawMessage rawMessage = RawMessage.of(i, messages[i]);
+            Message message = rawMessage == null ? null : MessageParser.parse(rawMessage);
+            if (message != null)
+                checksum = 31 * checksum + message.timeStampNs() + message.icaoAddress().string().hashCode();
+        }
+        return checksum;
+    }
+
+    /**
+     * Draws random ADS-B messages with a valid CRC, whose type codes are the ones of the parsed messages, coming
+     * from a few hundred aircraft.
+     *
+     * @param random the generator
+     * @return the bytes of the messages
+     */
+    private static byte[][] messages(Random random) {
+        int[] addresses = random.ints(500, 0, 1 << 24).toArray();
+        byte[][] messages = new byte[MESSAGES][];
+        for (int i = 0; i < MESSAGES; i++) {
+            byte[] message = new byte[LENGTH];
+            random.nextBytes(message);
+            int address = addresses[random.nextInt(addresses.length)];
+            message[0] = (byte) (17 << 3 | 5);
+            message[1] = (byte) (address >>> 16);
+            message[2] = (byte) (address >>> 8);
+            message[3] = (byte) address;
+            message[4] = (byte) (TYPE_CODES[random.nextInt(TYPE_CODES.length)] << 3 | (message[4] & 0b111));
+            int crc = CRC.crc(Arrays.copyOf(message, LENGTH - 3));
+            message[11] = (byte) (crc >>> 16);
+            message[12] = (byte) (crc >>> 8);
+            message[13] = (byte) crc;
+            messages[i] = message;
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,108 @@
+package ch.epfl.javions.aircraft;
+
+import ch.epfl.javions.Benchmarks;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * Compares the latency of lookups in an {@link AircraftDatabase} which reads its file at each lookup with the one of
+ * lookups in an {@link AircraftDatabase#indexed(String) indexed} database, after checking that both give the same
+ * data. Half of the looked up addresses are in the database, and half are random, so mostly missing. Each database
+ * is timed in its own virtual machine, the indexed one also printing the time taken to load the file. Besides the
+ * throughput of a whole batch, the median and 99th percentile of single lookups are printed.
+ * <pre>
+ *     java -cp out ch.epfl.javions.aircraft.AircraftDatabaseBenchmark aircraft.zip
+ * </pre>
+ *
+ * @author : Alexei Thornber (363088)
+ * @author : Zachary Doll (356458)
+ */
+final class AircraftDatabaseBenchmark {
+    private static final String SCANNING = "scanning";
+    private static final String INDEXED = "indexed";
+    //Scanning lookups read a whole ZIP entry each, so far fewer of them are timed
+    private static final int SCANNING_LOOKUPS = 1 << 10;
+    private static final int INDEXED_LOOKUPS = 1 << 18;
+    private static final int CHECKED_LOOKUPS = 1 << 12;
+    private static final double NS_PER_US = 1e3;
+
+    private AircraftDatabaseBenchmark() {
+    } // Prevents instantiation
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 2) {
+            run(args[0], args[1]);
+            return;
+        }
+        if (args.length != 1) {
+            System.err.println("usage: AircraftDatabaseBenchmark <aircraft.zip>");
+            System.exit(1);
+        }
+
+        var scanning = new AircraftDatabase(args[0]);
+        var indexed = AircraftDatabase.indexed(args[0]);
+        for (IcaoAddress address : addresses(indexed, CHECKED_LOOKUPS)) {
+            if (!Objects.equals(scanning.get(address), indexed.get(address)))
+                throw new AssertionError("different data for " + address);
+        }
+        Benchmarks.fork(AircraftDatabaseBenchmark.class, List.of(SCANNING, INDEXED), args[0]);
+    }
+
+    /**
+     * Times the lookups in the given database.
+     *
+     * @param mode     the database, {@link #SCANNING} or {@link #INDEXED}
+     * @param fileName the name of the database file
+     * @throws Exception if a lookup fails
+     */
+    private static void run(String mode, String fileName) throws Exception {
+        long loadStart = System.nanoTime();
+        AircraftDatabase indexed = AircraftDatabase.indexed(fileName);
+        long loadNs = System.nanoTime() - loadStart;
+
+        boolean scan = mode.equals(SCANNING);
+        AircraftDatabase database = scan ? new AircraftDatabase(fileName) : indexed;
+        IcaoAddress[] addresses = addresses(indexed, scan ? SCANNING_LOOKUPS : INDEXED_LOOKUPS);
+        if (!scan) System.out.printf("%-36s %9.1f ms%n", "indexed, loading", loadNs / 1e6);
+
+        Benchmarks.time(mode + ", lookups", addresses.length / 1e3, "k lookups", () -> {
+            long checksum = 0;
+            for (IcaoAddress address : addresses) {
+                AircraftData data = database.get(address);
+                if (data != null) checksum = 31 * checksum + data.model().length();
+            }
+            return checksum;
+        });
+
+        long[] latencies = new long[addresses.length];
+        for (int i = 0; i < addresses.length; i++) {
+            long start = System.nanoTime();
+            database.get(addresses[i]);
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        System.out.printf("%-36s %9.2f us median, %.2f us 99th percentile%n", mode + ", single lookup",
+                latencies[latencies.length / 2] / NS_PER_US, latencies[latencies.length * 99 / 100] / NS_PER_US);
+    }
+
+    /**
+     * Draws the addresses to look up, half of them among the ones of the database, and half at random.
+     *
+     * @param indexed the indexed database
+     * @param count   the number of addresses
+     * @return the addresses
+     */
+    private static IcaoAddress[] addresses(AircraftDatabase indexed, int count) {
+        Random random = new Random(1);
+        int[] known = indexed.addresses();
+        IcaoAddress[] addresses = new IcaoAddress[count];
+        for (int i = 0; i < count; i++) {
+            int value = i % 2 == 0 ? known[random.nextInt(known.length)] : random.nextInt(1 << 24);
+            addresses[i] = IcaoAddress.of(value);
+        }
+        return addresses;
+    }
+}
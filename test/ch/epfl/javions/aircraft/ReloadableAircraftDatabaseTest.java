@@ -0,0 +1,59 @@
+package ch.epfl.javions.aircraft;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks that a reload listener throwing an exception neither prevents the other listeners from being called nor
+ * stops the file from being watched, and that its exception is reported to the uncaught exception handler. The file is
+ * replaced twice, as {@link AircraftDatabaseConverter} does, and each replacement must reach the listeners.
+ * <pre>
+ *     java -cp out ch.epfl.javions.aircraft.ReloadableAircraftDatabaseTest
+ * </pre>
+ *
+ * @author : Alexei Thornber (363088)
+ * @author : Zachary Doll (356458)
+ */
+final class ReloadableAircraftDatabaseTest {
+    private static final int RELOADS = 2;
+    private static final long TIMEOUT_S = 10;
+
+    private ReloadableAircraftDatabaseTest() {
+    } // Prevents instantiation
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Files.createTempDirectory("aircraft-database");
+        Path file = directory.resolve("aircraft.txt");
+        Files.writeString(file, "0");
+
+        var reported = new AtomicInteger();
+        Thread.setDefaultUncaughtExceptionHandler((thread, e) -> reported.incrementAndGet());
+        var reloads = new Semaphore(0);
+
+        try (var database = new ReloadableAircraftDatabase(file, path -> address -> null)) {
+            database.addReloadListener(() -> {
+                throw new IllegalStateException("failing listener");
+            });
+            database.addReloadListener(reloads::release);
+
+            for (int i = 1; i <= RELOADS; i++) {
+                Path replacement = directory.resolve("aircraft.tmp");
+                Files.writeString(replacement, Integer.toString(i));
+                Files.move(replacement, file, StandardCopyOption.REPLACE_EXISTING);
+                if (!reloads.tryAcquire(TIMEOUT_S, TimeUnit.SECONDS))
+                    throw new AssertionError("replacement %d of the file was not reloaded".formatted(i));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(directory);
+        }
+
+        if (reported.get() != RELOADS)
+            throw new AssertionError("%d exceptions reported for %d reloads".formatted(reported.get(), RELOADS));
+        System.out.printf("%d reloads reached the listeners after one of them threw%n", RELOADS);
+    }
+}
@@ -0,0 +1,94 @@
+package ch.epfl.javions.demodulation;
+
+import ch.epfl.javions.Benchmarks;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the throughput of {@link AdsbDemodulator}, which scans positions by blocks, with the one of the
+ * {@link ReferenceDemodulator} advancing one position at a time, on recordings of several traffic densities, after
+ * checking that both find the same messages. Each demodulator is timed in its own virtual machine.
+ * <pre>
+ *     java -cp out ch.epfl.javions.demodulation.AdsbDemodulatorBenchmark [recording...]
+ * </pre>
+ * Synthetic recordings of 1.7 s (64 MiB) with 0, 500, 2000 and 8000 messages per second are written if none is
+ * given.
+ *
+ * @author : Alexei Thornber (363088)
+ * @author : Zachary Doll (356458)
+ */
+final class AdsbDemodulatorBenchmark {
+    private static final String REFERENCE = "reference";
+    private static final String BLOCKS = "blocks";
+    private static final int POWER_SAMPLES = 1 << 24;
+    private static final int[] MESSAGES_PER_SECOND = {0, 500, 2_000, 8_000};
+
+    private AdsbDemodulatorBenchmark() {
+    } // Prevents instantiation
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && (args[0].equals(REFERENCE) || args[0].equals(BLOCKS))) {
+            for (int i = 1; i < args.length; i++) run(args[0], Path.of(args[i]));
+            return;
+        }
+
+        List<String> files = new ArrayList<>(List.of(args));
+        if (files.isEmpty()) {
+            for (int messagesPerSecond : MESSAGES_PER_SECOND) {
+                Path file = SyntheticRecording.write(messagesPerSecond, POWER_SAMPLES, messagesPerSecond);
+                System.out.printf("%s: %d messages per second%n", file.getFileName(), messagesPerSecond);
+                files.add(file.toString());
+            }
+        }
+        for (String file : files) {
+            long reference = demodulate(REFERENCE, Path.of(file));
+            long blocks = demodulate(BLOCKS, Path.of(file));
+            if (reference != blocks)
+                throw new AssertionError(file + ": the demodulators find different messages");
+        }
+        Benchmarks.fork(AdsbDemodulatorBenchmark.class, List.of(REFERENCE, BLOCKS), files.toArray(String[]::new));
+    }
+
+    /**
+     * Times the demodulation of the given recording.
+     *
+     * @param mode the demodulator, {@link #REFERENCE} or {@link #BLOCKS}
+     * @param file the recording
+     * @throws Exception if the recording cannot be read
+     */
+    private static void run(String mode, Path file) throws Exception {
+        //a power sample is computed from two samples of two bytes each
+        double seconds = Files.size(file) / (2.0 * Short.BYTES) / SyntheticRecording.POWER_SAMPLES_PER_SECOND;
+        String name = "%s, %s".formatted(mode, file.getFileName());
+        Benchmarks.time(name, seconds, "s of signal", () -> demodulate(mode, file));
+    }
+
+    /**
+     * Demodulates all the messages of the given recording.
+     *
+     * @param mode the demodulator, {@link #REFERENCE} or {@link #BLOCKS}
+     * @param file the recording
+     * @return a checksum of the messages
+     * @throws Exception if the recording cannot be read
+     */
+    private static long demodulate(String mode, Path file) throws Exception {
+        try (FileChannel channel = FileChannel.open(file)) {
+            if (mode.equals(REFERENCE)) {
+                long checksum = 0;
+                var window = new PowerWindow(channel, AdsbDemodulator.WINDOW_SIZE);
+                for (var message : ReferenceDemodulator.messages(window, Double.NEGATIVE_INFINITY)) {
+                    checksum = 31 * checksum + message.timeStampNs() + message.high() + message.low();
+                }
+                return checksum;
+            }
+            long[] checksum = {0};
+            new AdsbDemodulator(channel).demodulate((timeStampNs, high, low, correctedBits) ->
+                    checksum[0] = 31 * checksum[0] + timeStampNs + high + low);
+            return checksum[0];
+        }
+    }
+}
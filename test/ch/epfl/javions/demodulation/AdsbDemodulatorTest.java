@@ -0,0 +1,78 @@
+package ch.epfl.javions.demodulation;
+
+import ch.epfl.javions.adsb.RawMessage;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks that {@link AdsbDemodulator}, which scans positions by blocks, finds the same messages as the
+ * {@link ReferenceDemodulator} advancing one position at a time, on synthetic recordings of several traffic densities
+ * and with several signal-to-noise ratio thresholds.
+ * <pre>
+ *     java -cp out ch.epfl.javions.demodulation.AdsbDemodulatorTest
+ * </pre>
+ *
+ * @author : Alexei Thornber (363088)
+ * @author : Zachary Doll (356458)
+ */
+final class AdsbDemodulatorTest {
+    private static final int POWER_SAMPLES = 1 << 21;
+    private static final int[] MESSAGES_PER_SECOND = {0, 100, 2_000, 8_000, 1_000_000};
+    private static final double[] SNR_THRESHOLDS_DB = {Double.NEGATIVE_INFINITY, 3, 10};
+
+    private AdsbDemodulatorTest() {
+    } // Prevents instantiation
+
+    public static void main(String[] args) throws IOException {
+        int recordings = 0;
+        long messages = 0;
+        for (long seed = 1; seed <= 3; seed++) {
+            for (int messagesPerSecond : MESSAGES_PER_SECOND) {
+                //the recordings end at any position, not only at the end of a batch
+                int powerSamples = POWER_SAMPLES + (int) (seed * 7919);
+                Path file = SyntheticRecording.write(seed, powerSamples, messagesPerSecond);
+                for (double snrDb : SNR_THRESHOLDS_DB) messages += check(file, snrDb);
+                recordings++;
+            }
+        }
+        System.out.printf("same messages found in %d recordings (%d messages)%n", recordings, messages);
+    }
+
+    /**
+     * Checks that the demodulator finds the same messages as the reference in the given recording, with both
+     * {@link AdsbDemodulator#nextMessage()} and {@link AdsbDemodulator#demodulate(RawMessageSink)}.
+     *
+     * @param file  the recording
+     * @param snrDb the signal-to-noise ratio threshold, in decibels
+     * @return the number of messages found
+     * @throws IOException if the recording cannot be read
+     */
+    private static int check(Path file, double snrDb) throws IOException {
+        List<RawMessage> expected;
+        List<RawMessage> next = new ArrayList<>();
+        List<RawMessage> sunk = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file)) {
+            expected = ReferenceDemodulator.messages(new PowerWindow(channel, AdsbDemodulator.WINDOW_SIZE), snrDb);
+        }
+        try (FileChannel channel = FileChannel.open(file)) {
+            var demodulator = new AdsbDemodulator(channel);
+            demodulator.setSnrThresholdDb(snrDb);
+            for (RawMessage message; (message = demodulator.nextMessage()) != null; ) next.add(message);
+        }
+        try (FileChannel channel = FileChannel.open(file)) {
+            var demodulator = new AdsbDemodulator(channel);
+            demodulator.setSnrThresholdDb(snrDb);
+            demodulator.demodulate((timeStampNs, high, low, correctedBits) ->
+                    sunk.add(new RawMessage(timeStampNs, high, low, correctedBits)));
+        }
+
+        if (!next.equals(expected) || !sunk.equals(expected))
+            throw new AssertionError("%s, %.0f dB: %d and %d messages found instead of %d"
+                    .formatted(file, snrDb, next.size(), sunk.size(), expected.size()));
+        return expected.size();
+    }
+}
@@ -0,0 +1,78 @@
+package ch.epfl.javions.demodulation;
+
+import ch.epfl.javions.Benchmarks;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the throughput of the scalar and vectorized {@link PowerKernel}s, on batches read from a heap buffer, as
+ * the ones of a stream, and from a direct buffer, as the ones of a mapped channel. Each kernel is timed in its own
+ * virtual machine.
+ * <pre>
+ *     java -cp out --add-modules jdk.incubator.vector ch.epfl.javions.demodulation.PowerKernelBenchmark
+ * </pre>
+ * Only the scalar kernel is timed unless the {@code src-vector} source root was compiled, and the Vector API module
+ * added, as described in {@link PowerKernel}.
+ *
+ * @author : Alexei Thornber (363088)
+ * @author : Zachary Doll (356458)
+ */
+final class PowerKernelBenchmark {
+    //Number of bytes of the raw samples, and of a batch
+    private static final int BYTES = 1 << 26;
+    private static final int BATCH_BYTES = 1 << 16;
+    private static final String SCALAR = "scalar";
+    private static final String VECTOR = "vector";
+
+    private PowerKernelBenchmark() {
+    } // Prevents instantiation
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) {
+            run(args[0].equals(VECTOR));
+            return;
+        }
+        Benchmarks.fork(PowerKernelBenchmark.class,
+                PowerKernel.VECTOR_API_AVAILABLE ? List.of(SCALAR, VECTOR) : List.of(SCALAR));
+    }
+
+    /**
+     * Times a kind of kernel on random raw samples, held in a heap buffer and in a direct one.
+     *
+     * @param vectorized true to time the vectorized kernel, false to time the scalar one
+     * @throws Exception if a run fails
+     */
+    private static void run(boolean vectorized) throws Exception {
+        byte[] bytes = new byte[BYTES];
+        new Random(1).nextBytes(bytes);
+        ByteBuffer heap = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer direct = ByteBuffer.allocateDirect(BYTES).order(ByteOrder.LITTLE_ENDIAN).put(bytes).flip();
+
+        String name = vectorized ? "vectorized (%d lanes)".formatted(PowerKernel.create(true).lanes()) : "scalar";
+        double megabytes = BYTES / (double) (1 << 20);
+        Benchmarks.time(name + ", heap", megabytes, "MiB", () -> powers(vectorized, heap));
+        Benchmarks.time(name + ", direct", megabytes, "MiB", () -> powers(vectorized, direct));
+    }
+
+    /**
+     * Computes the power samples of all the raw samples of the buffer, in consecutive batches.
+     *
+     * @param vectorized true to use the vectorized kernel, false to use the scalar one
+     * @param buffer     the raw samples
+     * @return a checksum of the power samples
+     */
+    private static long powers(boolean vectorized, ByteBuffer buffer) {
+        PowerKernel kernel = PowerKernel.create(vectorized);
+        int[] target = new int[BATCH_BYTES / (2 * Short.BYTES)];
+        long checksum = 0;
+        for (int start = 0; start < BYTES; start += BATCH_BYTES) {
+            int count = kernel.compute(buffer.limit(start + BATCH_BYTES).position(start), target, 0);
+            for (int i = 0; i < count; i++) checksum += target[i];
+        }
+        buffer.clear();
+        return checksum;
+    }
+}
@@ -0,0 +1,138 @@
+package ch.epfl.javions.demodulation;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Checks that the scalar and vectorized {@link PowerKernel}s compute the same power samples as the original
+ * {@link PowerComputer}, which decoded every sample and kept the last eight of them in a circular array. Every batch
+ * size from 8 to 1024 pairs of samples is checked, over consecutive batches whose last one has an odd number of
+ * bytes, read from heap and direct buffers.
+ * <pre>
+ *     java -cp out --add-modules jdk.incubator.vector ch.epfl.javions.demodulation.PowerKernelTest
+ * </pre>
+ * Only the scalar kernel is checked unless the {@code src-vector} source root was compiled, and the Vector API module
+ * added, as described in {@link PowerKernel}.
+ *
+ * @author : Alexei Thornber (363088)
+ * @author : Zachary Doll (356458)
+ */
+final class PowerKernelTest {
+    private static final int MIN_BATCH_SIZE = 8;
+    private static final int MAX_BATCH_SIZE = 1024;
+    //Number of pairs of samples of the recording split in batches
+    private static final int PAIRS = 3 * MAX_BATCH_SIZE + 5;
+    private static final int PAIR_BYTES = 2 * Short.BYTES;
+
+    private PowerKernelTest() {
+    } // Prevents instantiation
+
+    public static void main(String[] args) {
+        Random random = new Random(2023);
+        //random bytes, so that the 4 ignored bits of the samples are set too, followed by trailing odd bytes
+        byte[] bytes = new byte[PAIRS * PAIR_BYTES + 3];
+        random.nextBytes(bytes);
+        //the extreme samples, 0 and 4095, first then in a run
+        for (int i = 0; i < 16; i++) {
+            bytes[2 * i] = (byte) (i % 2 == 0 ? 0 : 0xFF);
+            bytes[2 * i + 1] = (byte) (i % 2 == 0 ? 0xF0 : 0x0F);
+        }
+        int[] expected = expectedPowers(bytes, PAIRS);
+
+        check(false, bytes, expected);
+        if (PowerKernel.VECTOR_API_AVAILABLE) {
+            check(true, bytes, expected);
+            System.out.printf("scalar and vectorized kernels (%d lanes) match for batches of %d to %d pairs%n",
+                    PowerKernel.create(true).lanes(), MIN_BATCH_SIZE, MAX_BATCH_SIZE);
+        } else {
+            System.out.printf("scalar kernel matches for batches of %d to %d pairs, "
+                    + "compile src-vector and add the jdk.incubator.vector module to check the vectorized one%n",
+                    MIN_BATCH_SIZE, MAX_BATCH_SIZE);
+        }
+    }
+
+    /**
+     * Checks a kind of kernel for every batch size, with heap and direct buffers.
+     *
+     * @param vectorized true to check the vectorized kernel, false to check the scalar one
+     * @param bytes      the raw samples
+     * @param expected   the expected power samples
+     */
+    private static void check(boolean vectorized, byte[] bytes, int[] expected) {
+        for (int batchSize = MIN_BATCH_SIZE; batchSize <= MAX_BATCH_SIZE; batchSize++) {
+            check(vectorized, false, batchSize, bytes, expected);
+            check(vectorized, true, batchSize, bytes, expected);
+        }
+    }
+
+    /**
+     * Computes the power samples of the raw samples with a new kernel, in consecutive batches of the given size, the
+     * last one being shorter and having an odd number of bytes, and compares them to the expected ones.
+     *
+     * @param vectorized true to check the vectorized kernel, false to check the scalar one
+     * @param direct     true to read the batches from a direct buffer, like mapped ones, false from a heap one
+     * @param batchSize  the number of pairs of samples per batch
+     * @param bytes      the raw samples
+     * @param expected   the expected power samples
+     */
+    private static void check(boolean vectorized, boolean direct, int batchSize, byte[] bytes, int[] expected) {
+        PowerKernel kernel = PowerKernel.create(vectorized);
+        //the batches are read at a position other than zero, and written at an offset other than zero
+        int padding = batchSize % 7;
+        ByteBuffer buffer = direct
+                ? ByteBuffer.allocateDirect(padding + batchSize * PAIR_BYTES + 3)
+                : ByteBuffer.allocate(padding + batchSize * PAIR_BYTES + 3);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        int[] target = new int[padding + batchSize];
+        int[] actual = new int[expected.length];
+
+        int computed = 0;
+        for (int start = 0; start < bytes.length; start += batchSize * PAIR_BYTES) {
+            int length = Math.min(batchSize * PAIR_BYTES, bytes.length - start);
+            buffer.clear().position(padding);
+            buffer.put(bytes, start, length).flip().position(padding);
+
+            Arrays.fill(target, -1);
+            int count = kernel.compute(buffer, target, padding);
+            if (count != length / PAIR_BYTES)
+                throw new AssertionError("batch of %d bytes gave %d power samples".formatted(length, count));
+            for (int i = 0; i < padding; i++) {
+                if (target[i] != -1) throw new AssertionError("power sample written before the offset");
+            }
+            System.arraycopy(target, padding, actual, computed, count);
+            computed += count;
+        }
+
+        if (computed != expected.length || !Arrays.equals(actual, expected)) {
+            int index = Arrays.mismatch(actual, expected);
+            throw new AssertionError("%s kernel, %s buffer, batches of %d pairs: power sample %d is %d instead of %d"
+                    .formatted(vectorized ? "vectorized" : "scalar", direct ? "direct" : "heap", batchSize,
+                            index, actual[index], expected[index]));
+        }
+    }
+
+    /**
+     * Computes the power samples of the given raw samples as the original {@link PowerComputer} did.
+     *
+     * @param bytes the raw samples, two little-endian bytes each
+     * @param pairs the number of pairs of samples to use
+     * @return the power samples
+     */
+    private static int[] expectedPowers(byte[] bytes, int pairs) {
+        short[] last8Samples = new short[8];
+        int[] powers = new int[pairs];
+        for (int i = 0; i < pairs; i++) {
+            for (int j = 0; j < 2; j++) {
+                int index = (2 * i + j) * Short.BYTES;
+                int sample = (((bytes[index] & 0xFF) | (bytes[index + 1] & 0xFF) << 8) & 0xFFF) - 2048;
+                last8Samples[(2 * i + j) % 8] = (short) sample;
+            }
+            int sum1 = last8Samples[6] - last8Samples[4] + last8Samples[2] - last8Samples[0];
+            int sum2 = last8Samples[7] - last8Samples[5] + last8Samples[3] - last8Samples[1];
+            powers[i] = sum1 * sum1 + sum2 * sum2;
+        }
+        return powers;
+    }
+}
@@ -0,0 +1,64 @@
+package ch.epfl.javions.demodulation;
+
+import ch.epfl.javions.adsb.RawMessage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static ch.epfl.javions.demodulation.AdsbDemodulator.decodeMessage;
+import static ch.epfl.javions.demodulation.AdsbDemodulator.isPreamble;
+import static ch.epfl.javions.demodulation.AdsbDemodulator.peak;
+import static ch.epfl.javions.demodulation.AdsbDemodulator.timeStampNs;
+
+/**
+ * Demodulates messages as {@link AdsbDemodulator} did before it scanned positions by blocks: the window is advanced
+ * one position at a time, and the noise floor, the peaks and the preamble test are evaluated at every one of them.
+ * Used as the reference the demodulator is compared to, without error correction.
+ *
+ * @author : Alexei Thornber (363088)
+ * @author : Zachary Doll (356458)
+ */
+final class ReferenceDemodulator {
+    private static final int NOISE_FLOOR_SHIFT = 12;
+    private static final int SAMPLES_IN_PEAK = 4;
+
+    private ReferenceDemodulator() {
+    } // Prevents instantiation
+
+    /**
+     * Demodulates all the messages of the given window.
+     *
+     * @param window the window over the power samples, of size {@link AdsbDemodulator#WINDOW_SIZE}
+     * @param snrDb  the smallest accepted signal-to-noise ratio in decibels, or {@link Double#NEGATIVE_INFINITY}
+     * @return the messages, in increasing order of timestamp
+     * @throws IOException if the samples cannot be read
+     */
+    static List<RawMessage> messages(PowerWindow window, double snrDb) throws IOException {
+        double minimumPeakRatio = SAMPLES_IN_PEAK * Math.pow(10, snrDb / 10);
+        List<RawMessage> messages = new ArrayList<>();
+        long scaledNoiseFloor = 0;
+        int currentPeak = 0;
+        int nextPeak = 0;
+
+        while (window.isFull()) {
+            scaledNoiseFloor += window.get(0) - (scaledNoiseFloor >> NOISE_FLOOR_SHIFT);
+
+            int previousPeak = currentPeak;
+            currentPeak = nextPeak;
+            nextPeak = peak(window, 1);
+
+            if (isPreamble(previousPeak, currentPeak, nextPeak, window)
+                    && currentPeak >= minimumPeakRatio * (scaledNoiseFloor >> NOISE_FLOOR_SHIFT)) {
+                RawMessage message = decodeMessage(window, timeStampNs(window.position()));
+                if (message != null) {
+                    messages.add(message);
+                    window.advanceBy(window.size());
+                    continue;
+                }
+            }
+            window.advance();
+        }
+        return messages;
+    }
+}
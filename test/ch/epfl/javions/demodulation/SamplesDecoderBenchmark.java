@@ -0,0 +1,99 @@
+package ch.epfl.javions.demodulation;
+
+import ch.epfl.javions.Benchmarks;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Compares the throughput of {@link SamplesDecoder} and {@link PowerComputer} when they read a recording through an
+ * {@link InputStream}, and when they decode it straight from the memory-mapped pages of a {@link FileChannel}, after
+ * checking that both give the same samples. Each source is timed in its own virtual machine.
+ * <pre>
+ *     java -cp out ch.epfl.javions.demodulation.SamplesDecoderBenchmark [recording]
+ * </pre>
+ * A synthetic recording of 64 MiB is written if none is given.
+ *
+ * @author : Alexei Thornber (363088)
+ * @author : Zachary Doll (356458)
+ */
+final class SamplesDecoderBenchmark {
+    private static final int BATCH_SIZE = 1 << 16;
+    private static final String STREAM = "stream";
+    private static final String CHANNEL = "channel";
+
+    private SamplesDecoderBenchmark() {
+    } // Prevents instantiation
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && (args[0].equals(STREAM) || args[0].equals(CHANNEL))) {
+            run(args[0], Path.of(args[1]));
+            return;
+        }
+
+        Path file = args.length > 0 ? Path.of(args[0]) : SyntheticRecording.write(1, 1 << 24, 2000);
+        if (powers(file, false) != powers(file, true))
+            throw new AssertionError("the stream and the mapped channel give different power samples");
+        System.out.printf("%.0f MiB recording: %s%n", Files.size(file) / (double) (1 << 20), file);
+        Benchmarks.fork(SamplesDecoderBenchmark.class, List.of(STREAM, CHANNEL), file.toString());
+    }
+
+    /**
+     * Times the decoding of the samples and the computation of the power samples with the given source.
+     *
+     * @param mode the source, {@link #STREAM} or {@link #CHANNEL}
+     * @param file the recording
+     * @throws Exception if the recording cannot be read
+     */
+    private static void run(String mode, Path file) throws Exception {
+        boolean mapped = mode.equals(CHANNEL);
+        double megabytes = Files.size(file) / (double) (1 << 20);
+        Benchmarks.time("SamplesDecoder, " + mode, megabytes, "MiB", () -> samples(file, mapped));
+        Benchmarks.time("PowerComputer, " + mode, megabytes, "MiB", () -> powers(file, mapped));
+    }
+
+    /**
+     * Decodes all the samples of the recording.
+     *
+     * @param file   the recording
+     * @param mapped true to decode the samples from a mapped channel, false to read them from a stream
+     * @return a checksum of the samples
+     * @throws IOException if the recording cannot be read
+     */
+    private static long samples(Path file, boolean mapped) throws IOException {
+        short[] batch = new short[BATCH_SIZE];
+        long checksum = 0;
+        try (FileChannel channel = FileChannel.open(file); InputStream stream = new FileInputStream(file.toFile())) {
+            var decoder = mapped ? new SamplesDecoder(channel, BATCH_SIZE) : new SamplesDecoder(stream, BATCH_SIZE);
+            for (int count; (count = decoder.readBatch(batch)) > 0; ) {
+                for (int i = 0; i < count; i++) checksum = 31 * checksum + batch[i];
+            }
+        }
+        return checksum;
+    }
+
+    /**
+     * Computes all the power samples of the recording.
+     *
+     * @param file   the recording
+     * @param mapped true to decode the samples from a mapped channel, false to read them from a stream
+     * @return a checksum of the power samples
+     * @throws IOException if the recording cannot be read
+     */
+    private static long powers(Path file, boolean mapped) throws IOException {
+        int[] batch = new int[BATCH_SIZE];
+        long checksum = 0;
+        try (FileChannel channel = FileChannel.open(file); InputStream stream = new FileInputStream(file.toFile())) {
+            var computer = mapped ? new PowerComputer(channel, BATCH_SIZE) : new PowerComputer(stream, BATCH_SIZE);
+            for (int count; (count = computer.readBatch(batch)) > 0; ) {
+                for (int i = 0; i < count; i++) checksum = 31 * checksum + batch[i];
+            }
+        }
+        return checksum;
+    }
+}
@@ -0,0 +1,143 @@
+package ch.epfl.javions.demodulation;
+
+import ch.epfl.javions.Crc24;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Writes synthetic AirSpy recordings, made of gaussian noise in which ADS-B messages with a valid CRC are modulated,
+ * so that the benchmarks and tests of the demodulation can be run without a real recording.
+ *
+ * @author : Alexei Thornber (363088)
+ * @author : Zachary Doll (356458)
+ */
+final class SyntheticRecording {
+    //Number of power samples per second, as a power sample lasts 100 ns
+    static final int POWER_SAMPLES_PER_SECOND = 10_000_000;
+    private static final int MESSAGE_SAMPLES = AdsbDemodulator.WINDOW_SIZE;
+    private static final int SAMPLES_IN_PREAMBLE = 80;
+    private static final int[] PREAMBLE_PULSES = {0, 10, 35, 45};
+    private static final int PULSE_SIZE = 5;
+    private static final int BIAS = 2048;
+    private static final int SAMPLE_MASK = (1 << 12) - 1;
+    private static final Crc24 CRC = new Crc24(Crc24.GENERATOR);
+
+    private SyntheticRecording() {
+    } // Prevents instantiation
+
+    /**
+     * Writes a recording of the given number of power samples in a temporary file, deleted when the virtual machine
+     * exits.
+     *
+     * @param seed              the seed of the noise and of the messages
+     * @param powerSamples      the number of power samples of the recording
+     * @param messagesPerSecond the average number of messages per second of recording
+     * @return the path of the recording
+     * @throws IOException if the file cannot be written
+     */
+    static Path write(long seed, int powerSamples, int messagesPerSecond) throws IOException {
+        Path file = Files.createTempFile("javions-recording", ".bin");
+        file.toFile().deleteOnExit();
+        try (var stream = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)) {
+            write(stream, new Random(seed), powerSamples, messagesPerSecond);
+        }
+        return file;
+    }
+
+    /**
+     * Writes a recording of the given number of power samples in the given stream.
+     *
+     * @param stream            the stream receiving the samples, two little-endian bytes each
+     * @param random            the generator of the noise and of the messages
+     * @param powerSamples      the number of power samples of the recording
+     * @param messagesPerSecond the average number of messages per second of recording
+     * @throws IOException if the stream cannot be written to
+     */
+    private static void write(OutputStream stream, Random random, int powerSamples, int messagesPerSecond)
+            throws IOException {
+        //the gaps between messages are uniformly drawn around their average, and never let messages overlap
+        long averageGap = messagesPerSecond == 0
+                ? Long.MAX_VALUE
+                : Math.max(MESSAGE_SAMPLES, POWER_SAMPLES_PER_SECOND / messagesPerSecond);
+        long nextMessage = nextGap(random, averageGap);
+        byte[] message = new byte[14];
+        int amplitude = 0;
+        long messageStart = -1;
+
+        for (long t = 0; t < powerSamples; t++) {
+            if (t == nextMessage) {
+                messageStart = t;
+                amplitude = 200 + random.nextInt(1500);
+                randomMessage(random, message);
+                nextMessage = t + Math.max(MESSAGE_SAMPLES, nextGap(random, averageGap));
+            }
+            boolean on = messageStart >= 0 && t - messageStart < MESSAGE_SAMPLES
+                    && isPulse(message, (int) (t - messageStart));
+
+            for (int j = 0; j < 2; j++) {
+                long n = 2 * t + j;
+                double value = BIAS + random.nextGaussian() * 30;
+                //the carrier is sampled four times per period, so that it alternates between 1, 0, -1 and 0
+                if (on) value += amplitude * (n % 4 == 0 ? 1 : n % 4 == 2 ? -1 : 0);
+                int sample = (int) Math.max(0, Math.min(SAMPLE_MASK, Math.round(value)));
+                stream.write(sample);
+                stream.write(sample >>> Byte.SIZE);
+            }
+        }
+    }
+
+    /**
+     * Draws the gap between the start of a message and the start of the next one.
+     *
+     * @param random     the generator
+     * @param averageGap the average gap, in power samples
+     * @return the gap, in power samples
+     */
+    private static long nextGap(Random random, long averageGap) {
+        return averageGap == Long.MAX_VALUE ? Long.MAX_VALUE : 1 + (long) (random.nextDouble() * 2 * averageGap);
+    }
+
+    /**
+     * Fills the given array with a random message. Most messages are ADS-B messages with a valid CRC, a few of them
+     * being corrupted by a flipped bit, and the others are of another downlink format.
+     *
+     * @param random  the generator
+     * @param message the array receiving the message
+     */
+    private static void randomMessage(Random random, byte[] message) {
+        random.nextBytes(message);
+        message[0] = (byte) (random.nextInt(10) == 0 ? 11 << 3 : (17 << 3) | (message[0] & 0b111));
+        int crc = CRC.crc(Arrays.copyOf(message, 11));
+        message[11] = (byte) (crc >>> 16);
+        message[12] = (byte) (crc >>> 8);
+        message[13] = (byte) crc;
+        if (random.nextInt(8) == 0) message[5 + random.nextInt(8)] ^= (byte) (1 << random.nextInt(Byte.SIZE));
+    }
+
+    /**
+     * Checks whether the carrier is transmitted at the given power sample of a message.
+     *
+     * @param message the message
+     * @param index   the index of the power sample, counted from the start of the preamble
+     * @return true if a pulse is transmitted, false otherwise
+     */
+    private static boolean isPulse(byte[] message, int index) {
+        if (index < SAMPLES_IN_PREAMBLE) {
+            for (int pulse : PREAMBLE_PULSES) {
+                if (index >= pulse && index < pulse + PULSE_SIZE) return true;
+            }
+            return false;
+        }
+        int bitIndex = (index - SAMPLES_IN_PREAMBLE) / (2 * PULSE_SIZE);
+        if (bitIndex >= 8 * message.length) return false;
+        boolean bit = ((message[bitIndex / 8] >>> (7 - bitIndex % 8)) & 1) == 1;
+        boolean firstHalf = (index - SAMPLES_IN_PREAMBLE) % (2 * PULSE_SIZE) < PULSE_SIZE;
+        return bit == firstHalf;
+    }
+}